@@ -0,0 +1,95 @@
+package com.obs.purchase.benchmark;
+
+import com.obs.purchase.PurchaseApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of GET /items/{id} and GET /inventories/{id} over HTTP with the Hibernate
+ * second-level cache on and off. The ids are drawn from the whole seeded range, so with the
+ * default region size of 10000 every row fits; raise items above it to measure a working
+ * set larger than the regions.
+ * <p>
+ * Nothing writes stock while it runs, so the inventory numbers are a best case. Every native
+ * stock write (withdrawals, holds, top-ups and order drains) names the inventory table, and
+ * Hibernate empties the whole inventory region after each one. Under an order load the
+ * inventory hit rate falls with the write rate, while the item region keeps its hits.
+ *
+ * mvn -Pbenchmark verify -Djmh.args="EntityCacheBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class EntityCacheBenchmark {
+
+    @Param({"true", "false"})
+    public boolean secondLevelCache;
+
+    @Param({"10000"})
+    public int items;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(PurchaseApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:entity-cache-" + secondLevelCache,
+                        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=" + secondLevelCache,
+                        "--logging.level.root=WARN");
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Timestamp now = Timestamp.from(Instant.now());
+        SeededDatabase.insert(jdbcTemplate, "INSERT INTO item (id, name, price, created_at, updated_at) VALUES (?, ?, ?, ?, ?)", items,
+                id -> new Object[]{id, SeededDatabase.itemName(id), 1 + (int) (id % 500), now, now});
+        SeededDatabase.insert(jdbcTemplate, "INSERT INTO inventory (id, item_id, stock, created_at, updated_at) VALUES (?, ?, ?, ?, ?)", items,
+                id -> new Object[]{id, id, 1_000, now, now});
+        SeededDatabase.restartSequence(jdbcTemplate, "item_seq", items);
+        SeededDatabase.restartSequence(jdbcTemplate, "inventory_seq", items);
+
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getItem() throws IOException, InterruptedException {
+        return get("/items/");
+    }
+
+    @Benchmark
+    public int getInventory() throws IOException, InterruptedException {
+        return get("/inventories/");
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        long id = 1 + ThreadLocalRandom.current().nextLong(items);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path + id)).GET().build();
+        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 200) {
+            throw new IllegalStateException(path + id + " returned " + status);
+        }
+        return status;
+    }
+}
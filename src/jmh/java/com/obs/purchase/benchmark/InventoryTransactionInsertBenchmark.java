@@ -0,0 +1,78 @@
+package com.obs.purchase.benchmark;
+
+import com.obs.purchase.PurchaseApplication;
+import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.entity.Item;
+import com.obs.purchase.enums.Type;
+import com.obs.purchase.repository.ItemRepository;
+import com.obs.purchase.service.InventoryTransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of InventoryTransactionService.save called in a loop inside one
+ * transaction. "identity-like" approximates the old IDENTITY mapping: one id round trip
+ * per row and no JDBC batching. "pooled" is the configuration from application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryTransactionInsertBenchmark {
+    private static final int ROWS_PER_TRANSACTION = 100;
+
+    @Param({"identity-like", "pooled"})
+    private String idStrategy;
+
+    private ConfigurableApplicationContext context;
+    private InventoryTransactionService inventoryTransactionService;
+    private TransactionTemplate transactionTemplate;
+    private long itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // command-line arguments, so they win over application.properties
+        List<String> args = new ArrayList<>(List.of("--spring.datasource.url=jdbc:h2:mem:insert-" + idStrategy,
+                // measure the inserts alone, without the ledger flushing stock in the background
+                "--purchase.stock.ledger.enabled=false",
+                "--logging.level.root=WARN"));
+        if (idStrategy.equals("identity-like")) {
+            // the migrated sequences are fixed at the pooled increments, so let Hibernate build this schema
+            args.addAll(List.of("--spring.flyway.enabled=false",
+                    "--spring.jpa.hibernate.ddl-auto=create-drop",
+                    "--spring.jpa.properties.purchase.id.allocation-size=1",
+                    "--spring.jpa.properties.purchase.id.allocation-size.inventory_transaction=1",
+                    "--spring.jpa.properties.hibernate.jdbc.batch_size=1"));
+        }
+        context = new SpringApplicationBuilder(PurchaseApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+        inventoryTransactionService = context.getBean(InventoryTransactionService.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        itemId = context.getBean(ItemRepository.class).save(new Item(0, "benchmark item", 10)).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public void saveLoop() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+                inventoryTransactionService.save(new InventoryTransaction(itemId, 1, Type.TOP_UP.getDisplayName()));
+            }
+        });
+    }
+}
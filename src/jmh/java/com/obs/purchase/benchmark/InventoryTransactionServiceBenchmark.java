@@ -0,0 +1,44 @@
+package com.obs.purchase.benchmark;
+
+import com.obs.purchase.entity.Inventory;
+import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.enums.Type;
+import com.obs.purchase.service.InventoryTransactionService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryTransactionServiceBenchmark {
+    private InventoryTransactionService inventoryTransactionService;
+    private final Inventory inventory = new Inventory(1L, 1_000);
+    private final InventoryTransaction topUp = new InventoryTransaction(1L, 5, Type.TOP_UP.getDisplayName());
+    private final InventoryTransaction withdrawal = new InventoryTransaction(1L, 5, Type.WITHDRAWAL.getDisplayName());
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase database) {
+        inventoryTransactionService = database.getBean(InventoryTransactionService.class);
+    }
+
+    @Benchmark
+    public InventoryTransaction saveTopUp(SeededDatabase database) {
+        return inventoryTransactionService.save(new InventoryTransaction(database.randomItemId(), 1, Type.TOP_UP.getDisplayName()));
+    }
+
+    @Benchmark
+    public InventoryTransaction saveWithdrawal(SeededDatabase database) {
+        return inventoryTransactionService.save(new InventoryTransaction(database.randomItemId(), 1, Type.WITHDRAWAL.getDisplayName()));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int updatedInventoryStock() {
+        return inventoryTransactionService.updatedInventoryStock(inventory, topUp)
+                + inventoryTransactionService.updatedInventoryStock(inventory, withdrawal);
+    }
+}
@@ -0,0 +1,45 @@
+package com.obs.purchase.benchmark;
+
+import com.obs.purchase.entity.Item;
+import com.obs.purchase.exceptions.DuplicateObjectExceptions;
+import com.obs.purchase.service.ItemService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ItemService.save's duplicate check: rejecting a name that is already registered, and
+ * registering a new one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemServiceBenchmark {
+    private ItemService itemService;
+    private AtomicLong nextNewItem;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase database) {
+        itemService = database.getBean(ItemService.class);
+        nextNewItem = new AtomicLong(database.items + 1L);
+    }
+
+    @Benchmark
+    public boolean saveDuplicate(SeededDatabase database) {
+        try {
+            itemService.save(new Item(0, SeededDatabase.itemName(database.randomItemId()), 10));
+            return false;
+        } catch (DuplicateObjectExceptions e) {
+            return true;
+        }
+    }
+
+    @Benchmark
+    public Item saveNew() {
+        return itemService.save(new Item(0, SeededDatabase.itemName(nextNewItem.getAndIncrement()), 10));
+    }
+}
@@ -0,0 +1,124 @@
+package com.obs.purchase.benchmark;
+
+import com.obs.purchase.PurchaseApplication;
+import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.entity.Item;
+import com.obs.purchase.enums.Type;
+import com.obs.purchase.repository.ItemRepository;
+import com.obs.purchase.service.InventoryTransactionService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load test for POST /orders, run once with platform request threads and once
+ * with spring.threads.virtual.enabled=true, printing throughput and latency percentiles.
+ * Virtual threads need a Java 21 runtime; on older JVMs both runs use platform threads.
+ *
+ * mvn -Pbenchmark verify -Dbenchmark.main=com.obs.purchase.benchmark.OrderLoadTest -Djmh.args="400 20"
+ * (arguments: concurrent clients, seconds per mode)
+ */
+public class OrderLoadTest {
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 && args[0].matches("\\d+") ? Integer.parseInt(args[0]) : 200;
+        Duration duration = Duration.ofSeconds(args.length > 1 && args[1].matches("\\d+") ? Long.parseLong(args[1]) : 20);
+        if (Runtime.version().feature() < 21) {
+            System.out.println("Java " + Runtime.version().feature() + " has no virtual threads, the 'virtual' run falls back to platform threads");
+        }
+
+        List<String> report = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            report.add(run(virtual, clients, duration));
+        }
+        System.out.printf("%n%-10s %8s %10s %10s %10s %10s %8s%n", "mode", "clients", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        report.forEach(System.out::println);
+    }
+
+    private static String run(boolean virtual, int clients, Duration duration) throws Exception {
+        String mode = virtual ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PurchaseApplication.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + mode,
+                        "--logging.level.root=WARN")) {
+            long itemId = context.getBean(ItemRepository.class).save(new Item(0, "load test item", 10)).getId();
+            context.getBean(InventoryTransactionService.class)
+                    .save(new InventoryTransaction(itemId, Integer.MAX_VALUE / 2, Type.TOP_UP.getDisplayName()));
+
+            URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/orders");
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"itemId\":" + itemId + ",\"qty\":1}"))
+                    .build();
+
+            drive(request, clients, WARMUP);
+            Result result = drive(request, clients, duration);
+            return String.format("%-10s %8d %10.1f %10.2f %10.2f %10.2f %8d", mode, clients,
+                    result.latenciesNanos.length / (duration.toNanos() / 1e9),
+                    result.percentileMillis(0.50), result.percentileMillis(0.99), result.percentileMillis(1.0), result.errors);
+        }
+    }
+
+    private static Result drive(HttpRequest request, int clients, Duration duration) throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<long[]>> futures = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            futures.add(executor.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 201) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        executor.shutdown();
+        Arrays.sort(all);
+        return new Result(all, errors.get());
+    }
+
+    private record Result(long[] latenciesNanos, long errors) {
+        double percentileMillis(double percentile) {
+            if (latenciesNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * latenciesNanos.length) - 1;
+            return latenciesNanos[Math.max(0, index)] / 1e6;
+        }
+    }
+}
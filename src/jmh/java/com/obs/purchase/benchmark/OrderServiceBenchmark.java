@@ -0,0 +1,27 @@
+package com.obs.purchase.benchmark;
+
+import com.obs.purchase.entity.Order;
+import com.obs.purchase.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderServiceBenchmark {
+    private OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase database) {
+        orderService = database.getBean(OrderService.class);
+    }
+
+    @Benchmark
+    public Order save(SeededDatabase database) {
+        return orderService.save(new Order(null, database.randomItemId(), 1, null));
+    }
+}
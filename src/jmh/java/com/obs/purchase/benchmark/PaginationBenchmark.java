@@ -0,0 +1,45 @@
+package com.obs.purchase.benchmark;
+
+import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.service.InventoryTransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offset paging with findAll against keyset paging with findAllAfter over the seeded
+ * inventory_transaction table, at increasing depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"0", "1000", "40000"})
+    private int pageNo;
+
+    private InventoryTransactionService inventoryTransactionService;
+    private long afterId;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededDatabase database) {
+        inventoryTransactionService = database.getBean(InventoryTransactionService.class);
+        afterId = (long) pageNo * PAGE_SIZE;
+    }
+
+    @Benchmark
+    public Page<InventoryTransaction> findAll() {
+        return inventoryTransactionService.findAll(pageNo, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Slice<InventoryTransaction> findAllAfter() {
+        return inventoryTransactionService.findAllAfter(afterId, PAGE_SIZE);
+    }
+}
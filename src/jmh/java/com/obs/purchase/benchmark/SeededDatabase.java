@@ -0,0 +1,100 @@
+package com.obs.purchase.benchmark;
+
+import com.obs.purchase.PurchaseApplication;
+import com.obs.purchase.service.StockLedger;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Application context over an embedded H2 seeded with production-like volumes, shared by
+ * the service benchmarks. Rows are written with plain JDBC batches and the id sequences are
+ * moved past them afterwards, so seeding a million transactions takes seconds, not minutes.
+ * Use -p items=...,transactions=... for a quicker run.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final int INITIAL_STOCK = 1_000_000;
+
+    @Param({"100000"})
+    public int items;
+
+    @Param({"1000000"})
+    public int transactions;
+
+    public ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(PurchaseApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:service-benchmark",
+                        "--logging.level.root=WARN");
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Timestamp now = Timestamp.from(Instant.now());
+
+        insert(jdbcTemplate, "INSERT INTO item (id, name, price, created_at, updated_at) VALUES (?, ?, ?, ?, ?)", items,
+                id -> new Object[]{id, itemName(id), 1 + (int) (id % 500), now, now});
+        insert(jdbcTemplate, "INSERT INTO inventory (id, item_id, stock, created_at, updated_at) VALUES (?, ?, ?, ?, ?)", items,
+                id -> new Object[]{id, id, INITIAL_STOCK, now, now});
+        insert(jdbcTemplate, "INSERT INTO inventory_transaction (id, item_id, qty, type, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)", transactions,
+                id -> new Object[]{id, 1 + id % items, 1 + (int) (id % 10), id % 3 == 0 ? "T" : "W", now, now});
+
+        restartSequence(jdbcTemplate, "item_seq", items);
+        restartSequence(jdbcTemplate, "inventory_seq", items);
+        restartSequence(jdbcTemplate, "inventory_transaction_seq", transactions);
+        context.getBean(StockLedger.class).seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public long randomItemId() {
+        return 1 + ThreadLocalRandom.current().nextLong(items);
+    }
+
+    /** Maps an id to a unique name that passes Item's letters-only validation. */
+    public static String itemName(long id) {
+        StringBuilder name = new StringBuilder("item ");
+        do {
+            name.append((char) ('a' + id % 26));
+            id /= 26;
+        } while (id > 0);
+        return name.toString();
+    }
+
+    static void insert(JdbcTemplate jdbcTemplate, String sql, long rows, RowFactory rowFactory) {
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (long id = 1; id <= rows; id++) {
+            batch.add(rowFactory.row(id));
+            if (batch.size() == INSERT_BATCH_SIZE || id == rows) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    static void restartSequence(JdbcTemplate jdbcTemplate, String sequence, long rows) {
+        // leave room for ids a pooled optimizer may already have handed out during startup
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (rows + 1_000));
+    }
+
+    interface RowFactory {
+        Object[] row(long id);
+    }
+}
@@ -0,0 +1,40 @@
+package com.obs.purchase.benchmark;
+
+import com.obs.purchase.service.ShardedStock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Withdrawal throughput for a single hot item from many threads, with one counter versus
+ * several shards. Each op reserves one unit and puts it back so the stock never runs out.
+ * Run with -t to match the core count, e.g. -t 16.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ShardedStockBenchmark {
+
+    @Param({"1", "8", "32"})
+    private int shards;
+
+    private ShardedStock stock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stock = new ShardedStock(shards, 1_000_000);
+    }
+
+    @Benchmark
+    public boolean reserveAndRelease() {
+        boolean reserved = stock.reserve(1);
+        if (reserved) {
+            stock.add(1);
+        }
+        return reserved;
+    }
+}
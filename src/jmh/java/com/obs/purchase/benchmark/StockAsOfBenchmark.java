@@ -0,0 +1,91 @@
+package com.obs.purchase.benchmark;
+
+import com.obs.purchase.PurchaseApplication;
+import com.obs.purchase.entity.dto.StockAsOf;
+import com.obs.purchase.repository.InventoryTransactionRepository;
+import com.obs.purchase.service.InventorySnapshotService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time stock over a transaction log spread across a year: the checkpointed
+ * stockAsOf against folding the item's whole history up to the timestamp.
+ * Use -p transactions=... for a quicker run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StockAsOfBenchmark {
+    private static final Duration HISTORY = Duration.ofDays(365);
+
+    @Param({"1000"})
+    public int items;
+
+    @Param({"10000000"})
+    public int transactions;
+
+    private ConfigurableApplicationContext context;
+    private InventorySnapshotService inventorySnapshotService;
+    private InventoryTransactionRepository inventoryTransactionRepository;
+    private Instant start;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(PurchaseApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:stock-as-of-benchmark",
+                        "--purchase.stock.snapshot.interval-ms=3600000",
+                        "--logging.level.root=WARN");
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        start = Instant.now().minus(HISTORY);
+        long step = HISTORY.toMillis() / transactions;
+
+        SeededDatabase.insert(jdbcTemplate, "INSERT INTO item (id, name, price, created_at, updated_at) VALUES (?, ?, ?, ?, ?)", items,
+                id -> new Object[]{id, SeededDatabase.itemName(id), 1 + (int) (id % 500), Timestamp.from(start), Timestamp.from(start)});
+        SeededDatabase.insert(jdbcTemplate, "INSERT INTO inventory_transaction (id, item_id, qty, type, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)", transactions, id -> {
+            Timestamp createdAt = Timestamp.from(start.plusMillis(id * step));
+            return new Object[]{id, 1 + id % items, 1 + (int) (id % 10), id % 3 == 0 ? "T" : "W", createdAt, createdAt};
+        });
+        SeededDatabase.restartSequence(jdbcTemplate, "item_seq", items);
+        SeededDatabase.restartSequence(jdbcTemplate, "inventory_transaction_seq", transactions);
+
+        inventorySnapshotService = context.getBean(InventorySnapshotService.class);
+        inventoryTransactionRepository = context.getBean(InventoryTransactionRepository.class);
+        inventorySnapshotService.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public StockAsOf stockAsOf() {
+        return inventorySnapshotService.stockAsOf(randomItemId(), randomInstant());
+    }
+
+    @Benchmark
+    public long foldWholeHistory() {
+        return inventoryTransactionRepository.sumStockChange(randomItemId(), Instant.EPOCH, randomInstant());
+    }
+
+    private long randomItemId() {
+        return 1 + ThreadLocalRandom.current().nextLong(items);
+    }
+
+    private Instant randomInstant() {
+        return start.plusMillis(ThreadLocalRandom.current().nextLong(HISTORY.toMillis()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.obs.purchase.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Puts the application DataSource, the plain pool or the replica routing proxy in front of
+ * both pools, behind a {@link ConcurrencyLimitedDataSource}. Only that bean is wrapped: a
+ * logical connection then takes exactly one permit, however many pools sit behind it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "purchase.db.concurrency-limit.enabled", havingValue = "true")
+public class DatabaseConcurrencyConfig {
+    static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Bean
+    public static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor(Environment environment) {
+        int permits = environment.getProperty("purchase.db.concurrency-limit.permits", Integer.class, 10);
+        Duration acquireTimeout = environment.getProperty("purchase.db.concurrency-limit.acquire-timeout", Duration.class, Duration.ofSeconds(5));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    return new ConcurrencyLimitedDataSource(dataSource, permits, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.obs.purchase.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caffeine-backed JCache regions for Hibernate's second-level cache. Every region is created
+ * here with its own size bound, purchase.entity-cache.&lt;region&gt;.maximum-size, and with
+ * Caffeine statistics on. Hibernate is set to fail on a region that is not listed, so no
+ * region ends up unbounded by accident.
+ */
+@Configuration
+public class EntityCacheConfig {
+    private static final List<String> REGIONS = List.of("item", "inventory");
+    private static final AtomicInteger MANAGERS = new AtomicInteger();
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(Environment environment) {
+        // a manager per context, so contexts alive side by side in one JVM do not share regions
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("purchase:entity-cache-" + MANAGERS.incrementAndGet()), getClass().getClassLoader());
+        long maximumSize = environment.getProperty("purchase.entity-cache.maximum-size", Long.class, 10000L);
+        Duration expireAfterWrite = environment.getProperty("purchase.entity-cache.expire-after-write", Duration.class, Duration.ofMinutes(10));
+        for (String region : REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(environment.getProperty("purchase.entity-cache." + region + ".maximum-size", Long.class, maximumSize)));
+            configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+            configuration.setNativeStatisticsEnabled(true);
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheManagerCustomizer(CacheManager entityCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+    }
+}
@@ -0,0 +1,20 @@
+package com.obs.purchase.config;
+
+import com.obs.purchase.service.PurchaseMetrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * The contention histogram is tagged per itemId; past this many items new tags are
+     * dropped so a large catalog can't blow up the scrape.
+     */
+    @Bean
+    public MeterFilter stockContentionCardinalityLimit(@Value("${purchase.metrics.contention.max-items:500}") int maxItems) {
+        return MeterFilter.maximumAllowableTags(PurchaseMetrics.STOCK_CONTENTION, "itemId", maxItems, MeterFilter.deny());
+    }
+}
@@ -0,0 +1,38 @@
+package com.obs.purchase.config;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps rows read from the replica out of the second-level cache. The replica may lag, and a
+ * stale row stored in the shared regions would be served to every later read, primary ones
+ * included, until it expires or is evicted. Sessions of transactions that
+ * {@link ReplicaRoutingDataSource} sends to the replica still read the cache but store
+ * nothing into it, entity and query regions alike.
+ */
+public class ReplicaCacheBypass implements TransactionExecutionListener {
+    private final EntityManagerFactory entityManagerFactory;
+    private final String replicaTransactionPrefix;
+
+    public ReplicaCacheBypass(EntityManagerFactory entityManagerFactory, String replicaTransactionPrefix) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.replicaTransactionPrefix = replicaTransactionPrefix;
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure != null || ReplicaRoutingDataSource.isPinnedToPrimary()
+                || !ReplicaRoutingDataSource.routesToReplica(transaction.getTransactionName(), transaction.isReadOnly(), replicaTransactionPrefix)) {
+            return;
+        }
+        // a pin set later in the transaction leaves the bypass on, which costs a cache fill and nothing more
+        if (TransactionSynchronizationManager.getResource(entityManagerFactory) instanceof EntityManagerHolder holder) {
+            holder.getEntityManager().setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        }
+    }
+}
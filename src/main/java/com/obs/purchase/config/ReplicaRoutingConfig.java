@@ -0,0 +1,67 @@
+package com.obs.purchase.config;
+
+import com.obs.purchase.service.BaseService;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the single pool with a primary and a replica pool behind a
+ * {@link ReplicaRoutingDataSource}. The primary is configured from spring.datasource as
+ * before. The replica takes its url and credentials from purchase.datasource.replica, the
+ * shared spring.datasource.hikari settings, and any overrides under
+ * purchase.datasource.replica.hikari. Set purchase.datasource.replica.migrate when the
+ * replica is a standalone database, such as a second local H2, that does not get the
+ * schema through replication. Sessions that read from the replica do not store into the
+ * second-level cache, see {@link ReplicaCacheBypass}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "purchase.datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+    private static final String REPLICA_TRANSACTION_PREFIX = BaseService.class.getPackageName() + ".";
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(environment.getRequiredProperty("purchase.datasource.replica.url"))
+                .username(environment.getProperty("purchase.datasource.replica.username", properties.determineUsername()))
+                .password(environment.getProperty("purchase.datasource.replica.password", properties.determinePassword()))
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+        binder.bind("purchase.datasource.replica.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+
+        if (environment.getProperty("purchase.datasource.replica.migrate", Boolean.class, false)) {
+            Flyway.configure()
+                    .dataSource(replica)
+                    .locations(environment.getProperty("spring.flyway.locations", String[].class, new String[]{"classpath:db/migration"}))
+                    .load()
+                    .migrate();
+        }
+        return new ReplicaRoutingDataSource(primary, replica, REPLICA_TRANSACTION_PREFIX);
+    }
+
+    // Spring Boot registers TransactionExecutionListener beans with the transaction manager
+    @Bean
+    public ReplicaCacheBypass replicaCacheBypass(EntityManagerFactory entityManagerFactory) {
+        return new ReplicaCacheBypass(entityManagerFactory, REPLICA_TRANSACTION_PREFIX);
+    }
+}
@@ -0,0 +1,96 @@
+package com.obs.purchase.config;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends the connections of read-only transactions started by the service layer to the
+ * replica and everything else to the primary. Only transactions whose name, the method that
+ * opened them, starts with replicaTransactionPrefix qualify, so the read-only transactions
+ * Spring Data opens around a bare repository call stay on the primary next to the writes
+ * that depend on them. The pool is picked when the transaction runs its first statement,
+ * by which time Spring has marked it read-only, hence the lazy connection proxy.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final String replicaTransactionPrefix;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, String replicaTransactionPrefix) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaTransactionPrefix = replicaTransactionPrefix;
+        AbstractRoutingDataSource router = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return target();
+            }
+        };
+        router.setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        router.setDefaultTargetDataSource(primary);
+        router.setLenientFallback(false);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+    }
+
+    /**
+     * Runs the read against the primary whatever the transaction says. A transaction keeps
+     * the connection it opened first, so this must wrap the transaction's first statement.
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        if (isPinnedToPrimary()) {
+            return read.get();
+        }
+        PINNED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            PINNED.remove();
+        }
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    Target target() {
+        if (isPinnedToPrimary()) {
+            return Target.PRIMARY;
+        }
+        return routesToReplica(TransactionSynchronizationManager.getCurrentTransactionName(),
+                TransactionSynchronizationManager.isCurrentTransactionReadOnly(), replicaTransactionPrefix) ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    static boolean routesToReplica(String transactionName, boolean readOnly, String replicaTransactionPrefix) {
+        return readOnly && transactionName != null && transactionName.startsWith(replicaTransactionPrefix);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closeIfPossible(replica);
+        } finally {
+            closeIfPossible(primary);
+        }
+    }
+
+    private static void closeIfPossible(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -1,14 +1,25 @@
 package com.obs.purchase.controller;
 import com.obs.purchase.entity.Inventory;
+import com.obs.purchase.entity.dto.CacheStatistics;
 import com.obs.purchase.entity.dto.GenericResponse;
+import com.obs.purchase.entity.dto.StockAlert;
+import com.obs.purchase.entity.dto.StockAsOf;
+import com.obs.purchase.service.EntityCacheStatistics;
 import com.obs.purchase.service.InventoryService;
+import com.obs.purchase.service.InventorySnapshotService;
+import com.obs.purchase.service.QueueStockAlertSink;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/inventories")
 public class InventoryController {
@@ -16,23 +27,60 @@ public class InventoryController {
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private InventorySnapshotService inventorySnapshotService;
+
+    @Autowired
+    private QueueStockAlertSink queueStockAlertSink;
+
+    @Autowired
+    private EntityCacheStatistics entityCacheStatistics;
+
     @PostMapping
     public ResponseEntity<GenericResponse<Inventory>> createInventory(@RequestBody @Valid Inventory inventory) {
         Inventory savedInventory = inventoryService.save(inventory);
         return new ResponseEntity<>(new GenericResponse<>("Inventory created successfully", savedInventory), HttpStatus.CREATED);
     }
 
+    @PostMapping("/snapshots/rebuild")
+    public ResponseEntity<GenericResponse<Integer>> rebuildSnapshots() {
+        int items = inventorySnapshotService.rebuild();
+        return new ResponseEntity<>(new GenericResponse<>("Inventory snapshots rebuilt", items), HttpStatus.OK);
+    }
+
+    @GetMapping("/alerts")
+    public ResponseEntity<GenericResponse<List<StockAlert>>> drainAlerts(@RequestParam(defaultValue = "100") int max) {
+        List<StockAlert> alerts = queueStockAlertSink.drain(max);
+        return new ResponseEntity<>(new GenericResponse<>("Stock alerts retrieved successfully", alerts), HttpStatus.OK);
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<GenericResponse<Map<String, CacheStatistics>>> getCacheStatistics() {
+        Map<String, CacheStatistics> statistics = Map.of("entity", entityCacheStatistics.region("inventory"));
+        return new ResponseEntity<>(new GenericResponse<>("Inventory cache statistics retrieved successfully", statistics), HttpStatus.OK);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<GenericResponse<Inventory>> getInventoryById(@PathVariable Long id) {
         Inventory inventory = inventoryService.findById(id);
         return new ResponseEntity<>(new GenericResponse<>("Inventory retrieved successfully", inventory), HttpStatus.OK);
     }
 
+    @GetMapping("/{itemId}/as-of")
+    public ResponseEntity<GenericResponse<StockAsOf>> getStockAsOf(@PathVariable long itemId,
+                                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant ts) {
+        StockAsOf stock = inventorySnapshotService.stockAsOf(itemId, ts);
+        return new ResponseEntity<>(new GenericResponse<>("Stock retrieved successfully", stock), HttpStatus.OK);
+    }
+
     @GetMapping
-    public ResponseEntity<GenericResponse<Page<Inventory>>> getAllInventories(
+    public ResponseEntity<GenericResponse<Slice<Inventory>>> getAllInventories(
             @RequestParam(defaultValue = "0") int pageNo,
-            @RequestParam (defaultValue = "10") int pageSize) {
-        Page<Inventory> inventories = inventoryService.findAll(pageNo, pageSize);
+            @RequestParam (defaultValue = "10") int pageSize,
+            @RequestParam(required = false) Long afterId) {
+        Slice<Inventory> inventories = afterId == null
+                ? inventoryService.findAll(pageNo, pageSize)
+                : inventoryService.findAllAfter(afterId, pageSize);
         return new ResponseEntity<>(new GenericResponse<>("All inventories retrieved successfully", inventories), HttpStatus.OK);
     }
 
@@ -1,13 +1,23 @@
 package com.obs.purchase.controller;
 import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.entity.StockHold;
 import com.obs.purchase.entity.dto.GenericResponse;
+import com.obs.purchase.enums.ExportFormat;
+import com.obs.purchase.exceptions.InvalidRequest;
+import com.obs.purchase.service.IdempotencyService;
 import com.obs.purchase.service.InventoryTransactionService;
+import com.obs.purchase.service.StockHoldService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.time.Instant;
 
 @RestController
 @RequestMapping("/inventory-transaction")
@@ -15,10 +25,62 @@ public class InventoryTransactionController {
     @Autowired
     private InventoryTransactionService inventoryTransactionService;
 
+    @Autowired
+    private StockHoldService stockHoldService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @PostMapping
-    public ResponseEntity<GenericResponse<InventoryTransaction>> createItem(@RequestBody @Valid InventoryTransaction inventoryTransaction) {
-        InventoryTransaction savedInventoryTransaction = inventoryTransactionService.save(inventoryTransaction);
-        return new ResponseEntity<>(new GenericResponse<>("Transaction created successfully", savedInventoryTransaction), HttpStatus.CREATED);
+    public ResponseEntity<GenericResponse<?>> createItem(@RequestBody @Valid InventoryTransaction inventoryTransaction,
+                                                        @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.execute("inventory-transaction", idempotencyKey,
+                inventoryTransaction.getItemId() + ":" + inventoryTransaction.getQty() + ":" + inventoryTransaction.getType(), () -> {
+            InventoryTransaction savedInventoryTransaction = inventoryTransactionService.save(inventoryTransaction);
+            return new ResponseEntity<>(new GenericResponse<>("Transaction created successfully", savedInventoryTransaction), HttpStatus.CREATED);
+        });
+    }
+
+    @PostMapping("/holds")
+    public ResponseEntity<GenericResponse<StockHold>> createHold(@RequestBody @Valid StockHold stockHold,
+                                                                 @RequestParam(required = false) Duration ttl) {
+        StockHold savedHold = stockHoldService.hold(stockHold.getItemId(), stockHold.getQty(), ttl);
+        return new ResponseEntity<>(new GenericResponse<>("Stock held successfully", savedHold), HttpStatus.CREATED);
+    }
+
+    @GetMapping("/holds/{holdNo}")
+    public ResponseEntity<GenericResponse<StockHold>> getHold(@PathVariable String holdNo) {
+        StockHold stockHold = stockHoldService.findByHoldNo(holdNo);
+        return new ResponseEntity<>(new GenericResponse<>("Hold retrieved successfully", stockHold), HttpStatus.OK);
+    }
+
+    @PostMapping("/holds/{holdNo}/confirm")
+    public ResponseEntity<GenericResponse<InventoryTransaction>> confirmHold(@PathVariable String holdNo) {
+        InventoryTransaction withdrawal = stockHoldService.confirm(holdNo);
+        return new ResponseEntity<>(new GenericResponse<>("Hold confirmed successfully", withdrawal), HttpStatus.CREATED);
+    }
+
+    @DeleteMapping("/holds/{holdNo}")
+    public ResponseEntity<GenericResponse<StockHold>> releaseHold(@PathVariable String holdNo) {
+        StockHold stockHold = stockHoldService.release(holdNo);
+        return new ResponseEntity<>(new GenericResponse<>("Hold released successfully", stockHold), HttpStatus.OK);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@RequestParam(defaultValue = "ndjson") String format,
+                                                                    @RequestParam(required = false) Long itemId,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequest("invalid request", "format must be either 'ndjson' or 'csv'");
+        }
+        StreamingResponseBody body = outputStream -> inventoryTransactionService.export(itemId, from, to, exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .body(body);
     }
 
     @GetMapping("/{id}")
@@ -29,9 +91,12 @@ public class InventoryTransactionController {
 
 
     @GetMapping
-    public ResponseEntity<GenericResponse<Page<InventoryTransaction>>> getAllItems(@RequestParam(defaultValue = "0") int pageNo,
-                                                                   @RequestParam(defaultValue = "10") int pageSize) {
-        Page<InventoryTransaction> inventoryTransactions = inventoryTransactionService.findAll(pageNo,pageSize);
+    public ResponseEntity<GenericResponse<Slice<InventoryTransaction>>> getAllItems(@RequestParam(defaultValue = "0") int pageNo,
+                                                                   @RequestParam(defaultValue = "10") int pageSize,
+                                                                   @RequestParam(required = false) Long afterId) {
+        Slice<InventoryTransaction> inventoryTransactions = afterId == null
+                ? inventoryTransactionService.findAll(pageNo, pageSize)
+                : inventoryTransactionService.findAllAfter(afterId, pageSize);
         return new ResponseEntity<>(new GenericResponse<>("All transaction retrieved successfully", inventoryTransactions), HttpStatus.OK);
     }
 
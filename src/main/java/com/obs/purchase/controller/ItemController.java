@@ -1,14 +1,19 @@
 package com.obs.purchase.controller;
 import com.obs.purchase.entity.Item;
+import com.obs.purchase.entity.dto.CacheStatistics;
 import com.obs.purchase.entity.dto.GenericResponse;
+import com.obs.purchase.service.EntityCacheStatistics;
+import com.obs.purchase.service.ItemCatalogCache;
 import com.obs.purchase.service.ItemService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 
 @RestController
 @RequestMapping("/items")
@@ -16,12 +21,26 @@ public class ItemController {
     @Autowired
     private ItemService itemService;
 
+    @Autowired
+    private ItemCatalogCache itemCatalogCache;
+
+    @Autowired
+    private EntityCacheStatistics entityCacheStatistics;
+
     @PostMapping
     public ResponseEntity<GenericResponse<Item>> createItem(@RequestBody @Valid Item item) {
         Item savedItem = itemService.save(item);
         return new ResponseEntity<>(new GenericResponse<>("Item created successfully", savedItem), HttpStatus.CREATED);
     }
 
+    @GetMapping("/cache-stats")
+    public ResponseEntity<GenericResponse<Map<String, CacheStatistics>>> getCacheStatistics() {
+        Map<String, CacheStatistics> statistics = Map.of(
+                "byId", itemCatalogCache.byIdStatistics(),
+                "entity", entityCacheStatistics.region("item"));
+        return new ResponseEntity<>(new GenericResponse<>("Item cache statistics retrieved successfully", statistics), HttpStatus.OK);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<GenericResponse<Item>> getItemById(@PathVariable Long id) {
         Item item = itemService.findById(id);
@@ -30,9 +49,12 @@ public class ItemController {
 
 
     @GetMapping
-    public ResponseEntity<GenericResponse<Page<Item>>> getAllItems(@RequestParam(defaultValue = "0") int pageNo,
-                                                                   @RequestParam(defaultValue = "10") int pageSize) {
-        Page<Item> items = itemService.findAll(pageNo,pageSize);
+    public ResponseEntity<GenericResponse<Slice<Item>>> getAllItems(@RequestParam(defaultValue = "0") int pageNo,
+                                                                   @RequestParam(defaultValue = "10") int pageSize,
+                                                                   @RequestParam(required = false) Long afterId) {
+        Slice<Item> items = afterId == null
+                ? itemService.findAll(pageNo, pageSize)
+                : itemService.findAllAfter(afterId, pageSize);
         return new ResponseEntity<>(new GenericResponse<>("All items retrieved successfully", items), HttpStatus.OK);
     }
 
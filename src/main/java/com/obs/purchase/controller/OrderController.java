@@ -1,15 +1,31 @@
 package com.obs.purchase.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.obs.purchase.entity.Order;
+import com.obs.purchase.entity.dto.BatchOrderResult;
+import com.obs.purchase.entity.dto.CartCheckout;
 import com.obs.purchase.entity.dto.GenericResponse;
+import com.obs.purchase.entity.dto.OrderStatus;
+import com.obs.purchase.exceptions.InvalidRequest;
+import com.obs.purchase.service.AsyncOrderService;
+import com.obs.purchase.service.IdempotencyService;
 import com.obs.purchase.service.OrderService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
 @RestController
 @RequestMapping("/orders")
 public class OrderController {
@@ -17,10 +33,64 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private AsyncOrderService asyncOrderService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${purchase.order.batch.max-size:10000}")
+    private int maxBatchSize = 10000;
+
     @PostMapping
-    public ResponseEntity<GenericResponse<Order>> createOrder(@RequestBody @Valid Order order) {
-        Order savedOrder = orderService.save(order);
-        return new ResponseEntity<>(new GenericResponse<>("Order created successfully", savedOrder), HttpStatus.CREATED);
+    public ResponseEntity<GenericResponse<?>> createOrder(@RequestBody @Valid Order order,
+                                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.execute("orders", idempotencyKey, order.getItemId() + ":" + order.getQty(), () -> {
+            if (asyncOrderService.isEnabled()) {
+                OrderStatus status = asyncOrderService.accept(order);
+                return new ResponseEntity<>(new GenericResponse<>("Order accepted", status), HttpStatus.ACCEPTED);
+            }
+            Order savedOrder = orderService.save(order);
+            return new ResponseEntity<>(new GenericResponse<>("Order created successfully", savedOrder), HttpStatus.CREATED);
+        });
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<GenericResponse<List<BatchOrderResult>>> createOrders(@RequestBody List<Order> orders) {
+        List<BatchOrderResult> results = orderService.saveBatch(orders);
+        return new ResponseEntity<>(new GenericResponse<>("Batch orders processed", results), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<GenericResponse<List<BatchOrderResult>>> createOrdersFromStream(InputStream body) throws IOException {
+        List<Order> orders = new ArrayList<>();
+        try (MappingIterator<Order> lines = objectMapper.readerFor(Order.class).readValues(body)) {
+            // stop reading at the first line past the limit instead of buffering the whole body
+            while (lines.hasNextValue()) {
+                if (orders.size() == maxBatchSize) {
+                    throw new InvalidRequest("invalid request", "batch exceeds " + maxBatchSize + " orders");
+                }
+                orders.add(lines.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidRequest("invalid request", "malformed order line: " + e.getOriginalMessage());
+        }
+        return createOrders(orders);
+    }
+
+    @PostMapping(value = "/cart", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<GenericResponse<CartCheckout>> checkoutCart(@RequestBody List<Order> lines) {
+        CartCheckout checkout = orderService.checkout(lines);
+        return new ResponseEntity<>(new GenericResponse<>("Cart checked out successfully", checkout), HttpStatus.CREATED);
+    }
+
+    @GetMapping("/status/{orderNo}")
+    public ResponseEntity<GenericResponse<OrderStatus>> getOrderStatus(@PathVariable String orderNo) {
+        OrderStatus status = asyncOrderService.status(orderNo);
+        return new ResponseEntity<>(new GenericResponse<>("Order status retrieved successfully", status), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
@@ -30,10 +100,13 @@ public class OrderController {
     }
 
     @GetMapping
-    public ResponseEntity<GenericResponse<Page<Order>>> getAllOrders(
+    public ResponseEntity<GenericResponse<Slice<Order>>> getAllOrders(
             @RequestParam(defaultValue = "0") int pageNo,
-            @RequestParam(defaultValue = "10") int pageSize) {
-        Page<Order> orders = orderService.findAll(pageNo, pageSize);
+            @RequestParam(defaultValue = "10") int pageSize,
+            @RequestParam(required = false) Long afterId) {
+        Slice<Order> orders = afterId == null
+                ? orderService.findAll(pageNo, pageSize)
+                : orderService.findAllAfter(afterId, pageSize);
         return new ResponseEntity<>(new GenericResponse<>("All orders retrieved successfully", orders), HttpStatus.OK);
     }
 
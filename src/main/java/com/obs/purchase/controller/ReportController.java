@@ -0,0 +1,46 @@
+package com.obs.purchase.controller;
+
+import com.obs.purchase.entity.dto.GenericResponse;
+import com.obs.purchase.entity.dto.SalesBucket;
+import com.obs.purchase.entity.dto.TopItem;
+import com.obs.purchase.enums.RollupGranularity;
+import com.obs.purchase.service.SalesRollupService;
+import com.obs.purchase.service.TopItemsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/reports")
+public class ReportController {
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private TopItemsService topItemsService;
+
+    @GetMapping("/sales")
+    public ResponseEntity<GenericResponse<List<SalesBucket>>> getSales(
+            @RequestParam(defaultValue = "HOUR") RollupGranularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) Long itemId) {
+        List<SalesBucket> sales = salesRollupService.sales(granularity, from, to, itemId);
+        return new ResponseEntity<>(new GenericResponse<>("Sales retrieved successfully", sales), HttpStatus.OK);
+    }
+
+    @GetMapping("/top-items")
+    public ResponseEntity<GenericResponse<List<TopItem>>> getTopItems(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "PT1H") Duration window) {
+        List<TopItem> topItems = topItemsService.topItems(limit, window);
+        return new ResponseEntity<>(new GenericResponse<>("Top items retrieved successfully", topItems), HttpStatus.OK);
+    }
+}
@@ -2,17 +2,29 @@ package com.obs.purchase.entity;
 
 import com.obs.purchase.repository.BaseRepository;
 import jakarta.annotation.Nullable;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "inventory")
 public class Inventory extends BaseEntity {
     @Column(nullable = false)
     private long itemId;
     private Integer stock;
+    private Integer reorderLevel;
+    // units under active stock holds, only ever changed by the InventoryRepository hold queries
+    @Column(insertable = false, updatable = false)
+    private int reserved;
+    @Version
+    private Long version;
 
     public long getItemId() {
         return itemId;
@@ -30,6 +42,30 @@ public class Inventory extends BaseEntity {
         this.stock = stock;
     }
 
+    public Integer getReorderLevel() {
+        return reorderLevel;
+    }
+
+    public void setReorderLevel(Integer reorderLevel) {
+        this.reorderLevel = reorderLevel;
+    }
+
+    public int getReserved() {
+        return reserved;
+    }
+
+    public void setReserved(int reserved) {
+        this.reserved = reserved;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Inventory() {
     }
 
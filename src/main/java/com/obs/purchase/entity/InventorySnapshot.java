@@ -0,0 +1,66 @@
+package com.obs.purchase.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+
+import java.time.Instant;
+
+/**
+ * Stock of an item as folded from every inventory transaction created before asOf.
+ */
+@Entity
+public class InventorySnapshot extends BaseEntity {
+    @Column(nullable = false)
+    private long itemId;
+
+    @Column(nullable = false)
+    private int stock;
+
+    @Column(nullable = false)
+    private Instant asOf;
+
+    @Column(nullable = false)
+    private int transactionCount;
+
+    public InventorySnapshot() {
+    }
+
+    public InventorySnapshot(long itemId, int stock, Instant asOf, int transactionCount) {
+        this.itemId = itemId;
+        this.stock = stock;
+        this.asOf = asOf;
+        this.transactionCount = transactionCount;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public void setStock(int stock) {
+        this.stock = stock;
+    }
+
+    public Instant getAsOf() {
+        return asOf;
+    }
+
+    public void setAsOf(Instant asOf) {
+        this.asOf = asOf;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(int transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+}
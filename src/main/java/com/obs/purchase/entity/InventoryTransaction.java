@@ -1,5 +1,7 @@
 package com.obs.purchase.entity;
 import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -23,6 +25,11 @@ public class InventoryTransaction extends BaseEntity {
     @Pattern(regexp = "^[TW]$", message = "Type must be either 'T' for Top Up or 'W' for Withdrawal")
     private String type;
 
+    // set only by InventorySnapshotService when a round folds the row
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private Long snapshotRound;
+
     public InventoryTransaction() {
     }
 
@@ -55,4 +62,8 @@ public class InventoryTransaction extends BaseEntity {
     public void setType(String type) {
         this.type = type;
     }
+
+    public Long getSnapshotRound() {
+        return snapshotRound;
+    }
 }
@@ -14,6 +14,7 @@ public class Order extends BaseEntity{
 
     private Integer qty;
     private Integer price;
+    private String cartNo;
 
     public Integer getQty() {
         return qty;
@@ -60,4 +61,12 @@ public class Order extends BaseEntity{
     public void setPrice(Integer price) {
         this.price = price;
     }
+
+    public String getCartNo() {
+        return cartNo;
+    }
+
+    public void setCartNo(String cartNo) {
+        this.cartNo = cartNo;
+    }
 }
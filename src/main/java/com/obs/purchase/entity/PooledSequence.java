@@ -0,0 +1,21 @@
+package com.obs.purchase.entity;
+
+import com.obs.purchase.config.PooledSequenceGenerator;
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Pooled per-entity sequence ({@code <table>_seq}) whose allocation size is read from
+ * {@code purchase.id.allocation-size}, or {@code purchase.id.allocation-size.<table>} for one table.
+ */
+@IdGeneratorType(PooledSequenceGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface PooledSequence {
+}
@@ -0,0 +1,88 @@
+package com.obs.purchase.entity;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.obs.purchase.enums.HoldState;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.time.Instant;
+
+/**
+ * Stock of an item taken out of what is available until the hold is confirmed into a
+ * withdrawal, released, or expires at expiresAt.
+ */
+@Entity
+public class StockHold extends BaseEntity {
+    private String holdNo;
+
+    @NotNull
+    @JsonAlias("item_id")
+    @Positive
+    private long itemId;
+
+    @NotNull
+    @Positive
+    private int qty;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private HoldState state;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    public StockHold() {
+    }
+
+    public StockHold(String holdNo, long itemId, int qty, Instant expiresAt) {
+        this.holdNo = holdNo;
+        this.itemId = itemId;
+        this.qty = qty;
+        this.state = HoldState.HELD;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getHoldNo() {
+        return holdNo;
+    }
+
+    public void setHoldNo(String holdNo) {
+        this.holdNo = holdNo;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public int getQty() {
+        return qty;
+    }
+
+    public void setQty(int qty) {
+        this.qty = qty;
+    }
+
+    public HoldState getState() {
+        return state;
+    }
+
+    public void setState(HoldState state) {
+        this.state = state;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,61 @@
+package com.obs.purchase.entity.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchOrderResult {
+    private int line;
+    private boolean success;
+    private String orderNo;
+    private String error;
+
+    public BatchOrderResult() {
+    }
+
+    public BatchOrderResult(int line, boolean success, String orderNo, String error) {
+        this.line = line;
+        this.success = success;
+        this.orderNo = orderNo;
+        this.error = error;
+    }
+
+    public static BatchOrderResult accepted(int line, String orderNo) {
+        return new BatchOrderResult(line, true, orderNo, null);
+    }
+
+    public static BatchOrderResult rejected(int line, String error) {
+        return new BatchOrderResult(line, false, null, error);
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getOrderNo() {
+        return orderNo;
+    }
+
+    public void setOrderNo(String orderNo) {
+        this.orderNo = orderNo;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,47 @@
+package com.obs.purchase.entity.dto;
+
+import com.obs.purchase.entity.Order;
+
+import java.util.List;
+
+/**
+ * The orders of one cart, placed together: either every line was taken or none was.
+ */
+public class CartCheckout {
+    private String cartNo;
+    private List<Order> orders;
+    private long total;
+
+    public CartCheckout() {
+    }
+
+    public CartCheckout(String cartNo, List<Order> orders, long total) {
+        this.cartNo = cartNo;
+        this.orders = orders;
+        this.total = total;
+    }
+
+    public String getCartNo() {
+        return cartNo;
+    }
+
+    public void setCartNo(String cartNo) {
+        this.cartNo = cartNo;
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    public void setOrders(List<Order> orders) {
+        this.orders = orders;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+}
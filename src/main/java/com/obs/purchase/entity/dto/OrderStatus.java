@@ -0,0 +1,66 @@
+package com.obs.purchase.entity.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.obs.purchase.enums.OrderState;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderStatus {
+    private String orderNo;
+    private OrderState state;
+    private Long orderId;
+    private String error;
+
+    public OrderStatus() {
+    }
+
+    public OrderStatus(String orderNo, OrderState state, Long orderId, String error) {
+        this.orderNo = orderNo;
+        this.state = state;
+        this.orderId = orderId;
+        this.error = error;
+    }
+
+    public static OrderStatus accepted(String orderNo) {
+        return new OrderStatus(orderNo, OrderState.ACCEPTED, null, null);
+    }
+
+    public static OrderStatus completed(String orderNo, long orderId) {
+        return new OrderStatus(orderNo, OrderState.COMPLETED, orderId, null);
+    }
+
+    public static OrderStatus failed(String orderNo, String error) {
+        return new OrderStatus(orderNo, OrderState.FAILED, null, error);
+    }
+
+    public String getOrderNo() {
+        return orderNo;
+    }
+
+    public void setOrderNo(String orderNo) {
+        this.orderNo = orderNo;
+    }
+
+    public OrderState getState() {
+        return state;
+    }
+
+    public void setState(OrderState state) {
+        this.state = state;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,65 @@
+package com.obs.purchase.entity.dto;
+
+import java.time.Instant;
+
+/**
+ * An order accepted in async mode, as written to the order write-ahead log.
+ */
+public class QueuedOrder {
+    private String orderNo;
+    private long itemId;
+    private int qty;
+    private int price;
+    private Instant acceptedAt;
+
+    public QueuedOrder() {
+    }
+
+    public QueuedOrder(String orderNo, long itemId, int qty, int price, Instant acceptedAt) {
+        this.orderNo = orderNo;
+        this.itemId = itemId;
+        this.qty = qty;
+        this.price = price;
+        this.acceptedAt = acceptedAt;
+    }
+
+    public String getOrderNo() {
+        return orderNo;
+    }
+
+    public void setOrderNo(String orderNo) {
+        this.orderNo = orderNo;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public int getQty() {
+        return qty;
+    }
+
+    public void setQty(int qty) {
+        this.qty = qty;
+    }
+
+    public int getPrice() {
+        return price;
+    }
+
+    public void setPrice(int price) {
+        this.price = price;
+    }
+
+    public Instant getAcceptedAt() {
+        return acceptedAt;
+    }
+
+    public void setAcceptedAt(Instant acceptedAt) {
+        this.acceptedAt = acceptedAt;
+    }
+}
@@ -0,0 +1,65 @@
+package com.obs.purchase.entity.dto;
+
+import java.time.Instant;
+
+/**
+ * Orders, units and revenue of one item within one report bucket.
+ */
+public class SalesBucket {
+    private long itemId;
+    private Instant bucketStart;
+    private long orders;
+    private long units;
+    private long revenue;
+
+    public SalesBucket() {
+    }
+
+    public SalesBucket(long itemId, Instant bucketStart, long orders, long units, long revenue) {
+        this.itemId = itemId;
+        this.bucketStart = bucketStart;
+        this.orders = orders;
+        this.units = units;
+        this.revenue = revenue;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(Instant bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getOrders() {
+        return orders;
+    }
+
+    public void setOrders(long orders) {
+        this.orders = orders;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public void setUnits(long units) {
+        this.units = units;
+    }
+
+    public long getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(long revenue) {
+        this.revenue = revenue;
+    }
+}
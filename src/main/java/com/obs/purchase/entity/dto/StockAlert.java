@@ -0,0 +1,64 @@
+package com.obs.purchase.entity.dto;
+
+import com.obs.purchase.enums.StockAlertKind;
+
+import java.time.Instant;
+
+public class StockAlert {
+    private long itemId;
+    private StockAlertKind kind;
+    private int stock;
+    private int reorderLevel;
+    private Instant raisedAt;
+
+    public StockAlert() {
+    }
+
+    public StockAlert(long itemId, StockAlertKind kind, int stock, int reorderLevel, Instant raisedAt) {
+        this.itemId = itemId;
+        this.kind = kind;
+        this.stock = stock;
+        this.reorderLevel = reorderLevel;
+        this.raisedAt = raisedAt;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public StockAlertKind getKind() {
+        return kind;
+    }
+
+    public void setKind(StockAlertKind kind) {
+        this.kind = kind;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public void setStock(int stock) {
+        this.stock = stock;
+    }
+
+    public int getReorderLevel() {
+        return reorderLevel;
+    }
+
+    public void setReorderLevel(int reorderLevel) {
+        this.reorderLevel = reorderLevel;
+    }
+
+    public Instant getRaisedAt() {
+        return raisedAt;
+    }
+
+    public void setRaisedAt(Instant raisedAt) {
+        this.raisedAt = raisedAt;
+    }
+}
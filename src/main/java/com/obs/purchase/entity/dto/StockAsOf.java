@@ -0,0 +1,55 @@
+package com.obs.purchase.entity.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StockAsOf {
+    private long itemId;
+    private Instant asOf;
+    private int stock;
+    private Instant checkpointAsOf;
+
+    public StockAsOf() {
+    }
+
+    public StockAsOf(long itemId, Instant asOf, int stock, Instant checkpointAsOf) {
+        this.itemId = itemId;
+        this.asOf = asOf;
+        this.stock = stock;
+        this.checkpointAsOf = checkpointAsOf;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public Instant getAsOf() {
+        return asOf;
+    }
+
+    public void setAsOf(Instant asOf) {
+        this.asOf = asOf;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public void setStock(int stock) {
+        this.stock = stock;
+    }
+
+    public Instant getCheckpointAsOf() {
+        return checkpointAsOf;
+    }
+
+    public void setCheckpointAsOf(Instant checkpointAsOf) {
+        this.checkpointAsOf = checkpointAsOf;
+    }
+}
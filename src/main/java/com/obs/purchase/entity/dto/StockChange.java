@@ -0,0 +1,71 @@
+package com.obs.purchase.entity.dto;
+
+import java.time.Instant;
+
+/**
+ * Net stock movement of one item over a range of inventory transactions:
+ * top-ups minus withdrawals, how many transactions that took, and when the first and last
+ * of them were created.
+ */
+public class StockChange {
+    private long itemId;
+    private long delta;
+    private long count;
+    private Instant firstCreatedAt;
+    private Instant lastCreatedAt;
+
+    public StockChange() {
+    }
+
+    public StockChange(long itemId, long delta, long count) {
+        this.itemId = itemId;
+        this.delta = delta;
+        this.count = count;
+    }
+
+    public StockChange(long itemId, long delta, long count, Instant firstCreatedAt, Instant lastCreatedAt) {
+        this(itemId, delta, count);
+        this.firstCreatedAt = firstCreatedAt;
+        this.lastCreatedAt = lastCreatedAt;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public long getDelta() {
+        return delta;
+    }
+
+    public void setDelta(long delta) {
+        this.delta = delta;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Instant getFirstCreatedAt() {
+        return firstCreatedAt;
+    }
+
+    public void setFirstCreatedAt(Instant firstCreatedAt) {
+        this.firstCreatedAt = firstCreatedAt;
+    }
+
+    public Instant getLastCreatedAt() {
+        return lastCreatedAt;
+    }
+
+    public void setLastCreatedAt(Instant lastCreatedAt) {
+        this.lastCreatedAt = lastCreatedAt;
+    }
+}
@@ -0,0 +1,45 @@
+package com.obs.purchase.entity.dto;
+
+import java.time.Instant;
+
+/**
+ * One inventory transaction reduced to its signed effect on stock.
+ */
+public class StockMovement {
+    private long itemId;
+    private Instant createdAt;
+    private int delta;
+
+    public StockMovement() {
+    }
+
+    public StockMovement(long itemId, Instant createdAt, int delta) {
+        this.itemId = itemId;
+        this.createdAt = createdAt;
+        this.delta = delta;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+
+    public void setDelta(int delta) {
+        this.delta = delta;
+    }
+}
@@ -0,0 +1,44 @@
+package com.obs.purchase.entity.dto;
+
+/**
+ * Estimated units sold of an item over a report window. The true figure is at most
+ * units and at least units minus error.
+ */
+public class TopItem {
+    private long itemId;
+    private long units;
+    private long error;
+
+    public TopItem() {
+    }
+
+    public TopItem(long itemId, long units, long error) {
+        this.itemId = itemId;
+        this.units = units;
+        this.error = error;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public void setUnits(long units) {
+        this.units = units;
+    }
+
+    public long getError() {
+        return error;
+    }
+
+    public void setError(long error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,8 @@
+package com.obs.purchase.enums;
+
+public enum HoldState {
+    HELD,
+    CONFIRMED,
+    RELEASED,
+    EXPIRED
+}
@@ -0,0 +1,7 @@
+package com.obs.purchase.enums;
+
+public enum OrderState {
+    ACCEPTED,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,27 @@
+package com.obs.purchase.enums;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /** Start of the UTC bucket the instant falls in. */
+    public Instant bucketStart(Instant instant) {
+        return instant.truncatedTo(unit);
+    }
+
+    /** Number of buckets that start in [bucketStart(from), to). */
+    public long bucketsBetween(Instant from, Instant to) {
+        Instant last = bucketStart(to);
+        return unit.between(bucketStart(from), last) + (last.equals(to) ? 0 : 1);
+    }
+}
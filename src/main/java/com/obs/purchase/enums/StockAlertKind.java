@@ -0,0 +1,7 @@
+package com.obs.purchase.enums;
+
+public enum StockAlertKind {
+    LOW_STOCK,
+    OUT_OF_STOCK,
+    RESTOCKED
+}
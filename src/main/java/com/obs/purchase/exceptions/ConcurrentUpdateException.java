@@ -0,0 +1,9 @@
+package com.obs.purchase.exceptions;
+
+public class ConcurrentUpdateException extends GenericException
+{
+
+    public ConcurrentUpdateException(String message, String specificCause) {
+        super(message, specificCause);
+    }
+}
@@ -1,6 +1,8 @@
 package com.obs.purchase.repository;
 
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.NoRepositoryBean;
 
@@ -13,4 +15,6 @@ public interface BaseRepository <T> extends JpaRepository<T, Long> {
 
 
     T findExistingRecordById(long id);
+
+    Slice<T> findByIdGreaterThanOrderByIdAsc(long afterId, Pageable pageable);
 }
@@ -0,0 +1,31 @@
+package com.obs.purchase.repository;
+
+import com.obs.purchase.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    IdempotencyRecord findByIdempotencyKey(String idempotencyKey);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE IdempotencyRecord r SET r.status = ?2, r.response = ?3, r.expiresAt = ?4 WHERE r.id = ?1 AND r.status = 0")
+    int complete(long id, int status, String response, Instant expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM IdempotencyRecord r WHERE r.id = ?1 AND r.status = 0")
+    int deleteClaim(long id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM IdempotencyRecord r WHERE r.expiresAt < ?1")
+    int deleteExpired(Instant now);
+}
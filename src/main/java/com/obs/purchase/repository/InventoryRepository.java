@@ -2,11 +2,19 @@ package com.obs.purchase.repository;
 
 import com.obs.purchase.entity.Inventory;
 import com.obs.purchase.entity.Item;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
+// the native writes name their table, so they only empty the inventory cache region, not every region
 @Repository
 public interface InventoryRepository extends BaseRepository<Inventory>{
     @Query(value = "SELECT i FROM Inventory i where i.deletedAt IS NULL")
@@ -17,4 +25,81 @@ public interface InventoryRepository extends BaseRepository<Inventory>{
     Inventory findExistingRecordById(long id);
 
     Inventory findByItemId(long itemId);
+
+    List<Inventory> findByItemIdIn(Collection<Long> itemIds);
+
+    boolean existsByItemId(long itemId);
+
+    @Query(value = "SELECT i.itemId FROM Inventory i where i.deletedAt IS NOT NULL")
+    List<Long> findDeletedItemIds();
+
+    @Query(value = "SELECT i.stock FROM Inventory i where i.itemId = ?1")
+    Integer findStockByItemId(long itemId);
+
+    /**
+     * Takes qty off the item's stock only if enough is left; returns 0 when the row is
+     * missing or the stock would go negative.
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "inventory"))
+    @Query(value = "UPDATE inventory SET stock = stock - :qty, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE item_id = :itemId AND stock >= :qty", nativeQuery = true)
+    int withdrawStock(@Param("itemId") long itemId, @Param("qty") int qty);
+
+    /**
+     * Takes qty off the item's stock without checking what is left, for withdrawals the stock
+     * ledger has already reserved.
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "inventory"))
+    @Query(value = "UPDATE inventory SET stock = stock - :qty, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE item_id = :itemId", nativeQuery = true)
+    int takeStock(@Param("itemId") long itemId, @Param("qty") int qty);
+
+    /**
+     * Moves qty from the item's available stock to its reserved stock, only if enough is
+     * available; returns 0 when the row is missing or the stock would go negative.
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "inventory"))
+    @Query(value = "UPDATE inventory SET stock = stock - :qty, reserved = reserved + :qty, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE item_id = :itemId AND stock >= :qty", nativeQuery = true)
+    int holdStock(@Param("itemId") long itemId, @Param("qty") int qty);
+
+    /**
+     * Moves qty of the item's reserved stock back to its available stock.
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "inventory"))
+    @Query(value = "UPDATE inventory SET stock = stock + :qty, reserved = reserved - :qty, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE item_id = :itemId", nativeQuery = true)
+    int releaseHeldStock(@Param("itemId") long itemId, @Param("qty") int qty);
+
+    /**
+     * Changes only the reserved count, for holds whose available side is kept by the stock ledger
+     * or has already been taken. The version is left alone since entity writes never touch reserved.
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "inventory"))
+    @Query(value = "UPDATE inventory SET reserved = reserved + :delta, updated_at = CURRENT_TIMESTAMP WHERE item_id = :itemId", nativeQuery = true)
+    int changeReserved(@Param("itemId") long itemId, @Param("delta") int delta);
+
+    /**
+     * Adds qty to the item's stock, creating the inventory row on the first top-up.
+     * The new row takes a whole value from the pooled sequence, which Hibernate never hands out.
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "inventory"))
+    @Query(value = "MERGE INTO inventory i USING (VALUES (CAST(:itemId AS BIGINT), CAST(:qty AS INTEGER))) AS s(item_id, qty) " +
+            "ON i.item_id = s.item_id " +
+            "WHEN MATCHED THEN UPDATE SET stock = i.stock + s.qty, version = i.version + 1, updated_at = CURRENT_TIMESTAMP " +
+            "WHEN NOT MATCHED THEN INSERT (id, item_id, stock, version, created_at, updated_at) " +
+            "VALUES (NEXT VALUE FOR inventory_seq, s.item_id, s.qty, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int topUpStock(@Param("itemId") long itemId, @Param("qty") int qty);
 }
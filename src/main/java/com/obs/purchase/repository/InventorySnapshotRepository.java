@@ -0,0 +1,41 @@
+package com.obs.purchase.repository;
+
+import com.obs.purchase.entity.InventorySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface InventorySnapshotRepository extends JpaRepository<InventorySnapshot, Long> {
+
+    @Query(value = "SELECT NEXT VALUE FOR inventory_snapshot_round_seq", nativeQuery = true)
+    long nextRound();
+
+    @Query(value = "SELECT s FROM InventorySnapshot s WHERE s.asOf = " +
+            "(SELECT MAX(l.asOf) FROM InventorySnapshot l WHERE l.itemId = s.itemId)")
+    List<InventorySnapshot> findLatest();
+
+    @Query(value = "SELECT s FROM InventorySnapshot s WHERE s.itemId IN ?1 AND s.asOf = " +
+            "(SELECT MAX(l.asOf) FROM InventorySnapshot l WHERE l.itemId = s.itemId)")
+    List<InventorySnapshot> findLatestByItemIdIn(Collection<Long> itemIds);
+
+    InventorySnapshot findTopByItemIdAndAsOfLessThanEqualOrderByAsOfDesc(long itemId, Instant asOf);
+
+    /**
+     * Adds a transaction that was folded late to the item's checkpoints from createdAt up
+     * to, not including, the latest snapshot, which the caller updates itself.
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query(value = "UPDATE InventorySnapshot s SET s.stock = s.stock + :delta " +
+            "WHERE s.itemId = :itemId AND s.asOf >= :createdAt AND s.asOf < :latestAsOf")
+    int addToCheckpoints(@Param("itemId") long itemId, @Param("createdAt") Instant createdAt,
+                         @Param("latestAsOf") Instant latestAsOf, @Param("delta") int delta);
+}
@@ -0,0 +1,12 @@
+package com.obs.purchase.repository;
+
+import com.obs.purchase.entity.InventoryTransaction;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+public interface InventoryTransactionExport {
+
+    /** Transactions in id order, filtered by whichever of itemId, from and to are given. */
+    Stream<InventoryTransaction> streamForExport(Long itemId, Instant from, Instant to);
+}
@@ -0,0 +1,53 @@
+package com.obs.purchase.repository;
+
+import com.obs.purchase.entity.InventoryTransaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Builds the export query from the filters actually given. A catch-all
+ * (:x IS NULL OR column = :x) predicate keeps the planner off the item_id and created_at
+ * indexes, so each filter is only added when it is set.
+ */
+public class InventoryTransactionExportImpl implements InventoryTransactionExport {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<InventoryTransaction> streamForExport(Long itemId, Instant from, Instant to) {
+        List<String> predicates = new ArrayList<>(3);
+        if (itemId != null) {
+            predicates.add("i.itemId = :itemId");
+        }
+        if (from != null) {
+            predicates.add("i.createdAt >= :from");
+        }
+        if (to != null) {
+            predicates.add("i.createdAt < :to");
+        }
+        String jpql = "SELECT i FROM InventoryTransaction i"
+                + (predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates))
+                + " ORDER BY i.id";
+        TypedQuery<InventoryTransaction> query = entityManager.createQuery(jpql, InventoryTransaction.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_CACHEABLE, false);
+        if (itemId != null) {
+            query.setParameter("itemId", itemId);
+        }
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        return query.getResultStream();
+    }
+}
@@ -1,14 +1,25 @@
 package com.obs.purchase.repository;
 
 import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.entity.dto.StockChange;
+import com.obs.purchase.entity.dto.StockMovement;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 
 @Repository
-public interface InventoryTransactionRepository extends BaseRepository<InventoryTransaction> {
+public interface InventoryTransactionRepository extends BaseRepository<InventoryTransaction>, InventoryTransactionExport {
     @Override
     @Query(value = "SELECT i FROM InventoryTransaction i where i.deletedAt IS NULL AND i.id = ?1")
     List<InventoryTransaction> findExistingRecord();
@@ -16,4 +27,48 @@ public interface InventoryTransactionRepository extends BaseRepository<Inventory
     @Override
     @Query(value = "SELECT i FROM InventoryTransaction i where i.deletedAt IS NULL")
     InventoryTransaction findExistingRecordById(long id);
+
+    @Query(value = "SELECT DISTINCT i.itemId FROM InventoryTransaction i WHERE i.snapshotRound IS NOT NULL")
+    List<Long> findFoldedItemIds();
+
+    /**
+     * Claims every transaction no round has folded yet for the given round. Rows committed
+     * after this statement stay unclaimed for the next round, however old their createdAt.
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query(value = "UPDATE inventory_transaction SET snapshot_round = :round WHERE snapshot_round IS NULL", nativeQuery = true)
+    int markSnapshotRound(@Param("round") long round);
+
+    @Query(value = "SELECT new com.obs.purchase.entity.dto.StockChange(i.itemId, " +
+            "SUM(CASE WHEN i.type = 'T' THEN i.qty ELSE -i.qty END), COUNT(i), MIN(i.createdAt), MAX(i.createdAt)) " +
+            "FROM InventoryTransaction i WHERE i.snapshotRound = :round GROUP BY i.itemId")
+    List<StockChange> sumStockChangesInRound(@Param("round") long round);
+
+    @Query(value = "SELECT new com.obs.purchase.entity.dto.StockMovement(i.itemId, i.createdAt, " +
+            "CASE WHEN i.type = 'T' THEN i.qty ELSE -i.qty END) FROM InventoryTransaction i " +
+            "WHERE i.itemId = :itemId AND i.snapshotRound = :round AND i.createdAt <= :to")
+    List<StockMovement> findStockMovementsInRound(@Param("itemId") long itemId, @Param("round") long round, @Param("to") Instant to);
+
+    @Query(value = "SELECT new com.obs.purchase.entity.dto.StockChange(i.itemId, " +
+            "SUM(CASE WHEN i.type = 'T' THEN i.qty ELSE -i.qty END), COUNT(i)) FROM InventoryTransaction i " +
+            "WHERE i.snapshotRound IS NULL GROUP BY i.itemId")
+    List<StockChange> sumUnfoldedStockChanges();
+
+    @Query(value = "SELECT COALESCE(SUM(CASE WHEN i.type = 'T' THEN i.qty ELSE -i.qty END), 0) FROM InventoryTransaction i " +
+            "WHERE i.itemId = :itemId AND i.createdAt > :from AND i.createdAt <= :to")
+    long sumStockChange(@Param("itemId") long itemId, @Param("from") Instant from, @Param("to") Instant to);
+
+    @Query(value = "SELECT COALESCE(SUM(CASE WHEN i.type = 'T' THEN i.qty ELSE -i.qty END), 0) FROM InventoryTransaction i " +
+            "WHERE i.itemId = :itemId AND i.snapshotRound IS NULL AND i.createdAt <= :to")
+    long sumUnfoldedStockChange(@Param("itemId") long itemId, @Param("to") Instant to);
+
+    @Query(value = "SELECT new com.obs.purchase.entity.dto.StockMovement(i.itemId, i.createdAt, " +
+            "CASE WHEN i.type = 'T' THEN i.qty ELSE -i.qty END) FROM InventoryTransaction i " +
+            "WHERE i.itemId IN :itemIds AND i.snapshotRound IS NOT NULL ORDER BY i.itemId, i.createdAt")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<StockMovement> streamFoldedStockMovements(@Param("itemIds") Collection<Long> itemIds);
 }
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,4 +22,6 @@ public interface OrderRepository extends BaseRepository<Order> {
     Optional<Order> findTopByOrderByIdDesc();
 
     Order findByOrderNo(String orderNo);
+
+    List<Order> findByOrderNoIn(Collection<String> orderNos);
 }
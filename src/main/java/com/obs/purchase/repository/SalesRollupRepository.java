@@ -0,0 +1,45 @@
+package com.obs.purchase.repository;
+
+import com.obs.purchase.entity.SalesRollup;
+import com.obs.purchase.enums.RollupGranularity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, Long> {
+
+    @Query(value = "SELECT r FROM SalesRollup r WHERE r.granularity = ?1 AND r.bucketStart >= ?2 AND r.bucketStart < ?3 " +
+            "ORDER BY r.bucketStart, r.itemId")
+    List<SalesRollup> findBuckets(RollupGranularity granularity, Instant from, Instant to);
+
+    @Query(value = "SELECT r FROM SalesRollup r WHERE r.granularity = ?1 AND r.itemId = ?2 AND r.bucketStart >= ?3 AND r.bucketStart < ?4 " +
+            "ORDER BY r.bucketStart")
+    List<SalesRollup> findBucketsByItemId(RollupGranularity granularity, long itemId, Instant from, Instant to);
+
+    /**
+     * Adds the totals to the item's bucket, creating the row on the first sale in it.
+     * The native space hint limits second-level cache invalidation to sales_rollup.
+     */
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "sales_rollup"))
+    @Query(value = "MERGE INTO sales_rollup r USING (VALUES (CAST(:granularity AS VARCHAR(16)), CAST(:itemId AS BIGINT), " +
+            "CAST(:bucketStart AS TIMESTAMP(6) WITH TIME ZONE), CAST(:orders AS BIGINT), CAST(:units AS BIGINT), CAST(:revenue AS BIGINT))) " +
+            "AS s(granularity, item_id, bucket_start, order_count, units, revenue) " +
+            "ON r.granularity = s.granularity AND r.item_id = s.item_id AND r.bucket_start = s.bucket_start " +
+            "WHEN MATCHED THEN UPDATE SET order_count = r.order_count + s.order_count, units = r.units + s.units, " +
+            "revenue = r.revenue + s.revenue, updated_at = CURRENT_TIMESTAMP " +
+            "WHEN NOT MATCHED THEN INSERT (id, granularity, item_id, bucket_start, order_count, units, revenue, created_at, updated_at) " +
+            "VALUES (NEXT VALUE FOR sales_rollup_seq, s.granularity, s.item_id, s.bucket_start, s.order_count, s.units, s.revenue, " +
+            "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int addToRollup(@Param("granularity") String granularity, @Param("itemId") long itemId, @Param("bucketStart") Instant bucketStart,
+                    @Param("orders") long orders, @Param("units") long units, @Param("revenue") long revenue);
+}
@@ -0,0 +1,85 @@
+package com.obs.purchase.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Reserves blocks of sequence_allocation over a small pool of its own, deliberately kept
+ * out of the DataSource bean. Order numbers are drawn while the caller already holds a
+ * connection of the main pool, and a permit when purchase.db.concurrency-limit is on; once
+ * callers hold all of either, a refill going through the same bean would wait on what they
+ * hold until the connection timeout. Nothing holding a connection of this pool waits on
+ * anything but the row lock.
+ * The pool is built from spring.datasource, so it writes to the primary also when reads
+ * are routed to a replica, and purchase.sequence.pool-size bounds it instead of the
+ * limiter: SequenceService runs at most one refill per sequence at a time. Like the native
+ * queries of the other repositories, the SQL is written for the database the Flyway
+ * migrations target.
+ */
+@Repository
+public class SequenceAllocationStore {
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${purchase.sequence.pool-size:2}")
+    private int poolSize = 2;
+
+    private HikariDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("sequence");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(1);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @PreDestroy
+    public void close() {
+        dataSource.close();
+    }
+
+    /** Moves the sequence on by blockSize and returns the first value of the block, or null when it has no row yet. */
+    public Long reserve(String name, int blockSize) {
+        return transactionTemplate.execute(status -> {
+            List<Long> next = jdbcTemplate.queryForList("SELECT next_value FROM sequence_allocation WHERE name = ? FOR UPDATE", Long.class, name);
+            if (next.isEmpty()) {
+                return null;
+            }
+            long start = next.get(0);
+            jdbcTemplate.update("UPDATE sequence_allocation SET next_value = ?, updated_at = CURRENT_TIMESTAMP WHERE name = ?", start + blockSize, name);
+            return start;
+        });
+    }
+
+    /**
+     * Creates the row with the block starting at start already taken. Returns false when
+     * the row was created first by someone else.
+     */
+    public boolean create(String name, long start, int blockSize) {
+        try {
+            jdbcTemplate.update("INSERT INTO sequence_allocation (id, name, next_value, created_at, updated_at) " +
+                    "VALUES (NEXT VALUE FOR sequence_allocation_seq, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", name, start + blockSize);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.obs.purchase.repository;
+
+import com.obs.purchase.entity.StockHold;
+import com.obs.purchase.enums.HoldState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockHoldRepository extends JpaRepository<StockHold, Long> {
+
+    StockHold findByHoldNo(String holdNo);
+
+    /** The hold with its row locked, so confirm, release and expiry of one hold are serialized. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "SELECT h FROM StockHold h WHERE h.holdNo = ?1")
+    StockHold lockByHoldNo(String holdNo);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "SELECT h FROM StockHold h WHERE h.id IN ?1 AND h.state = ?2 ORDER BY h.id")
+    List<StockHold> lockByIdInAndState(Collection<Long> ids, HoldState state);
+
+    Slice<StockHold> findByStateAndIdGreaterThanOrderByIdAsc(HoldState state, long afterId, Pageable pageable);
+}
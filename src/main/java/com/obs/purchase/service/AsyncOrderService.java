@@ -0,0 +1,306 @@
+package com.obs.purchase.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.entity.Item;
+import com.obs.purchase.entity.Order;
+import com.obs.purchase.entity.dto.OrderStatus;
+import com.obs.purchase.entity.dto.QueuedOrder;
+import com.obs.purchase.enums.Type;
+import com.obs.purchase.exceptions.InvalidRequest;
+import com.obs.purchase.exceptions.NotFoundExceptions;
+import com.obs.purchase.repository.InventoryRepository;
+import com.obs.purchase.repository.InventoryTransactionRepository;
+import com.obs.purchase.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accepts orders without touching the database on the request path. Stock is reserved in
+ * the {@link StockLedger}, the order is appended to a {@link WriteAheadLog} and the caller
+ * gets its order number back; {@link #drain()} later writes the logged orders to the
+ * order and inventory transaction tables in batches, and takes their stock off the
+ * inventory table in the same transaction. On startup the log left behind is drained before
+ * the ledger is seeded, so the seed already reflects every accepted order.
+ */
+@Service
+public class AsyncOrderService {
+    private static final Logger log = LoggerFactory.getLogger(AsyncOrderService.class);
+    private static final String OUT_OF_STOCK = "out_of_stock";
+    private static final String LIMITED_STOCK = "limited_stock";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ItemCatalogCache itemCatalogCache;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private InventoryTransactionRepository inventoryTransactionRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private PurchaseMetrics purchaseMetrics;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private TopItemsService topItemsService;
+
+    @Autowired
+    private ReplicaLagGuard replicaLagGuard;
+
+    @Autowired
+    private StockAlertService stockAlertService;
+
+    @Value("${purchase.order.async.enabled:false}")
+    private boolean enabled;
+
+    @Value("${purchase.order.async.wal-dir:data/order-wal}")
+    private String walDirectory;
+
+    @Value("${purchase.order.async.segment-size:67108864}")
+    private int segmentSize = 64 * 1024 * 1024;
+
+    @Value("${purchase.order.async.fsync:true}")
+    private boolean fsync = true;
+
+    @Value("${purchase.order.async.drain-batch-size:500}")
+    private int drainBatchSize = 500;
+
+    @Value("${purchase.order.async.status-retention:1h}")
+    private Duration statusRetention = Duration.ofHours(1);
+
+    private final Map<String, OrderStatus> pending = new ConcurrentHashMap<>();
+
+    private Cache<String, OrderStatus> finished;
+
+    private WriteAheadLog writeAheadLog;
+
+    @PostConstruct
+    public void open() throws IOException {
+        finished = Caffeine.newBuilder()
+                .expireAfterWrite(statusRetention)
+                .build();
+        if (!enabled) {
+            return;
+        }
+        writeAheadLog = new WriteAheadLog(Path.of(walDirectory), segmentSize, fsync);
+        for (WriteAheadLog.Entry entry : writeAheadLog.read(Integer.MAX_VALUE)) {
+            QueuedOrder queuedOrder = parse(entry);
+            pending.put(queuedOrder.getOrderNo(), OrderStatus.accepted(queuedOrder.getOrderNo()));
+            stockLedger.queue(queuedOrder.getItemId(), queuedOrder.getQty());
+        }
+        log.info("order write-ahead log opened with {} orders to drain", pending.size());
+    }
+
+    /**
+     * Drains what the last run left in the log before {@link StockLedger#seed()} reads the
+     * stock; seeding first would hand the stock of those orders out a second time.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @org.springframework.core.annotation.Order(Ordered.HIGHEST_PRECEDENCE)
+    public void recover() {
+        if (writeAheadLog == null) {
+            return;
+        }
+        drain();
+        if (!pending.isEmpty()) {
+            throw new IllegalStateException(pending.size() + " orders from the write-ahead log could not be drained");
+        }
+    }
+
+    public boolean isEnabled() {
+        return writeAheadLog != null && stockLedger.isEnabled();
+    }
+
+    public OrderStatus accept(Order order) {
+        if (order.getQty() == null || order.getQty() <= 0) {
+            throw new InvalidRequest("invalid request", "invalid quantity");
+        }
+        Item item = purchaseMetrics.time("itemCatalog.findById", () -> itemCatalogCache.findById(order.getItemId()));
+        if (item == null) {
+            throw new NotFoundExceptions("not found error", "item is not found");
+        }
+        long itemId = order.getItemId();
+        int qty = order.getQty();
+        if (!stockLedger.reserveQueued(itemId, qty)) {
+            if (!stockLedger.contains(itemId)) {
+                purchaseMetrics.stockRejected(OUT_OF_STOCK);
+                throw new InvalidRequest("out of stock", "stock is out cannot perform withdrawal");
+            }
+            purchaseMetrics.stockRejected(LIMITED_STOCK);
+            throw new InvalidRequest("limited stock", "insufficient amount of stock");
+        }
+        // always generated here: the drain relies on order numbers being unique to skip replays
+        String orderNo = null;
+        try {
+            orderNo = orderService.generateOrderNo();
+            OrderStatus status = OrderStatus.accepted(orderNo);
+            // registered before the append so a drain running right after it finds the entry
+            pending.put(orderNo, status);
+            append(new QueuedOrder(orderNo, itemId, qty, item.getPrice(), Instant.now()));
+            stockAlertService.onStockChange(itemId, -qty);
+            return status;
+        } catch (RuntimeException e) {
+            if (orderNo != null) {
+                pending.remove(orderNo);
+            }
+            stockLedger.releaseQueued(itemId, qty);
+            throw e;
+        }
+    }
+
+    public OrderStatus status(String orderNo) {
+        OrderStatus status = pending.get(orderNo);
+        if (status == null) {
+            status = finished.getIfPresent(orderNo);
+        }
+        if (status == null) {
+            Order order = orderRepository.findByOrderNo(orderNo);
+            if (order != null) {
+                status = OrderStatus.completed(orderNo, order.getId());
+            }
+        }
+        if (status == null) {
+            throw new NotFoundExceptions("not found error", "order not found");
+        }
+        return status;
+    }
+
+    @Scheduled(fixedDelayString = "${purchase.order.async.drain-interval-ms:20}")
+    public synchronized void drain() {
+        if (writeAheadLog == null) {
+            return;
+        }
+        List<WriteAheadLog.Entry> entries;
+        while (!(entries = writeAheadLog.read(drainBatchSize)).isEmpty()) {
+            List<QueuedOrder> queued = new ArrayList<>(entries.size());
+            for (WriteAheadLog.Entry entry : entries) {
+                queued.add(parse(entry));
+            }
+            for (QueuedOrder queuedOrder : queued) {
+                stockLedger.unqueue(queuedOrder.getItemId(), queuedOrder.getQty());
+            }
+            Map<String, Order> saved;
+            try {
+                saved = new TransactionTemplate(transactionManager).execute(status -> persist(queued));
+            } catch (RuntimeException e) {
+                for (QueuedOrder queuedOrder : queued) {
+                    stockLedger.queue(queuedOrder.getItemId(), queuedOrder.getQty());
+                }
+                log.warn("order write-ahead log drain failed, will retry {} orders", queued.size(), e);
+                return;
+            }
+            writeAheadLog.commit(entries.get(entries.size() - 1).getEndPosition());
+            for (QueuedOrder queuedOrder : queued) {
+                stockLedger.drained(queuedOrder.getItemId());
+            }
+            for (QueuedOrder queuedOrder : queued) {
+                String orderNo = queuedOrder.getOrderNo();
+                finished.put(orderNo, OrderStatus.completed(orderNo, saved.get(orderNo).getId()));
+                pending.remove(orderNo);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (writeAheadLog == null) {
+            return;
+        }
+        drain();
+        writeAheadLog.close();
+    }
+
+    // the ledger counter was taken at accept time; the table only loses the stock here, with the rows
+    private Map<String, Order> persist(List<QueuedOrder> queued) {
+        List<String> orderNos = new ArrayList<>(queued.size());
+        for (QueuedOrder queuedOrder : queued) {
+            orderNos.add(queuedOrder.getOrderNo());
+        }
+        Map<String, Order> orders = new HashMap<>();
+        // a drain that crashed after its commit but before the checkpoint leaves these behind
+        for (Order order : purchaseMetrics.time("order.findByOrderNoIn", () -> orderRepository.findByOrderNoIn(orderNos))) {
+            orders.put(order.getOrderNo(), order);
+        }
+        List<Order> newOrders = new ArrayList<>(queued.size());
+        List<InventoryTransaction> withdrawals = new ArrayList<>(queued.size());
+        Map<Long, Integer> taken = new HashMap<>();
+        for (QueuedOrder queuedOrder : queued) {
+            if (orders.containsKey(queuedOrder.getOrderNo())) {
+                continue;
+            }
+            taken.merge(queuedOrder.getItemId(), queuedOrder.getQty(), Integer::sum);
+            Order order = new Order(queuedOrder.getOrderNo(), queuedOrder.getItemId(), queuedOrder.getQty(), queuedOrder.getPrice());
+            orders.put(order.getOrderNo(), order);
+            newOrders.add(order);
+            withdrawals.add(new InventoryTransaction(queuedOrder.getItemId(), queuedOrder.getQty(), Type.WITHDRAWAL.getDisplayName()));
+        }
+        purchaseMetrics.time("inventoryTransaction.saveAll", () -> inventoryTransactionRepository.saveAll(withdrawals));
+        taken.forEach((itemId, qty) -> purchaseMetrics.time("inventory.takeStock", () -> inventoryRepository.takeStock(itemId, qty)));
+        purchaseMetrics.time("order.saveAll", () -> orderRepository.saveAll(newOrders));
+        salesRollupService.record(newOrders);
+        topItemsService.record(newOrders);
+        replicaLagGuard.ordersCreated(newOrders);
+        return orders;
+    }
+
+    private void append(QueuedOrder queuedOrder) {
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(queuedOrder);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        purchaseMetrics.time("orderLog.append", () -> writeAheadLog.append(payload));
+    }
+
+    private QueuedOrder parse(WriteAheadLog.Entry entry) {
+        try {
+            return objectMapper.readValue(entry.getPayload(), QueuedOrder.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.obs.purchase.service;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -13,4 +14,6 @@ public interface BaseService<T> {
     T findById(Long id);
 
     Page<T> findAll(int pageNo, int pageSize);
+
+    Slice<T> findAllAfter(long afterId, int pageSize);
 }
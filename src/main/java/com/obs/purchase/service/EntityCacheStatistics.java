@@ -0,0 +1,27 @@
+package com.obs.purchase.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.obs.purchase.entity.dto.CacheStatistics;
+import com.obs.purchase.exceptions.NotFoundExceptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.cache.CacheManager;
+
+/**
+ * Reads the Caffeine statistics of the second-level cache regions set up in EntityCacheConfig.
+ */
+@Service
+public class EntityCacheStatistics {
+    @Autowired
+    private CacheManager entityCacheManager;
+
+    public CacheStatistics region(String name) {
+        javax.cache.Cache<Object, Object> region = entityCacheManager.getCache(name);
+        if (region == null) {
+            throw new NotFoundExceptions("not found error", "cache region " + name + " is not found");
+        }
+        Cache<?, ?> cache = region.unwrap(Cache.class);
+        return new CacheStatistics(cache.estimatedSize(), cache.stats());
+    }
+}
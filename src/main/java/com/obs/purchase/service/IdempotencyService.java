@@ -0,0 +1,255 @@
+package com.obs.purchase.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.obs.purchase.entity.IdempotencyRecord;
+import com.obs.purchase.entity.dto.GenericResponse;
+import com.obs.purchase.exceptions.ConcurrentUpdateException;
+import com.obs.purchase.exceptions.InvalidRequest;
+import com.obs.purchase.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs a POST at most once per Idempotency-Key. Before the request runs, its key is
+ * claimed by committing a CLAIMED row to idempotency_record; a duplicate on another node
+ * hits the unique key there and never runs the request, so the guarantee also covers
+ * actions with effects outside the transaction, such as the order write-ahead log. The
+ * response is written over the claim in the same transaction as the request's own changes,
+ * and kept as JSON in a bounded in-memory cache that evicts after the TTL. A retry with
+ * the same key gets the stored response back, and one that arrives while the claim is
+ * still open is told to retry later. A request still running on this node is joined rather
+ * than repeated. Failed requests drop their claim, so they can be retried with the same
+ * key; a node that dies mid-request leaves its claim until purchase.idempotency.claim-timeout.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final TypeReference<GenericResponse<JsonNode>> STORED_BODY = new TypeReference<>() {
+    };
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 200;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PurchaseMetrics purchaseMetrics;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${purchase.idempotency.ttl:24h}")
+    private Duration ttl = Duration.ofHours(24);
+
+    @Value("${purchase.idempotency.claim-timeout:30s}")
+    private Duration claimTimeout = Duration.ofSeconds(30);
+
+    @Value("${purchase.idempotency.maximum-size:100000}")
+    private long maximumSize = 100000;
+
+    private Cache<String, StoredResponse> responses;
+
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Runs the action unless a response for the key within scope exists, in which case
+     * that response is returned. The fingerprint holds the request fields that matter, so
+     * reusing a key for a different request is refused. Without a key the action simply runs.
+     */
+    public ResponseEntity<GenericResponse<?>> execute(String scope, String key, String fingerprint, Supplier<ResponseEntity<GenericResponse<?>>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidRequest("invalid request", "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = scope + ":" + key;
+        String requestHash = hash(fingerprint);
+        StoredResponse stored = responses.getIfPresent(id);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(id, mine);
+        if (running != null) {
+            return replay(await(running), requestHash);
+        }
+        try {
+            Executed executed = run(id, requestHash, action);
+            responses.put(id, executed.stored);
+            mine.complete(executed.stored);
+            return executed.response != null ? executed.response : replay(executed.stored, requestHash);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${purchase.idempotency.purge-interval-ms:3600000}")
+    public void purge() {
+        int purged = purchaseMetrics.time("idempotencyRecord.deleteExpired", () -> idempotencyRecordRepository.deleteExpired(Instant.now()));
+        if (purged > 0) {
+            log.debug("{} expired idempotency records purged", purged);
+        }
+    }
+
+    private Executed run(String id, String requestHash, Supplier<ResponseEntity<GenericResponse<?>>> action) {
+        IdempotencyRecord record = purchaseMetrics.time("idempotencyRecord.findByIdempotencyKey", () -> idempotencyRecordRepository.findByIdempotencyKey(id));
+        if (record != null && record.getExpiresAt().isAfter(Instant.now())) {
+            return existing(record, requestHash);
+        }
+        IdempotencyRecord claim;
+        try {
+            claim = new TransactionTemplate(transactionManager).execute(status -> {
+                if (record != null) {
+                    idempotencyRecordRepository.delete(record);
+                }
+                IdempotencyRecord claimed = new IdempotencyRecord(id, requestHash, IdempotencyRecord.CLAIMED, "", Instant.now().plus(claimTimeout));
+                return purchaseMetrics.time("idempotencyRecord.save", () -> idempotencyRecordRepository.saveAndFlush(claimed));
+            });
+        } catch (DataIntegrityViolationException e) {
+            // the same key was claimed first on another node
+            IdempotencyRecord winner = idempotencyRecordRepository.findByIdempotencyKey(id);
+            if (winner == null) {
+                throw e;
+            }
+            return existing(winner, requestHash);
+        }
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                ResponseEntity<GenericResponse<?>> response = action.get();
+                IdempotencyRecord completed = new IdempotencyRecord(id, requestHash, response.getStatusCode().value(), write(response.getBody()), Instant.now().plus(ttl));
+                int updated = purchaseMetrics.time("idempotencyRecord.complete", () -> idempotencyRecordRepository.complete(
+                        claim.getId(), completed.getStatus(), completed.getResponse(), completed.getExpiresAt()));
+                if (updated == 0) {
+                    throw new ConcurrentUpdateException("concurrent update", "Idempotency-Key claim expired before the request finished");
+                }
+                return new Executed(stored(completed), response);
+            });
+        } catch (RuntimeException e) {
+            try {
+                idempotencyRecordRepository.deleteClaim(claim.getId());
+            } catch (RuntimeException dropFailed) {
+                // the claim runs out after the claim timeout instead
+                e.addSuppressed(dropFailed);
+            }
+            throw e;
+        }
+    }
+
+    private Executed existing(IdempotencyRecord record, String requestHash) {
+        if (!record.isClaimed()) {
+            return new Executed(stored(record), null);
+        }
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new InvalidRequest("invalid request", "Idempotency-Key was already used for a different request");
+        }
+        throw new ConcurrentUpdateException("concurrent update", "a request with this Idempotency-Key is still running, please retry");
+    }
+
+    private ResponseEntity<GenericResponse<?>> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash.equals(requestHash)) {
+            throw new InvalidRequest("invalid request", "Idempotency-Key was already used for a different request");
+        }
+        return ResponseEntity.status(stored.status)
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.body);
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private StoredResponse stored(IdempotencyRecord record) {
+        try {
+            return new StoredResponse(record.getRequestHash(), record.getStatus(), objectMapper.readValue(record.getResponse(), STORED_BODY));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("stored response for " + record.getIdempotencyKey() + " is unreadable", e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("response cannot be stored", e);
+        }
+    }
+
+    private static String hash(String fingerprint) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Executed {
+        private final StoredResponse stored;
+        private final ResponseEntity<GenericResponse<?>> response;
+
+        private Executed(StoredResponse stored, ResponseEntity<GenericResponse<?>> response) {
+            this.stored = stored;
+            this.response = response;
+        }
+    }
+
+    private static final class StoredResponse {
+        private final String requestHash;
+        private final int status;
+        private final GenericResponse<JsonNode> body;
+
+        private StoredResponse(String requestHash, int status, GenericResponse<JsonNode> body) {
+            this.requestHash = requestHash;
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
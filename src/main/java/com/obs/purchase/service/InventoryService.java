@@ -1,15 +1,21 @@
 package com.obs.purchase.service;
 import com.obs.purchase.entity.Inventory;
+import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.enums.Type;
 import com.obs.purchase.exceptions.DuplicateObjectExceptions;
 import com.obs.purchase.exceptions.NotFoundExceptions;
 import com.obs.purchase.repository.InventoryRepository;
+import com.obs.purchase.repository.InventoryTransactionRepository;
 import com.obs.purchase.repository.ItemRepository;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 
 @Service
@@ -19,46 +25,112 @@ public class InventoryService implements BaseService<Inventory>{
 
     @Autowired
     private ItemRepository itemRepository;
+
+    @Autowired
+    private InventoryTransactionRepository inventoryTransactionRepository;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private PurchaseMetrics purchaseMetrics;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private StockAlertService stockAlertService;
+
     @Override
     public Inventory save(Inventory inventory) {
-        if(inventoryRepository.findByItemId(inventory.getItemId())!=null){
+        Inventory savedInventory;
+        try {
+            savedInventory = inventoryRepository.saveAndFlush(inventory);
+        } catch (DataIntegrityViolationException e) {
+            if (!UniqueConstraints.isViolated(e, UniqueConstraints.INVENTORY_ITEM_ID)) {
+                throw e;
+            }
+            purchaseMetrics.duplicateRejected("inventory");
             throw new DuplicateObjectExceptions("Duplicate Error", "inventory already registered");
         }
-        return inventoryRepository.save(inventory);
+        if(stockLedger.isEnabled()){
+            setLedgerStock(savedInventory.getItemId(), savedInventory.getStock() == null ? 0 : savedInventory.getStock());
+        }
+        stockAlertService.watch(savedInventory.getItemId(), savedInventory.getReorderLevel(), savedInventory.getStock() == null ? 0 : savedInventory.getStock());
+        return savedInventory;
     }
 
     @Override
     public void delete(Long id) {
-        Inventory inventory = inventoryRepository.findById(id).orElse(null);
-        if(inventory==null){
-            throw new NotFoundExceptions("not found error", "inventory not found");
-        }
-        inventory.setDeletedAt(Instant.now());
-        inventoryRepository.save(inventory);
+        optimisticRetry.run("inventory.delete", () -> {
+            Inventory inventory = inventoryRepository.findById(id).orElse(null);
+            if(inventory==null){
+                throw new NotFoundExceptions("not found error", "inventory not found");
+            }
+            inventory.setDeletedAt(Instant.now());
+            inventoryRepository.save(inventory);
+            if(stockLedger.isEnabled()){
+                stockLedger.remove(inventory.getItemId());
+            }
+            stockAlertService.unwatch(inventory.getItemId());
+        });
     }
 
     @Override
     public void update(Inventory inventory) {
-        Inventory inventorySaved = inventoryRepository.findById(inventory.getId()).orElse(null);
-        if(inventorySaved==null){
-            throw new NotFoundExceptions("not found error", "inventory not found");
-        }
-        BeanUtils.copyProperties(inventory,inventorySaved);
-        inventoryRepository.save(inventorySaved);
+        optimisticRetry.run("inventory.update", () -> {
+            Inventory inventorySaved = inventoryRepository.findById(inventory.getId()).orElse(null);
+            if(inventorySaved==null){
+                throw new NotFoundExceptions("not found error", "inventory not found");
+            }
+            int stock = inventory.getStock() == null ? 0 : inventory.getStock();
+            // the version always comes from the row just read, so a retry re-applies the change
+            if(stockLedger.isEnabled()){
+                // the ledger owns the stock column: the new stock goes through the counter and the next flush
+                BeanUtils.copyProperties(inventory,inventorySaved,"version","stock");
+                inventoryRepository.save(inventorySaved);
+                setLedgerStock(inventorySaved.getItemId(), stock);
+            }else{
+                BeanUtils.copyProperties(inventory,inventorySaved,"version");
+                inventoryRepository.save(inventorySaved);
+            }
+            stockAlertService.watch(inventorySaved.getItemId(), inventorySaved.getReorderLevel(), stock);
+        });
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Inventory findById(Long id) {
         Inventory inventory = inventoryRepository.findById(id).orElse(null);
         if(inventory==null){
             throw new NotFoundExceptions("not found error", "inventory not found");
         }
+        if(stockLedger.isEnabled() && stockLedger.isSharded(inventory.getItemId())){
+            // the row only sees flushed totals; report the live sum of the shards
+            inventory.setStock(stockLedger.getStock(inventory.getItemId()));
+        }
         return inventory;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Inventory> findAll(int pageNo, int pageSize) {
         Pageable pageable = PageRequest.of(pageNo, pageSize);
         return inventoryRepository.findAll(pageable);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Inventory> findAllAfter(long afterId, int pageSize) {
+        return inventoryRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize));
+    }
+
+    // in event-sourced mode stock is derived from the transaction log, so a direct edit is logged as the difference
+    private void setLedgerStock(long itemId, int stock) {
+        int delta = stock - stockLedger.put(itemId, stock);
+        if(stockLedger.isEventSourced() && delta != 0){
+            String type = delta > 0 ? Type.TOP_UP.getDisplayName() : Type.WITHDRAWAL.getDisplayName();
+            purchaseMetrics.time("inventoryTransaction.save", () -> inventoryTransactionRepository.save(new InventoryTransaction(itemId, Math.abs(delta), type)));
+        }
+    }
 }
@@ -0,0 +1,266 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.InventorySnapshot;
+import com.obs.purchase.entity.dto.StockAsOf;
+import com.obs.purchase.entity.dto.StockChange;
+import com.obs.purchase.entity.dto.StockMovement;
+import com.obs.purchase.exceptions.NotFoundExceptions;
+import com.obs.purchase.repository.InventorySnapshotRepository;
+import com.obs.purchase.repository.InventoryTransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Folds the inventory transaction log into per-item snapshots. Each round claims every
+ * transaction no round has folded yet by setting its snapshot_round, in the transaction
+ * that writes the snapshots, so a row that commits late is left for the next round rather
+ * than skipped. A snapshot holds every folded transaction of the item created at or before
+ * its asOf, and current stock is the latest snapshots plus the unclaimed transactions.
+ * A round moves the item's latest snapshot forward until it has folded
+ * checkpoint-transactions transactions since the one before it; the older snapshots stay
+ * behind as checkpoints for {@link #stockAsOf}. A transaction folded after a checkpoint
+ * later than its createdAt was written is added to that checkpoint too.
+ */
+@Service
+public class InventorySnapshotService {
+    private static final Logger log = LoggerFactory.getLogger(InventorySnapshotService.class);
+
+    @Autowired
+    private InventorySnapshotRepository inventorySnapshotRepository;
+
+    @Autowired
+    private InventoryTransactionRepository inventoryTransactionRepository;
+
+    @Autowired
+    private PurchaseMetrics purchaseMetrics;
+
+    @Autowired
+    private ItemCatalogCache itemCatalogCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${purchase.stock.ledger.enabled:false}")
+    private boolean ledgerEnabled;
+
+    @Value("${purchase.stock.event-sourced.enabled:false}")
+    private boolean eventSourced;
+
+    @Value("${purchase.stock.snapshot.checkpoint-transactions:200}")
+    private int checkpointTransactions = 200;
+
+    @Value("${purchase.stock.snapshot.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${purchase.stock.snapshot.rebuild-threads:0}")
+    private int rebuildThreads;
+
+    public Map<Long, Integer> currentStocks() {
+        return readConsistently(status -> {
+            Map<Long, Long> stocks = new HashMap<>();
+            for (InventorySnapshot snapshot : purchaseMetrics.time("inventorySnapshot.findLatest", () -> inventorySnapshotRepository.findLatest())) {
+                stocks.put(snapshot.getItemId(), (long) snapshot.getStock());
+            }
+            for (StockChange change : purchaseMetrics.time("inventoryTransaction.sumUnfoldedStockChanges", () -> inventoryTransactionRepository.sumUnfoldedStockChanges())) {
+                stocks.merge(change.getItemId(), change.getDelta(), Long::sum);
+            }
+            Map<Long, Integer> result = new HashMap<>(stocks.size());
+            stocks.forEach((itemId, stock) -> result.put(itemId, Math.toIntExact(stock)));
+            return result;
+        });
+    }
+
+    // only an event-sourced ledger reads the snapshots on its own; rebuild and stockAsOf still work without
+    @Scheduled(fixedDelayString = "${purchase.stock.snapshot.interval-ms:60000}")
+    public void scheduledSnapshot() {
+        if (ledgerEnabled && eventSourced) {
+            snapshot();
+        }
+    }
+
+    public synchronized int snapshot() {
+        Integer written = new TransactionTemplate(transactionManager).execute(status -> fold());
+        return written == null ? 0 : written;
+    }
+
+    /**
+     * Throws away every snapshot and replays the folded part of the transaction log, item
+     * ranges in parallel, writing a checkpoint every checkpoint-transactions transactions of
+     * an item and a final snapshot per item. What is still unclaimed is then folded on top,
+     * in the transaction that swaps the snapshots.
+     */
+    public synchronized int rebuild() {
+        // rows only ever go from unclaimed to claimed, and only fold() claims them, so the replayed set is fixed
+        snapshot();
+        List<Long> itemIds = purchaseMetrics.time("inventoryTransaction.findFoldedItemIds", () -> inventoryTransactionRepository.findFoldedItemIds());
+        int threads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<InventorySnapshot> snapshots = new ArrayList<>(itemIds.size());
+        try {
+            List<Future<List<InventorySnapshot>>> replays = new ArrayList<>();
+            for (int start = 0; start < itemIds.size(); start += chunkSize) {
+                List<Long> chunk = itemIds.subList(start, Math.min(start + chunkSize, itemIds.size()));
+                replays.add(executor.submit(() -> replay(chunk)));
+            }
+            for (Future<List<InventorySnapshot>> replay : replays) {
+                snapshots.addAll(replay.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("inventory snapshot rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("inventory snapshot rebuild failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            inventorySnapshotRepository.deleteAllInBatch();
+            purchaseMetrics.time("inventorySnapshot.saveAll", () -> inventorySnapshotRepository.saveAll(snapshots));
+            fold();
+        });
+        log.info("inventory snapshots rebuilt for {} items, {} rows", itemIds.size(), snapshots.size());
+        return itemIds.size();
+    }
+
+    /**
+     * Stock of the item including every transaction created at or before asOf: the nearest
+     * checkpoint before it plus a range scan of at most about checkpoint-transactions rows.
+     */
+    public StockAsOf stockAsOf(long itemId, Instant asOf) {
+        if (purchaseMetrics.time("itemCatalog.findById", () -> itemCatalogCache.findById(itemId)) == null) {
+            throw new NotFoundExceptions("not found error", "item is not found");
+        }
+        return readConsistently(status -> {
+            InventorySnapshot checkpoint = purchaseMetrics.time("inventorySnapshot.findCheckpoint",
+                    () -> inventorySnapshotRepository.findTopByItemIdAndAsOfLessThanEqualOrderByAsOfDesc(itemId, asOf));
+            Instant from = checkpoint == null ? Instant.EPOCH : checkpoint.getAsOf();
+            long delta = purchaseMetrics.time("inventoryTransaction.sumStockChange", () -> inventoryTransactionRepository.sumStockChange(itemId, from, asOf));
+            if (checkpoint != null) {
+                // created before the checkpoint, but committed after the round that wrote it
+                delta += purchaseMetrics.time("inventoryTransaction.sumUnfoldedStockChange", () -> inventoryTransactionRepository.sumUnfoldedStockChange(itemId, from));
+            }
+            long stock = (checkpoint == null ? 0 : checkpoint.getStock()) + delta;
+            return new StockAsOf(itemId, asOf, Math.toIntExact(stock), checkpoint == null ? null : checkpoint.getAsOf());
+        });
+    }
+
+    private int fold() {
+        long round = inventorySnapshotRepository.nextRound();
+        int claimed = purchaseMetrics.time("inventoryTransaction.markSnapshotRound", () -> inventoryTransactionRepository.markSnapshotRound(round));
+        if (claimed == 0) {
+            return 0;
+        }
+        List<StockChange> changes = purchaseMetrics.time("inventoryTransaction.sumStockChangesInRound", () -> inventoryTransactionRepository.sumStockChangesInRound(round));
+        List<InventorySnapshot> snapshots = new ArrayList<>(changes.size());
+        for (int start = 0; start < changes.size(); start += chunkSize) {
+            List<StockChange> chunk = changes.subList(start, Math.min(start + chunkSize, changes.size()));
+            Map<Long, InventorySnapshot> latest = latestSnapshots(chunk.stream().map(StockChange::getItemId).toList());
+            for (StockChange change : chunk) {
+                InventorySnapshot previous = latest.get(change.getItemId());
+                long delta = change.getDelta();
+                long count = change.getCount();
+                if (previous != null && !change.getFirstCreatedAt().isAfter(previous.getAsOf())) {
+                    for (StockMovement late : inventoryTransactionRepository.findStockMovementsInRound(change.getItemId(), round, previous.getAsOf())) {
+                        inventorySnapshotRepository.addToCheckpoints(change.getItemId(), late.getCreatedAt(), previous.getAsOf(), late.getDelta());
+                        previous.setStock(previous.getStock() + late.getDelta());
+                        delta -= late.getDelta();
+                        count--;
+                    }
+                    if (count == 0) {
+                        snapshots.add(previous);
+                        continue;
+                    }
+                }
+                long stock = (previous == null ? 0 : previous.getStock()) + delta;
+                if (previous != null && previous.getTransactionCount() + count <= checkpointTransactions) {
+                    previous.setStock(Math.toIntExact(stock));
+                    previous.setAsOf(change.getLastCreatedAt());
+                    previous.setTransactionCount(previous.getTransactionCount() + (int) count);
+                    snapshots.add(previous);
+                } else {
+                    if (previous != null) {
+                        // may carry late transactions, and is a checkpoint from now on
+                        snapshots.add(previous);
+                    }
+                    snapshots.add(new InventorySnapshot(change.getItemId(), Math.toIntExact(stock), change.getLastCreatedAt(), (int) count));
+                }
+            }
+        }
+        purchaseMetrics.time("inventorySnapshot.saveAll", () -> inventorySnapshotRepository.saveAll(snapshots));
+        log.debug("inventory snapshot round {} folded {} transactions into {} snapshots", round, claimed, snapshots.size());
+        return snapshots.size();
+    }
+
+    // both reads see one state of the log, not a round that committed between them
+    private <T> T readConsistently(TransactionCallback<T> action) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        return transactionTemplate.execute(action);
+    }
+
+    private List<InventorySnapshot> replay(List<Long> itemIds) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate.execute(status -> {
+            List<InventorySnapshot> snapshots = new ArrayList<>();
+            try (Stream<StockMovement> movements = inventoryTransactionRepository.streamFoldedStockMovements(itemIds)) {
+                Iterator<StockMovement> iterator = movements.iterator();
+                long itemId = 0;
+                long stock = 0;
+                int count = 0;
+                Instant lastCreatedAt = null;
+                while (iterator.hasNext()) {
+                    StockMovement movement = iterator.next();
+                    if (movement.getItemId() != itemId) {
+                        if (lastCreatedAt != null) {
+                            snapshots.add(new InventorySnapshot(itemId, Math.toIntExact(stock), lastCreatedAt, count));
+                        }
+                        itemId = movement.getItemId();
+                        stock = 0;
+                        count = 0;
+                    } else if (count >= checkpointTransactions && movement.getCreatedAt().isAfter(lastCreatedAt)) {
+                        // everything folded so far was created at or before lastCreatedAt, and nothing after it
+                        snapshots.add(new InventorySnapshot(itemId, Math.toIntExact(stock), lastCreatedAt, count));
+                        count = 0;
+                    }
+                    stock += movement.getDelta();
+                    count++;
+                    lastCreatedAt = movement.getCreatedAt();
+                }
+                if (lastCreatedAt != null) {
+                    snapshots.add(new InventorySnapshot(itemId, Math.toIntExact(stock), lastCreatedAt, count));
+                }
+            }
+            return snapshots;
+        });
+    }
+
+    private Map<Long, InventorySnapshot> latestSnapshots(List<Long> itemIds) {
+        Map<Long, InventorySnapshot> snapshots = new HashMap<>(itemIds.size());
+        for (InventorySnapshot snapshot : purchaseMetrics.time("inventorySnapshot.findLatestByItemIdIn", () -> inventorySnapshotRepository.findLatestByItemIdIn(itemIds))) {
+            snapshots.put(snapshot.getItemId(), snapshot);
+        }
+        return snapshots;
+    }
+}
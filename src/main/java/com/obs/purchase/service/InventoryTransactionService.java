@@ -1,22 +1,46 @@
 package com.obs.purchase.service;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.obs.purchase.entity.Inventory;
 import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.enums.ExportFormat;
 import com.obs.purchase.enums.Type;
 import com.obs.purchase.exceptions.InvalidRequest;
 import com.obs.purchase.exceptions.NotFoundExceptions;
 import com.obs.purchase.repository.InventoryRepository;
 import com.obs.purchase.repository.InventoryTransactionRepository;
-import com.obs.purchase.repository.ItemRepository;
-import jakarta.transaction.Transactional;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 @Service
 public class InventoryTransactionService implements BaseService<InventoryTransaction>{
+    private static final String OUT_OF_STOCK = "out_of_stock";
+    private static final String LIMITED_STOCK = "limited_stock";
+    private static final String INSUFFICIENT_STOCK = "insufficient amount of stock";
+
     @Autowired
     private InventoryTransactionRepository inventoryTransactionRepository;
 
@@ -24,32 +48,213 @@ public class InventoryTransactionService implements BaseService<InventoryTransac
     private InventoryRepository inventoryRepository;
 
     @Autowired
-    private ItemRepository itemRepository;
+    private ItemCatalogCache itemCatalogCache;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PurchaseMetrics purchaseMetrics;
+
+    @Autowired
+    private StockAlertService stockAlertService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
     @Override
     @Transactional
     public InventoryTransaction save(InventoryTransaction inventoryTransaction) {
-        if(itemRepository.findById(inventoryTransaction.getItemId()).isEmpty()){
+        if(purchaseMetrics.time("itemCatalog.findById", () -> itemCatalogCache.findById(inventoryTransaction.getItemId()))==null){
             throw new NotFoundExceptions("not found error", "item is not found");
         }
-        Inventory inventory = inventoryRepository.findByItemId(inventoryTransaction.getItemId());
+        InventoryTransaction savedTransaction = purchaseMetrics.trackStockChange(inventoryTransaction.getItemId(), () -> {
+            if(stockLedger.isEnabled()){
+                return saveThroughLedger(inventoryTransaction);
+            }
+            return saveThroughInventory(inventoryTransaction);
+        });
+        boolean withdrawal = inventoryTransaction.getType().equals(Type.WITHDRAWAL.getDisplayName());
+        stockAlertService.onStockChange(inventoryTransaction.getItemId(), withdrawal ? -inventoryTransaction.getQty() : inventoryTransaction.getQty());
+        return savedTransaction;
+    }
 
-        if(inventory!=null) {
-            inventory.setStock(updatedInventoryStock(inventory, inventoryTransaction));
-        }else if(inventoryTransaction.getType().equals(Type.WITHDRAWAL.getDisplayName())){
-            throw new InvalidRequest("out of stock", "stock is out cannot perform withdrawal");
+    private InventoryTransaction saveThroughInventory(InventoryTransaction inventoryTransaction) {
+        long itemId = inventoryTransaction.getItemId();
+        int qty = inventoryTransaction.getQty();
+        if(inventoryTransaction.getType().equals(Type.WITHDRAWAL.getDisplayName())){
+            if(withdrawStock(itemId, qty) == 0){
+                if(!purchaseMetrics.time("inventory.existsByItemId", () -> inventoryRepository.existsByItemId(itemId))){
+                    purchaseMetrics.stockRejected(OUT_OF_STOCK);
+                    throw new InvalidRequest("out of stock", "stock is out cannot perform withdrawal");
+                }
+                purchaseMetrics.stockRejected(LIMITED_STOCK);
+                throw new InvalidRequest("limited stock", "insufficient amount of stock");
+            }
         }else{
-            inventory = new Inventory();
-            inventory.setStock(inventoryTransaction.getQty());
-            inventory.setItemId(inventoryTransaction.getItemId());
+            purchaseMetrics.time("inventory.topUpStock", () -> inventoryRepository.topUpStock(itemId, qty));
         }
+        return purchaseMetrics.time("inventoryTransaction.save", () -> inventoryTransactionRepository.save(inventoryTransaction));
+    }
 
-        inventoryRepository.save(inventory);
-        inventoryTransactionRepository.save(inventoryTransaction);
-        return inventoryTransactionRepository.save(inventoryTransaction);
+    private InventoryTransaction saveThroughLedger(InventoryTransaction inventoryTransaction) {
+        long itemId = inventoryTransaction.getItemId();
+        int qty = inventoryTransaction.getQty();
+        if(inventoryTransaction.getType().equals(Type.WITHDRAWAL.getDisplayName())){
+            if(!stockLedger.reserve(itemId, qty)){
+                if(!stockLedger.contains(itemId)){
+                    purchaseMetrics.stockRejected(OUT_OF_STOCK);
+                    throw new InvalidRequest("out of stock", "stock is out cannot perform withdrawal");
+                }
+                purchaseMetrics.stockRejected(LIMITED_STOCK);
+                throw new InvalidRequest("limited stock", "insufficient amount of stock");
+            }
+            stockLedger.compensateOnRollback(itemId, -qty);
+        }else{
+            stockLedger.releaseOnCommit(itemId, qty);
+        }
+        return purchaseMetrics.time("inventoryTransaction.save", () -> inventoryTransactionRepository.save(inventoryTransaction));
+    }
+
+    /**
+     * Applies a batch of withdrawals with one stock change per item. Lines are accepted in
+     * order while stock lasts; the returned list holds the rejection reason for each line,
+     * or null when the line was accepted and its transaction row written.
+     */
+    @Transactional
+    public List<String> saveWithdrawals(List<InventoryTransaction> withdrawals) {
+        List<String> rejections = new ArrayList<>(Collections.nCopies(withdrawals.size(), null));
+        Map<Long, List<Integer>> linesByItem = new TreeMap<>();
+        for (int i = 0; i < withdrawals.size(); i++) {
+            linesByItem.computeIfAbsent(withdrawals.get(i).getItemId(), itemId -> new ArrayList<>()).add(i);
+        }
+
+        Map<Long, Inventory> inventories = new HashMap<>();
+        if(!stockLedger.isEnabled()){
+            List<Inventory> found = purchaseMetrics.time("inventory.findByItemIdIn", () -> inventoryRepository.findByItemIdIn(linesByItem.keySet()));
+            for (Inventory inventory : found) {
+                inventories.putIfAbsent(inventory.getItemId(), inventory);
+            }
+        }
+
+        List<InventoryTransaction> accepted = new ArrayList<>(withdrawals.size());
+        for (Map.Entry<Long, List<Integer>> entry : linesByItem.entrySet()) {
+            long itemId = entry.getKey();
+            List<Integer> lines = entry.getValue();
+            Integer available;
+            int total;
+            if(stockLedger.isEnabled()){
+                do {
+                    available = stockLedger.getStock(itemId);
+                    total = acceptWhileInStock(withdrawals, lines, available, rejections);
+                } while (total > 0 && !stockLedger.reserve(itemId, total));
+                if (total > 0) {
+                    stockLedger.compensateOnRollback(itemId, -total);
+                }
+            }else{
+                Inventory inventory = inventories.get(itemId);
+                available = inventory == null ? null : inventory.getStock();
+                total = acceptWhileInStock(withdrawals, lines, available, rejections);
+                // stock moved since it was read: re-read it and re-plan, like the ledger's CAS loop
+                while (total > 0 && withdrawStock(itemId, total) == 0) {
+                    purchaseMetrics.optimisticConflict("inventory.withdrawStock");
+                    available = purchaseMetrics.time("inventory.findStockByItemId", () -> inventoryRepository.findStockByItemId(itemId));
+                    total = acceptWhileInStock(withdrawals, lines, available, rejections);
+                }
+            }
+            if (total > 0) {
+                stockAlertService.onStockChange(itemId, -total);
+            }
+            for (Integer line : lines) {
+                if (rejections.get(line) == null) {
+                    accepted.add(withdrawals.get(line));
+                }
+            }
+        }
+
+        for (String rejection : rejections) {
+            if (rejection != null) {
+                purchaseMetrics.stockRejected(rejection.equals(INSUFFICIENT_STOCK) ? LIMITED_STOCK : OUT_OF_STOCK);
+            }
+        }
+        purchaseMetrics.time("inventoryTransaction.saveAll", () -> inventoryTransactionRepository.saveAll(accepted));
+        return rejections;
+    }
+
+    /**
+     * Takes every withdrawal or none. Stock is taken once per item in itemId order, so carts
+     * sharing items lock their inventory rows in the same order and can't deadlock, and the
+     * transaction rows go out in one batched insert. A shortfall on any item throws, and the
+     * surrounding transaction gives back what the items before it took.
+     */
+    @Transactional
+    public List<InventoryTransaction> saveAllOrNothing(List<InventoryTransaction> withdrawals) {
+        Map<Long, Integer> totals = new TreeMap<>();
+        for (InventoryTransaction withdrawal : withdrawals) {
+            totals.merge(withdrawal.getItemId(), withdrawal.getQty(), Integer::sum);
+        }
+        for (Map.Entry<Long, Integer> entry : totals.entrySet()) {
+            long itemId = entry.getKey();
+            int qty = entry.getValue();
+            purchaseMetrics.trackStockChange(itemId, () -> {
+                takeStock(itemId, qty);
+                return null;
+            });
+        }
+        totals.forEach((itemId, qty) -> stockAlertService.onStockChange(itemId, -qty));
+        return purchaseMetrics.time("inventoryTransaction.saveAll", () -> inventoryTransactionRepository.saveAll(withdrawals));
+    }
+
+    private void takeStock(long itemId, int qty) {
+        boolean taken;
+        boolean known;
+        if(stockLedger.isEnabled()){
+            taken = stockLedger.reserve(itemId, qty);
+            if (taken) {
+                stockLedger.compensateOnRollback(itemId, -qty);
+            }
+            known = taken || stockLedger.contains(itemId);
+        }else{
+            taken = withdrawStock(itemId, qty) > 0;
+            known = taken || purchaseMetrics.time("inventory.existsByItemId", () -> inventoryRepository.existsByItemId(itemId));
+        }
+        if (!known) {
+            purchaseMetrics.stockRejected(OUT_OF_STOCK);
+            throw new InvalidRequest("out of stock", "stock is out for item " + itemId);
+        }
+        if (!taken) {
+            purchaseMetrics.stockRejected(LIMITED_STOCK);
+            throw new InvalidRequest("limited stock", "insufficient amount of stock for item " + itemId);
+        }
+    }
+
+    private int withdrawStock(long itemId, int qty) {
+        return purchaseMetrics.time("inventory.withdrawStock", () -> inventoryRepository.withdrawStock(itemId, qty));
+    }
+
+    private int acceptWhileInStock(List<InventoryTransaction> withdrawals, List<Integer> lines, Integer available, List<String> rejections) {
+        int total = 0;
+        for (Integer line : lines) {
+            if (available == null) {
+                rejections.set(line, "stock is out cannot perform withdrawal");
+                continue;
+            }
+            int qty = withdrawals.get(line).getQty();
+            if (total + qty > available) {
+                rejections.set(line, INSUFFICIENT_STOCK);
+            } else {
+                rejections.set(line, null);
+                total += qty;
+            }
+        }
+        return total;
     }
 
     @Override
     public void delete(Long id) {
+        rejectWhenEventSourced();
         InventoryTransaction inventoryTransaction = inventoryTransactionRepository.findById(id).orElse(null);
         if(inventoryTransaction==null){
             throw new NotFoundExceptions("not found error", "inventory transaction not found");
@@ -60,6 +265,7 @@ public class InventoryTransactionService implements BaseService<InventoryTransac
 
     @Override
     public void update(InventoryTransaction inventoryTransaction) {
+        rejectWhenEventSourced();
         InventoryTransaction inventoryTransactionSaved = inventoryTransactionRepository.findById(inventoryTransaction.getId()).orElse(null);
         if(inventoryTransactionSaved==null){
             throw new NotFoundExceptions("not found error", "inventory transaction not found");
@@ -69,6 +275,7 @@ public class InventoryTransactionService implements BaseService<InventoryTransac
     }
 
     @Override
+    @Transactional(readOnly = true)
     public InventoryTransaction findById(Long id) {
         InventoryTransaction inventoryTransaction = inventoryTransactionRepository.findById(id).orElse(null);
         if(inventoryTransaction==null){
@@ -78,11 +285,60 @@ public class InventoryTransactionService implements BaseService<InventoryTransac
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<InventoryTransaction> findAll(int pageNo, int pageSize) {
         Pageable pageable = PageRequest.of(pageNo, pageSize);
         return inventoryTransactionRepository.findAll(pageable);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<InventoryTransaction> findAllAfter(long afterId, int pageSize) {
+        return inventoryTransactionRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize));
+    }
+
+    /**
+     * Streams matching transactions to the output from a forward-only cursor. Each row is
+     * detached once written so the persistence context does not grow with the table.
+     */
+    @Transactional(readOnly = true)
+    public void export(Long itemId, Instant from, Instant to, ExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        ObjectWriter rowWriter = objectMapper.writerFor(InventoryTransaction.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        if (format == ExportFormat.CSV) {
+            writer.write("id,itemId,qty,type,createdAt,deletedAt\n");
+        }
+        try (Stream<InventoryTransaction> transactions = inventoryTransactionRepository.streamForExport(itemId, from, to)) {
+            Iterator<InventoryTransaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                InventoryTransaction inventoryTransaction = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    writer.write(inventoryTransaction.getId() + "," + inventoryTransaction.getItemId() + ","
+                            + inventoryTransaction.getQty() + "," + inventoryTransaction.getType() + ","
+                            + nullToEmpty(inventoryTransaction.getCreatedAt()) + "," + nullToEmpty(inventoryTransaction.getDeletedAt()));
+                } else {
+                    rowWriter.writeValue(writer, inventoryTransaction);
+                }
+                writer.write('\n');
+                entityManager.detach(inventoryTransaction);
+            }
+        }
+        writer.flush();
+    }
+
+    // the log is the stock there: snapshots, stockAsOf and the ledger seed have folded the rows as written
+    private void rejectWhenEventSourced() {
+        if(stockLedger.isEventSourced()){
+            throw new InvalidRequest("invalid request", "inventory transactions can't be changed while stock is event-sourced, record a correcting transaction instead");
+        }
+    }
+
+    private static String nullToEmpty(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
     public Integer updatedInventoryStock(Inventory inventory, InventoryTransaction inventoryTransaction){
         int stockQty = inventory.getStock();
         int updatedStockQty = stockQty;
@@ -92,6 +348,7 @@ public class InventoryTransactionService implements BaseService<InventoryTransac
             updatedStockQty -= inventoryTransaction.getQty();
         }
         if(updatedStockQty<0){
+            purchaseMetrics.stockRejected(LIMITED_STOCK);
             throw new InvalidRequest("limited stock", "insufficient amount of stock");
         }
         return updatedStockQty;
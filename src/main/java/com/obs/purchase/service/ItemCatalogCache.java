@@ -0,0 +1,70 @@
+package com.obs.purchase.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.obs.purchase.entity.Item;
+import com.obs.purchase.entity.dto.CacheStatistics;
+import com.obs.purchase.repository.ItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-through cache of the item catalog keyed by id. Only items that exist are
+ * cached; ItemService invalidates entries when an item changes.
+ */
+@Service
+public class ItemCatalogCache {
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Value("${purchase.item-cache.maximum-size:10000}")
+    private long maximumSize = 10000;
+
+    @Value("${purchase.item-cache.expire-after-write:10m}")
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+    private Cache<Long, Item> itemsById;
+
+    @PostConstruct
+    public void init() {
+        itemsById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public Item findById(long id) {
+        return itemsById.get(id, key -> itemRepository.findById(key).orElse(null));
+    }
+
+    public Map<Long, Item> findAllById(Collection<Long> ids) {
+        return itemsById.getAll(ids, keys -> {
+            Map<Long, Item> loaded = new HashMap<>();
+            for (Item item : itemRepository.findAllById(new ArrayList<>(keys))) {
+                loaded.put(item.getId(), item);
+            }
+            return loaded;
+        });
+    }
+
+    public void put(Item item) {
+        itemsById.put(item.getId(), item);
+    }
+
+    public void invalidate(Item item) {
+        itemsById.invalidate(item.getId());
+    }
+
+    public CacheStatistics byIdStatistics() {
+        return new CacheStatistics(itemsById.estimatedSize(), itemsById.stats());
+    }
+}
@@ -5,23 +5,39 @@ import com.obs.purchase.exceptions.NotFoundExceptions;
 import com.obs.purchase.repository.ItemRepository;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 @Service
 public class ItemService implements BaseService<Item>{
     @Autowired
     private ItemRepository itemRepository;
 
+    @Autowired
+    private ItemCatalogCache itemCatalogCache;
+
+    @Autowired
+    private PurchaseMetrics purchaseMetrics;
 
     @Override
     public Item save(Item item) {
-        if(itemRepository.findByName(item.getName())!=null){
+        Item savedItem;
+        try {
+            savedItem = itemRepository.saveAndFlush(item);
+        } catch (DataIntegrityViolationException e) {
+            if (!UniqueConstraints.isViolated(e, UniqueConstraints.ITEM_NAME)) {
+                throw e;
+            }
+            purchaseMetrics.duplicateRejected("item");
             throw new DuplicateObjectExceptions("Duplicate Error", "item already registered");
         }
-        return itemRepository.save(item);
+        itemCatalogCache.put(savedItem);
+        return savedItem;
     }
 
     @Override
@@ -32,6 +48,7 @@ public class ItemService implements BaseService<Item>{
         }
         item.setDeletedAt(Instant.now());
         itemRepository.save(item);
+        itemCatalogCache.invalidate(item);
     }
 
     @Override
@@ -42,9 +59,11 @@ public class ItemService implements BaseService<Item>{
         }
         BeanUtils.copyProperties(item,itemSaved);
         itemRepository.save(itemSaved);
+        itemCatalogCache.invalidate(itemSaved);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Item findById(Long id) {
         Item user = itemRepository.findById(id).orElse(null);
         if(user==null){
@@ -54,8 +73,15 @@ public class ItemService implements BaseService<Item>{
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Item> findAll(int pageNo, int pageSize) {
         Pageable pageable = PageRequest.of(pageNo, pageSize);
         return itemRepository.findAll(pageable);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Item> findAllAfter(long afterId, int pageSize) {
+        return itemRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize));
+    }
 }
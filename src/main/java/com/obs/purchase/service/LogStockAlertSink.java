@@ -0,0 +1,19 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.dto.StockAlert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+@Service
+@ConditionalOnProperty(name = "purchase.stock.alert.log.enabled", havingValue = "true", matchIfMissing = true)
+public class LogStockAlertSink implements StockAlertSink {
+    private static final Logger log = LoggerFactory.getLogger(LogStockAlertSink.class);
+
+    @Override
+    public void send(StockAlert alert) {
+        log.warn("stock alert {} for item {}: stock {} against reorder level {}",
+                alert.getKind(), alert.getItemId(), alert.getStock(), alert.getReorderLevel());
+    }
+}
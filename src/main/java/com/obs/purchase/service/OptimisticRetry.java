@@ -0,0 +1,70 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.exceptions.ConcurrentUpdateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs an operation that lost an optimistic-lock race, with full-jitter exponential
+ * backoff. The operation must own its transaction: inside a caller's transaction the
+ * failure is rethrown at once, since that transaction is already marked rollback-only.
+ */
+@Service
+public class OptimisticRetry {
+    private final PurchaseMetrics purchaseMetrics;
+
+    @Value("${purchase.optimistic-retry.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Value("${purchase.optimistic-retry.base-backoff-ms:5}")
+    private long baseBackoffMs = 5;
+
+    @Value("${purchase.optimistic-retry.max-backoff-ms:200}")
+    private long maxBackoffMs = 200;
+
+    public OptimisticRetry(PurchaseMetrics purchaseMetrics) {
+        this.purchaseMetrics = purchaseMetrics;
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                purchaseMetrics.optimisticConflict(operation);
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    purchaseMetrics.optimisticRetriesExhausted(operation);
+                    throw new ConcurrentUpdateException("concurrent update", "record was modified concurrently, please retry");
+                }
+                purchaseMetrics.optimisticRetry(operation);
+                backoff(attempt);
+            }
+        }
+    }
+
+    public void run(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+        long sleepMs = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentUpdateException("concurrent update", "interrupted while retrying");
+        }
+    }
+}
@@ -4,31 +4,43 @@ import com.obs.purchase.entity.Inventory;
 import com.obs.purchase.entity.InventoryTransaction;
 import com.obs.purchase.entity.Item;
 import com.obs.purchase.entity.Order;
+import com.obs.purchase.entity.dto.BatchOrderResult;
+import com.obs.purchase.entity.dto.CartCheckout;
 import com.obs.purchase.enums.Type;
 import com.obs.purchase.exceptions.InvalidRequest;
 import com.obs.purchase.exceptions.NotFoundExceptions;
 import com.obs.purchase.repository.InventoryRepository;
 import com.obs.purchase.repository.InventoryTransactionRepository;
-import com.obs.purchase.repository.ItemRepository;
 import com.obs.purchase.repository.OrderRepository;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class OrderService implements BaseService<Order>{
+    private static final String ORDER_NO_SEQUENCE = "order_no";
+    private static final String CART_NO_SEQUENCE = "cart_no";
+
     @Autowired
     private OrderRepository orderRepository;
 
     @Autowired
-    private ItemRepository itemRepository;
+    private ItemCatalogCache itemCatalogCache;
 
     @Autowired
     private InventoryRepository inventoryRepository;
@@ -37,13 +49,34 @@ public class OrderService implements BaseService<Order>{
     @Autowired
     private InventoryTransactionService inventoryTransactionService;
 
+    @Autowired
+    private SequenceService sequenceService;
+
+    @Autowired
+    private PurchaseMetrics purchaseMetrics;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private TopItemsService topItemsService;
+
+    @Autowired
+    private ReplicaLagGuard replicaLagGuard;
+
+    @Value("${purchase.order.batch.max-size:10000}")
+    private int maxBatchSize = 10000;
+
+    @Value("${purchase.order.cart.max-lines:100}")
+    private int maxCartLines = 100;
+
     @Override
     @Transactional
     public Order save(Order order) {
         if (order.getOrderNo() == null || order.getOrderNo().isEmpty()) {
             order.setOrderNo(generateOrderNo());
         }
-        Item item = itemRepository.findById(order.getItemId()).orElse(null);
+        Item item = purchaseMetrics.time("itemCatalog.findById", () -> itemCatalogCache.findById(order.getItemId()));
         if(item==null){
             throw new NotFoundExceptions("not found error", "item is not found");
         }
@@ -51,7 +84,100 @@ public class OrderService implements BaseService<Order>{
         InventoryTransaction inventoryTransaction = new InventoryTransaction(order.getItemId(),order.getQty(),Type.WITHDRAWAL.getDisplayName());
 
         inventoryTransactionService.save(inventoryTransaction);
-        return orderRepository.save(order);
+        Order savedOrder = purchaseMetrics.time("order.save", () -> orderRepository.save(order));
+        salesRollupService.record(List.of(savedOrder));
+        topItemsService.record(List.of(savedOrder));
+        replicaLagGuard.ordersCreated(List.of(savedOrder));
+        return savedOrder;
+    }
+
+    @Transactional
+    public List<BatchOrderResult> saveBatch(List<Order> orders) {
+        if (orders.size() > maxBatchSize) {
+            throw new InvalidRequest("invalid request", "batch exceeds " + maxBatchSize + " orders");
+        }
+        Set<Long> itemIds = new HashSet<>();
+        for (Order order : orders) {
+            itemIds.add(order.getItemId());
+        }
+        Map<Long, Item> items = purchaseMetrics.time("itemCatalog.findAllById", () -> itemCatalogCache.findAllById(itemIds));
+
+        BatchOrderResult[] results = new BatchOrderResult[orders.size()];
+        List<Integer> stockLines = new ArrayList<>(orders.size());
+        List<InventoryTransaction> withdrawals = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            if (order.getQty() == null || order.getQty() <= 0) {
+                results[i] = BatchOrderResult.rejected(i, "invalid quantity");
+            } else if (!items.containsKey(order.getItemId())) {
+                results[i] = BatchOrderResult.rejected(i, "item is not found");
+            } else {
+                stockLines.add(i);
+                withdrawals.add(new InventoryTransaction(order.getItemId(), order.getQty(), Type.WITHDRAWAL.getDisplayName()));
+            }
+        }
+
+        List<String> rejections = inventoryTransactionService.saveWithdrawals(withdrawals);
+        List<Order> accepted = new ArrayList<>(stockLines.size());
+        for (int i = 0; i < stockLines.size(); i++) {
+            int line = stockLines.get(i);
+            if (rejections.get(i) != null) {
+                results[line] = BatchOrderResult.rejected(line, rejections.get(i));
+                continue;
+            }
+            Order order = orders.get(line);
+            if (order.getOrderNo() == null || order.getOrderNo().isEmpty()) {
+                order.setOrderNo(generateOrderNo());
+            }
+            order.setPrice(items.get(order.getItemId()).getPrice());
+            accepted.add(order);
+            results[line] = BatchOrderResult.accepted(line, order.getOrderNo());
+        }
+        purchaseMetrics.time("order.saveAll", () -> orderRepository.saveAll(accepted));
+        salesRollupService.record(accepted);
+        topItemsService.record(accepted);
+        replicaLagGuard.ordersCreated(accepted);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Places every line of the cart as an order in one transaction, or none of them.
+     */
+    @Transactional
+    public CartCheckout checkout(List<Order> lines) {
+        if (lines.isEmpty() || lines.size() > maxCartLines) {
+            throw new InvalidRequest("invalid request", "cart must have between 1 and " + maxCartLines + " lines");
+        }
+        Set<Long> itemIds = new HashSet<>();
+        for (Order line : lines) {
+            if (line.getQty() == null || line.getQty() <= 0) {
+                throw new InvalidRequest("invalid request", "invalid quantity for item " + line.getItemId());
+            }
+            itemIds.add(line.getItemId());
+        }
+        Map<Long, Item> items = purchaseMetrics.time("itemCatalog.findAllById", () -> itemCatalogCache.findAllById(itemIds));
+        List<InventoryTransaction> withdrawals = new ArrayList<>(lines.size());
+        for (Order line : lines) {
+            if (!items.containsKey(line.getItemId())) {
+                throw new NotFoundExceptions("not found error", "item " + line.getItemId() + " is not found");
+            }
+            withdrawals.add(new InventoryTransaction(line.getItemId(), line.getQty(), Type.WITHDRAWAL.getDisplayName()));
+        }
+        inventoryTransactionService.saveAllOrNothing(withdrawals);
+
+        String cartNo = "C" + sequenceService.next(CART_NO_SEQUENCE, () -> 1);
+        long total = 0;
+        for (Order line : lines) {
+            line.setOrderNo(generateOrderNo());
+            line.setCartNo(cartNo);
+            line.setPrice(items.get(line.getItemId()).getPrice());
+            total += line.getPrice() * line.getQty();
+        }
+        purchaseMetrics.time("order.saveAll", () -> orderRepository.saveAll(lines));
+        salesRollupService.record(lines);
+        topItemsService.record(lines);
+        replicaLagGuard.ordersCreated(lines);
+        return new CartCheckout(cartNo, lines, total);
     }
 
     @Override
@@ -60,8 +186,12 @@ public class OrderService implements BaseService<Order>{
         if(order==null){
             throw new NotFoundExceptions("not found error", "order transaction not found");
         }
+        boolean counted = order.getDeletedAt() == null;
         order.setDeletedAt(Instant.now());
         orderRepository.save(order);
+        if (counted) {
+            salesRollupService.unrecord(List.of(order));
+        }
     }
 
     @Override
@@ -75,8 +205,9 @@ public class OrderService implements BaseService<Order>{
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Order findById(Long id) {
-        Order order = orderRepository.findById(id).orElse(null);
+        Order order = replicaLagGuard.readOrder(id, () -> orderRepository.findById(id).orElse(null));
         if(order==null){
             throw new NotFoundExceptions("not found error", "order not found");
         }
@@ -84,19 +215,31 @@ public class OrderService implements BaseService<Order>{
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Order> findAll(int pageNo, int pageSize) {
         Pageable pageable = PageRequest.of(pageNo, pageSize);
         return orderRepository.findAll(pageable);    }
 
-    private String generateOrderNo() {
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Order> findAllAfter(long afterId, int pageSize) {
+        return orderRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize));
+    }
+
+    public String generateOrderNo() {
+        return "O" + sequenceService.next(ORDER_NO_SEQUENCE, this::firstOrderNumber);
+    }
+
+    // only used once, when the sequence row is created, to continue after existing orders
+    private long firstOrderNumber() {
         Optional<Order> lastOrder = orderRepository.findTopByOrderByIdDesc();
 
         if (lastOrder.isPresent()) {
             String lastOrderNo = lastOrder.get().getOrderNo();
-            int lastOrderNumber = Integer.parseInt(lastOrderNo.substring(1)); // Remove the "O" prefix
-            return "O" + (lastOrderNumber + 1);
+            long lastOrderNumber = Long.parseLong(lastOrderNo.substring(1)); // Remove the "O" prefix
+            return lastOrderNumber + 1;
         } else {
-            return "O1";
+            return 1;
         }
     }
 }
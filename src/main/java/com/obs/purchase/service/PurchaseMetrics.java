@@ -0,0 +1,91 @@
+package com.obs.purchase.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the order and stock hot path, published through /actuator/prometheus.
+ * Contention is the number of stock changes already in flight on the same item when
+ * a new one starts, tagged by itemId so hot SKUs stand out.
+ * Meters are registered once per name and tag and kept here, so a timed call costs a map
+ * lookup rather than a builder and a registry lookup.
+ */
+@Service
+public class PurchaseMetrics {
+    public static final String REPOSITORY_CALLS = "purchase.repository.calls";
+    public static final String STOCK_REJECTIONS = "purchase.stock.rejections";
+    public static final String DUPLICATES = "purchase.duplicates";
+    public static final String STOCK_CONTENTION = "purchase.stock.contention";
+    public static final String OPTIMISTIC_CONFLICTS = "purchase.optimistic.conflicts";
+    public static final String OPTIMISTIC_RETRIES = "purchase.optimistic.retries";
+    public static final String OPTIMISTIC_EXHAUSTED = "purchase.optimistic.exhausted";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Long, Integer> inFlightByItem = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    // meter name -> tag value -> counter
+    private final Map<String, Map<String, Counter>> counters = new ConcurrentHashMap<>();
+
+    private final Map<Long, DistributionSummary> contentionByItem = new ConcurrentHashMap<>();
+
+    public PurchaseMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T time(String call, Supplier<T> repositoryCall) {
+        return timers.computeIfAbsent(call, key -> Timer.builder(REPOSITORY_CALLS)
+                .tag("call", key)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(repositoryCall);
+    }
+
+    public void stockRejected(String reason) {
+        counter(STOCK_REJECTIONS, "reason", reason).increment();
+    }
+
+    public void duplicateRejected(String entity) {
+        counter(DUPLICATES, "entity", entity).increment();
+    }
+
+    public void optimisticConflict(String operation) {
+        counter(OPTIMISTIC_CONFLICTS, "operation", operation).increment();
+    }
+
+    public void optimisticRetry(String operation) {
+        counter(OPTIMISTIC_RETRIES, "operation", operation).increment();
+    }
+
+    public void optimisticRetriesExhausted(String operation) {
+        counter(OPTIMISTIC_EXHAUSTED, "operation", operation).increment();
+    }
+
+    public <T> T trackStockChange(long itemId, Supplier<T> stockChange) {
+        int contending = inFlightByItem.merge(itemId, 1, Integer::sum) - 1;
+        contentionByItem.computeIfAbsent(itemId, id -> DistributionSummary.builder(STOCK_CONTENTION)
+                .tag("itemId", String.valueOf(id))
+                .serviceLevelObjectives(1, 2, 4, 8, 16, 32, 64)
+                .register(meterRegistry))
+                .record(contending);
+        try {
+            return stockChange.get();
+        } finally {
+            inFlightByItem.computeIfPresent(itemId, (id, inFlight) -> inFlight == 1 ? null : inFlight - 1);
+        }
+    }
+
+    private Counter counter(String name, String tagKey, String tagValue) {
+        return counters.computeIfAbsent(name, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(tagValue, value -> Counter.builder(name).tag(tagKey, value).register(meterRegistry));
+    }
+}
@@ -0,0 +1,40 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.dto.StockAlert;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the latest alerts in memory for GET /inventories/alerts to drain; once full,
+ * the oldest alert is dropped for each new one.
+ */
+@Service
+public class QueueStockAlertSink implements StockAlertSink {
+
+    @Value("${purchase.stock.alert.queue.capacity:1000}")
+    private int capacity = 1000;
+
+    private final Deque<StockAlert> alerts = new ArrayDeque<>();
+
+    @Override
+    public synchronized void send(StockAlert alert) {
+        if (alerts.size() >= capacity) {
+            alerts.pollFirst();
+        }
+        alerts.addLast(alert);
+    }
+
+    /** Removes and returns up to max alerts, oldest first. */
+    public synchronized List<StockAlert> drain(int max) {
+        List<StockAlert> drained = new ArrayList<>(Math.min(max, alerts.size()));
+        while (drained.size() < max && !alerts.isEmpty()) {
+            drained.add(alerts.pollFirst());
+        }
+        return drained;
+    }
+}
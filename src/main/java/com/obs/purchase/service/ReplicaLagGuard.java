@@ -0,0 +1,78 @@
+package com.obs.purchase.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.obs.purchase.config.ReplicaRoutingDataSource;
+import com.obs.purchase.entity.Order;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Read-your-writes for orders while reads go to the replica. Orders created on this node are
+ * remembered for purchase.datasource.replica.max-lag after they commit, and a read of one of
+ * them within that window is pinned to the primary, the only copy certain to have it. The
+ * window should be above the replication lag the replica is allowed to reach.
+ */
+@Service
+public class ReplicaLagGuard {
+
+    @Value("${purchase.datasource.replica.enabled:false}")
+    private boolean enabled;
+
+    @Value("${purchase.datasource.replica.max-lag:5s}")
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    @Value("${purchase.datasource.replica.recent-writes.maximum-size:100000}")
+    private long maximumSize = 100000;
+
+    private Cache<Long, Boolean> recentOrders;
+
+    @PostConstruct
+    public void init() {
+        recentOrders = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxLag)
+                .build();
+    }
+
+    public void ordersCreated(Collection<Order> orders) {
+        if (!enabled || orders.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            ids.add(order.getId());
+        }
+        afterCommit(() -> ids.forEach(id -> recentOrders.put(id, Boolean.TRUE)));
+    }
+
+    /** Runs the read of the order on the primary if the order was created within the window. */
+    public <T> T readOrder(long orderId, Supplier<T> read) {
+        if (enabled && recentOrders.getIfPresent(orderId) != null) {
+            return ReplicaRoutingDataSource.onPrimary(read);
+        }
+        return read.get();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,244 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.Order;
+import com.obs.purchase.entity.SalesRollup;
+import com.obs.purchase.entity.dto.SalesBucket;
+import com.obs.purchase.enums.RollupGranularity;
+import com.obs.purchase.exceptions.InvalidRequest;
+import com.obs.purchase.repository.SalesRollupRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-item sales totals by minute, hour and day, kept up to date as orders commit so
+ * reports never scan the orders table. Committed orders are added to in-memory buckets,
+ * which {@link #flush()} adds onto the sales_rollup rows; reports read the rows plus
+ * whatever has not been flushed yet, including the buckets a flush is writing.
+ */
+@Service
+public class SalesRollupService {
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private PurchaseMetrics purchaseMetrics;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${purchase.report.sales.max-buckets:1440}")
+    private int maxBuckets = 1440;
+
+    private volatile Map<BucketKey, Totals> pending = new ConcurrentHashMap<>();
+
+    // the buckets a flush has swapped out of pending and not committed yet
+    private volatile Map<BucketKey, Totals> inFlight = Map.of();
+
+    // recorders share it; flush takes it alone to swap the pending buckets out
+    private final ReadWriteLock recordLock = new ReentrantReadWriteLock();
+
+    // reports share it; flush takes it alone to move buckets between pending, inFlight and the rows,
+    // but not while it writes them, so a report sees every bucket in exactly one place
+    private final ReadWriteLock reportLock = new ReentrantReadWriteLock();
+
+    /** Adds the orders to the rollups once the surrounding transaction commits. */
+    public void record(Collection<Order> orders) {
+        afterCommit(orders, 1);
+    }
+
+    /** Takes the orders back out of the rollups once the surrounding transaction commits. */
+    public void unrecord(Collection<Order> orders) {
+        afterCommit(orders, -1);
+    }
+
+    @Scheduled(fixedDelayString = "${purchase.report.rollup.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        Map<BucketKey, Totals> flushing;
+        reportLock.writeLock().lock();
+        try {
+            recordLock.writeLock().lock();
+            try {
+                flushing = pending;
+                pending = new ConcurrentHashMap<>();
+                inFlight = flushing;
+            } finally {
+                recordLock.writeLock().unlock();
+            }
+        } finally {
+            reportLock.writeLock().unlock();
+        }
+        if (flushing.isEmpty()) {
+            inFlight = Map.of();
+            return;
+        }
+        RuntimeException failure = null;
+        TransactionStatus status = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+        try {
+            flushing.forEach((key, totals) -> purchaseMetrics.time("salesRollup.addToRollup", () -> salesRollupRepository.addToRollup(
+                    key.granularity.name(), key.itemId, key.bucketStart, totals.orders, totals.units, totals.revenue)));
+        } catch (RuntimeException e) {
+            failure = e;
+            transactionManager.rollback(status);
+        }
+        reportLock.writeLock().lock();
+        try {
+            if (failure == null) {
+                transactionManager.commit(status);
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            if (failure != null) {
+                flushing.forEach((key, totals) -> add(key, totals.orders, totals.units, totals.revenue));
+                log.warn("sales rollup flush failed, will retry {} buckets", flushing.size(), failure);
+            }
+            inFlight = Map.of();
+            reportLock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Sales per item and bucket in [from, to), from the bucket containing from;
+     * only for itemId when it is given.
+     */
+    public List<SalesBucket> sales(RollupGranularity granularity, Instant from, Instant to, Long itemId) {
+        if (!from.isBefore(to)) {
+            throw new InvalidRequest("invalid request", "from must be before to");
+        }
+        if (granularity.bucketsBetween(from, to) > maxBuckets) {
+            throw new InvalidRequest("invalid request", "range spans more than " + maxBuckets + " buckets, use a coarser granularity");
+        }
+        Instant start = granularity.bucketStart(from);
+        Map<BucketKey, SalesBucket> buckets = new HashMap<>();
+        reportLock.readLock().lock();
+        try {
+            List<SalesRollup> rollups = itemId == null
+                    ? purchaseMetrics.time("salesRollup.findBuckets", () -> salesRollupRepository.findBuckets(granularity, start, to))
+                    : purchaseMetrics.time("salesRollup.findBucketsByItemId", () -> salesRollupRepository.findBucketsByItemId(granularity, itemId, start, to));
+            for (SalesRollup rollup : rollups) {
+                buckets.put(new BucketKey(granularity, rollup.getItemId(), rollup.getBucketStart()), new SalesBucket(rollup.getItemId(),
+                        rollup.getBucketStart(), rollup.getOrderCount(), rollup.getUnits(), rollup.getRevenue()));
+            }
+            addUnflushed(buckets, inFlight, granularity, start, to, itemId);
+            addUnflushed(buckets, pending, granularity, start, to, itemId);
+        } finally {
+            reportLock.readLock().unlock();
+        }
+        List<SalesBucket> result = new ArrayList<>(buckets.values());
+        result.sort(Comparator.comparing(SalesBucket::getBucketStart).thenComparingLong(SalesBucket::getItemId));
+        return result;
+    }
+
+    private static void addUnflushed(Map<BucketKey, SalesBucket> buckets, Map<BucketKey, Totals> unflushed,
+                                     RollupGranularity granularity, Instant start, Instant to, Long itemId) {
+        unflushed.forEach((key, totals) -> {
+            if (key.granularity == granularity && (itemId == null || key.itemId == itemId)
+                    && !key.bucketStart.isBefore(start) && key.bucketStart.isBefore(to)) {
+                SalesBucket bucket = buckets.computeIfAbsent(key, k -> new SalesBucket(k.itemId, k.bucketStart, 0, 0, 0));
+                synchronized (totals) {
+                    bucket.setOrders(bucket.getOrders() + totals.orders);
+                    bucket.setUnits(bucket.getUnits() + totals.units);
+                    bucket.setRevenue(bucket.getRevenue() + totals.revenue);
+                }
+            }
+        });
+    }
+
+    private void afterCommit(Collection<Order> orders, int sign) {
+        List<Order> committed = List.copyOf(orders);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(committed, sign);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(committed, sign);
+            }
+        });
+    }
+
+    private void apply(List<Order> orders, int sign) {
+        recordLock.readLock().lock();
+        try {
+            for (Order order : orders) {
+                Instant createdAt = order.getCreatedAt() == null ? Instant.now() : order.getCreatedAt();
+                long units = (long) sign * order.getQty();
+                for (RollupGranularity granularity : RollupGranularity.values()) {
+                    add(new BucketKey(granularity, order.getItemId(), granularity.bucketStart(createdAt)), sign, units, units * order.getPrice());
+                }
+            }
+        } finally {
+            recordLock.readLock().unlock();
+        }
+    }
+
+    private void add(BucketKey key, long orders, long units, long revenue) {
+        Totals totals = pending.computeIfAbsent(key, k -> new Totals());
+        synchronized (totals) {
+            totals.orders += orders;
+            totals.units += units;
+            totals.revenue += revenue;
+        }
+    }
+
+    private static final class BucketKey {
+        private final RollupGranularity granularity;
+        private final long itemId;
+        private final Instant bucketStart;
+
+        private BucketKey(RollupGranularity granularity, long itemId, Instant bucketStart) {
+            this.granularity = granularity;
+            this.itemId = itemId;
+            this.bucketStart = bucketStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BucketKey other)) {
+                return false;
+            }
+            return granularity == other.granularity && itemId == other.itemId && bucketStart.equals(other.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularity, itemId, bucketStart);
+        }
+    }
+
+    private static final class Totals {
+        private long orders;
+        private long units;
+        private long revenue;
+    }
+}
@@ -0,0 +1,79 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.repository.SequenceAllocationStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Hi/lo sequence allocator. Each node reserves a block of values from the
+ * sequence_allocation table and hands them out from an AtomicLong, so only one in every
+ * blockSize calls touches the database. Blocks are reserved through
+ * {@link SequenceAllocationStore}, whose connections no caller can be holding, and each
+ * sequence has its own lock, so a refill never waits on the pool its callers hold.
+ */
+@Service
+public class SequenceService {
+    @Autowired
+    private SequenceAllocationStore sequenceAllocationStore;
+
+    @Value("${purchase.sequence.block-size:1000}")
+    private int blockSize = 1000;
+
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    public long next(String name, LongSupplier initialValue) {
+        while (true) {
+            Block block = blocks.computeIfAbsent(name, key -> Block.EMPTY);
+            long value = block.next.getAndIncrement();
+            if (value < block.limit) {
+                return value;
+            }
+            refill(name, block, initialValue);
+        }
+    }
+
+    private void refill(String name, Block exhausted, LongSupplier initialValue) {
+        Object lock = locks.computeIfAbsent(name, key -> new Object());
+        synchronized (lock) {
+            if (blocks.get(name) != exhausted) {
+                return;
+            }
+            Long start = sequenceAllocationStore.reserve(name, blockSize);
+            if (start != null) {
+                blocks.put(name, new Block(start, start + blockSize));
+                return;
+            }
+        }
+        // first use of the sequence; the initial value may query the main pool, so not under the lock
+        long initial = initialValue.getAsLong();
+        synchronized (lock) {
+            if (blocks.get(name) != exhausted) {
+                return;
+            }
+            long start = sequenceAllocationStore.create(name, initial, blockSize)
+                    ? initial
+                    : sequenceAllocationStore.reserve(name, blockSize); // another node created the row first
+            blocks.put(name, new Block(start, start + blockSize));
+        }
+    }
+
+    private static final class Block {
+        private static final Block EMPTY = new Block(0, 0);
+
+        private final AtomicLong next;
+        private final long limit;
+
+        private Block(long start, long limit) {
+            this.next = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.obs.purchase.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Stock for one item split across independent counters. Each withdrawal starts on a random
+ * shard, so concurrent orders for the same item rarely CAS the same cache line; a shard
+ * that can't cover the quantity alone is topped up from the others, and reservations never
+ * take more than the sum. With one shard this is a plain CAS counter.
+ *
+ * Anything that moves stock between shards in more than one step (the multi-shard reserve,
+ * rebalance, set) holds the write lock of {@link #moves}, and {@link #get()} only trusts a
+ * sum no move overlapped. Single-shard reserves and adds are one CAS and skip the lock.
+ */
+public class ShardedStock {
+    // 16 ints = 64 bytes between shards, so neighbours don't share a cache line
+    private static final int STRIDE = 16;
+
+    private final int shardCount;
+    private final AtomicIntegerArray cells;
+    private final StampedLock moves = new StampedLock();
+
+    public ShardedStock(int shardCount, int stock) {
+        this.shardCount = Math.max(1, shardCount);
+        this.cells = new AtomicIntegerArray(this.shardCount == 1 ? 1 : this.shardCount * STRIDE);
+        set(stock);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int get() {
+        long stamp = moves.tryOptimisticRead();
+        int total = sum();
+        if (moves.validate(stamp)) {
+            return total;
+        }
+        stamp = moves.readLock();
+        try {
+            return sum();
+        } finally {
+            moves.unlockRead(stamp);
+        }
+    }
+
+    public int getShard(int shard) {
+        return cells.get(shard * STRIDE);
+    }
+
+    public boolean reserve(int qty) {
+        int start = probe();
+        for (int i = 0; i < shardCount; i++) {
+            if (takeExactly((start + i) % shardCount, qty)) {
+                return true;
+            }
+        }
+        if (shardCount == 1) {
+            return false;
+        }
+        // a concurrent move may have made every shard look short, so retry once no move is in flight
+        long stamp = moves.writeLock();
+        try {
+            return reserveAcrossShards(start, qty);
+        } finally {
+            moves.unlockWrite(stamp);
+        }
+    }
+
+    public void add(int delta) {
+        cells.addAndGet(probe() * STRIDE, delta);
+    }
+
+    public void set(int stock) {
+        getAndSet(stock);
+    }
+
+    /**
+     * Sets the stock and returns the stock it replaced. Each shard is swapped in one step, so
+     * a concurrent reserve or add counts either in the returned stock or against the new one.
+     */
+    public int getAndSet(int stock) {
+        long stamp = moves.writeLock();
+        try {
+            int previous = 0;
+            for (int shard = 0; shard < shardCount; shard++) {
+                previous += cells.getAndSet(shard * STRIDE, stock / shardCount + (shard < stock % shardCount ? 1 : 0));
+            }
+            return previous;
+        } finally {
+            moves.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Moves half the gap from the fullest shard to the emptiest one, so random withdrawals
+     * keep finding stock locally instead of falling back to the multi-shard path.
+     */
+    public void rebalance() {
+        if (shardCount == 1) {
+            return;
+        }
+        long stamp = moves.writeLock();
+        try {
+            moveHalfTheGap();
+        } finally {
+            moves.unlockWrite(stamp);
+        }
+    }
+
+    private void moveHalfTheGap() {
+        int richest = 0;
+        int poorest = 0;
+        for (int shard = 1; shard < shardCount; shard++) {
+            if (getShard(shard) > getShard(richest)) {
+                richest = shard;
+            }
+            if (getShard(shard) < getShard(poorest)) {
+                poorest = shard;
+            }
+        }
+        int moved = takeUpTo(richest, (getShard(richest) - getShard(poorest)) / 2);
+        if (moved > 0) {
+            cells.addAndGet(poorest * STRIDE, moved);
+        }
+    }
+
+    private boolean reserveAcrossShards(int start, int qty) {
+        int[] taken = new int[shardCount];
+        int remaining = qty;
+        for (int i = 0; i < shardCount && remaining > 0; i++) {
+            int shard = (start + i) % shardCount;
+            taken[shard] = takeUpTo(shard, remaining);
+            remaining -= taken[shard];
+        }
+        if (remaining == 0) {
+            return true;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (taken[shard] > 0) {
+                cells.addAndGet(shard * STRIDE, taken[shard]);
+            }
+        }
+        return false;
+    }
+
+    private int sum() {
+        int total = 0;
+        for (int shard = 0; shard < shardCount; shard++) {
+            total += cells.get(shard * STRIDE);
+        }
+        return total;
+    }
+
+    private int probe() {
+        return shardCount == 1 ? 0 : ThreadLocalRandom.current().nextInt(shardCount);
+    }
+
+    private boolean takeExactly(int shard, int qty) {
+        int index = shard * STRIDE;
+        while (true) {
+            int current = cells.get(index);
+            if (current < qty) {
+                return false;
+            }
+            if (cells.compareAndSet(index, current, current - qty)) {
+                return true;
+            }
+        }
+    }
+
+    private int takeUpTo(int shard, int qty) {
+        int index = shard * STRIDE;
+        while (true) {
+            int current = cells.get(index);
+            int taken = Math.min(current, qty);
+            if (taken <= 0) {
+                return 0;
+            }
+            if (cells.compareAndSet(index, current, current - taken)) {
+                return taken;
+            }
+        }
+    }
+}
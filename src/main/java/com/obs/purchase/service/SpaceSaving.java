@@ -0,0 +1,79 @@
+package com.obs.purchase.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy-hitter summary over weighted item ids, holding at most capacity
+ * counters no matter how many distinct items are added. A new item that finds the summary
+ * full takes over the smallest counter and inherits its count as error, so a count is
+ * never below the item's true total and never above it by more than the error. Any item
+ * whose total exceeds total/capacity is guaranteed to hold a counter.
+ */
+public class SpaceSaving {
+    private static final Comparator<Counter> BY_COUNT = Comparator.comparingLong(Counter::getCount).thenComparingLong(Counter::getItemId);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void add(long itemId, long weight) {
+        Counter counter = counters.get(itemId);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter = new Counter(itemId, counter.count + weight, counter.error);
+        } else if (counters.size() < capacity) {
+            counter = new Counter(itemId, weight, 0);
+        } else {
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.itemId);
+            counter = new Counter(itemId, smallest.count + weight, smallest.count);
+        }
+        counters.put(itemId, counter);
+        byCount.add(counter);
+    }
+
+    /** The counters, largest count first. */
+    public synchronized List<Counter> counters() {
+        return new ArrayList<>(byCount.descendingSet());
+    }
+
+    public static final class Counter {
+        private final long itemId;
+        private final long count;
+        private final long error;
+
+        public Counter(long itemId, long count, long error) {
+            this.itemId = itemId;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getItemId() {
+            return itemId;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.Inventory;
+import com.obs.purchase.entity.dto.StockAlert;
+import com.obs.purchase.enums.StockAlertKind;
+import com.obs.purchase.repository.InventoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Low-stock alerts for items with a reorder level, evaluated on each committed stock change
+ * in O(1): the item's watch is looked up, its stock moved by the delta (or read from the
+ * stock ledger when it is enabled) and compared to the level. There are no scans.
+ * An item turns LOW at or below its reorder level and OUT at zero, and only returns to OK
+ * once stock rises above the level plus the hysteresis. Sinks are told about state changes
+ * only, at most once per cooldown per item, except that running out is always reported.
+ */
+@Service
+public class StockAlertService {
+    private static final Logger log = LoggerFactory.getLogger(StockAlertService.class);
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private List<StockAlertSink> sinks;
+
+    @Value("${purchase.stock.alert.hysteresis:5}")
+    private int hysteresis = 5;
+
+    @Value("${purchase.stock.alert.cooldown:5m}")
+    private Duration cooldown = Duration.ofMinutes(5);
+
+    private final Map<Long, Watch> watches = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (Inventory inventory : inventoryRepository.findExistingRecord()) {
+            if (inventory.getReorderLevel() != null) {
+                watches.put(inventory.getItemId(), new Watch(inventory.getReorderLevel(), inventory.getStock() == null ? 0 : inventory.getStock()));
+            }
+        }
+        log.info("stock alerts loaded for {} items", watches.size());
+    }
+
+    /** Sets the item's reorder level and stock outright, as after an inventory save; null stops alerts. */
+    public void watch(long itemId, Integer reorderLevel, int stock) {
+        if (reorderLevel == null) {
+            watches.remove(itemId);
+            return;
+        }
+        Watch watch = watches.computeIfAbsent(itemId, id -> new Watch(reorderLevel, stock));
+        StockAlert alert;
+        synchronized (watch) {
+            watch.reorderLevel = reorderLevel;
+            watch.stock = stock;
+            alert = evaluate(itemId, watch);
+        }
+        send(alert);
+    }
+
+    public void unwatch(long itemId) {
+        watches.remove(itemId);
+    }
+
+    /** Evaluates the item once the surrounding transaction commits a stock change of delta. */
+    public void onStockChange(long itemId, int delta) {
+        if (!watches.containsKey(itemId)) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(itemId, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(itemId, delta);
+            }
+        });
+    }
+
+    private void apply(long itemId, int delta) {
+        Watch watch = watches.get(itemId);
+        if (watch == null) {
+            return;
+        }
+        StockAlert alert;
+        synchronized (watch) {
+            Integer ledgerStock = stockLedger.isEnabled() ? stockLedger.getStock(itemId) : null;
+            watch.stock = ledgerStock != null ? ledgerStock : watch.stock + delta;
+            alert = evaluate(itemId, watch);
+        }
+        send(alert);
+    }
+
+    private StockAlert evaluate(long itemId, Watch watch) {
+        if (watch.stock <= 0) {
+            watch.state = StockAlertKind.OUT_OF_STOCK;
+        } else if (watch.stock <= watch.reorderLevel) {
+            if (watch.state != StockAlertKind.OUT_OF_STOCK) {
+                watch.state = StockAlertKind.LOW_STOCK;
+            }
+        } else if (watch.stock > watch.reorderLevel + hysteresis) {
+            watch.state = StockAlertKind.RESTOCKED;
+        }
+        if (watch.state == watch.reported) {
+            return null;
+        }
+        Instant now = Instant.now();
+        boolean coolingDown = watch.reportedAt != null && now.isBefore(watch.reportedAt.plus(cooldown));
+        if (coolingDown && watch.state != StockAlertKind.OUT_OF_STOCK) {
+            return null;
+        }
+        watch.reported = watch.state;
+        watch.reportedAt = now;
+        return new StockAlert(itemId, watch.state, watch.stock, watch.reorderLevel, now);
+    }
+
+    private void send(StockAlert alert) {
+        if (alert == null) {
+            return;
+        }
+        for (StockAlertSink sink : sinks) {
+            try {
+                sink.send(alert);
+            } catch (RuntimeException e) {
+                log.warn("stock alert sink {} failed for item {}", sink.getClass().getSimpleName(), alert.getItemId(), e);
+            }
+        }
+    }
+
+    private static final class Watch {
+        private int reorderLevel;
+        private int stock;
+        // RESTOCKED doubles as the healthy state, which needs no alert to start from
+        private StockAlertKind state = StockAlertKind.RESTOCKED;
+        private StockAlertKind reported = StockAlertKind.RESTOCKED;
+        private Instant reportedAt;
+
+        private Watch(int reorderLevel, int stock) {
+            this.reorderLevel = reorderLevel;
+            this.stock = stock;
+        }
+    }
+}
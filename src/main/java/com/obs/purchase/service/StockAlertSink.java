@@ -0,0 +1,11 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.dto.StockAlert;
+
+/**
+ * Destination for stock alerts. Called on the thread that committed the stock change,
+ * so implementations must not block.
+ */
+public interface StockAlertSink {
+    void send(StockAlert alert);
+}
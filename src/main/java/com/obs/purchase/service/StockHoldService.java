@@ -0,0 +1,289 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.entity.StockHold;
+import com.obs.purchase.enums.HoldState;
+import com.obs.purchase.enums.Type;
+import com.obs.purchase.exceptions.InvalidRequest;
+import com.obs.purchase.exceptions.NotFoundExceptions;
+import com.obs.purchase.repository.InventoryRepository;
+import com.obs.purchase.repository.InventoryTransactionRepository;
+import com.obs.purchase.repository.StockHoldRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time-limited stock holds. A hold moves stock from available to reserved on the inventory
+ * row, or in the stock ledger when it is enabled. Confirming it writes the one withdrawal
+ * transaction, and releasing or expiring it gives the stock back once that transaction commits,
+ * so a rolled-back expiry batch never hands the same units out twice. Nothing reaches the
+ * transaction log until a hold is confirmed. Expiry runs on a {@link TimingWheel} ticking
+ * every purchase.stock.hold.tick-ms, so the cost of a tick depends on the holds that are
+ * due, not on how many are outstanding. Holds still HELD are put back on the wheel at startup.
+ */
+@Service
+public class StockHoldService {
+    private static final Logger log = LoggerFactory.getLogger(StockHoldService.class);
+    private static final String HOLD_NO_SEQUENCE = "hold_no";
+    private static final String OUT_OF_STOCK = "out_of_stock";
+    private static final String LIMITED_STOCK = "limited_stock";
+    private static final int LOAD_PAGE_SIZE = 10000;
+
+    @Autowired
+    private StockHoldRepository stockHoldRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryTransactionRepository inventoryTransactionRepository;
+
+    @Autowired
+    private ItemCatalogCache itemCatalogCache;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private SequenceService sequenceService;
+
+    @Autowired
+    private StockAlertService stockAlertService;
+
+    @Autowired
+    private PurchaseMetrics purchaseMetrics;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${purchase.stock.hold.ttl:5m}")
+    private Duration defaultTtl = Duration.ofMinutes(5);
+
+    @Value("${purchase.stock.hold.max-ttl:1h}")
+    private Duration maxTtl = Duration.ofHours(1);
+
+    @Value("${purchase.stock.hold.tick-ms:1000}")
+    private long tickMillis = 1000;
+
+    @Value("${purchase.stock.hold.wheel-size:64}")
+    private int wheelSize = 64;
+
+    @Value("${purchase.stock.hold.expiry-batch-size:500}")
+    private int expiryBatchSize = 500;
+
+    private TimingWheel<Long> wheel;
+
+    private final Map<Long, TimingWheel.Timeout<Long>> timeouts = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long afterId = 0;
+        int loaded = 0;
+        Slice<StockHold> page;
+        do {
+            long after = afterId;
+            page = purchaseMetrics.time("stockHold.findByState",
+                    () -> stockHoldRepository.findByStateAndIdGreaterThanOrderByIdAsc(HoldState.HELD, after, PageRequest.of(0, LOAD_PAGE_SIZE)));
+            for (StockHold hold : page) {
+                schedule(hold.getId(), hold.getExpiresAt());
+                afterId = hold.getId();
+                loaded++;
+            }
+        } while (page.hasNext());
+        log.info("stock holds loaded, {} outstanding", loaded);
+    }
+
+    /** Holds qty of the item for ttl, or the default ttl when it is null. */
+    @Transactional
+    public StockHold hold(long itemId, int qty, Duration ttl) {
+        Duration holdFor = ttl == null ? defaultTtl : ttl;
+        if (qty <= 0) {
+            throw new InvalidRequest("invalid request", "qty must be positive");
+        }
+        if (holdFor.isNegative() || holdFor.isZero() || holdFor.compareTo(maxTtl) > 0) {
+            throw new InvalidRequest("invalid request", "ttl must be positive and at most " + maxTtl);
+        }
+        if (purchaseMetrics.time("itemCatalog.findById", () -> itemCatalogCache.findById(itemId)) == null) {
+            throw new NotFoundExceptions("not found error", "item is not found");
+        }
+        purchaseMetrics.trackStockChange(itemId, () -> {
+            takeStock(itemId, qty);
+            return null;
+        });
+        StockHold hold = new StockHold("H" + sequenceService.next(HOLD_NO_SEQUENCE, () -> 1), itemId, qty, Instant.now().plus(holdFor));
+        StockHold savedHold = purchaseMetrics.time("stockHold.save", () -> stockHoldRepository.save(hold));
+        stockAlertService.onStockChange(itemId, -qty);
+        afterCommit(() -> schedule(savedHold.getId(), savedHold.getExpiresAt()));
+        return savedHold;
+    }
+
+    /** Turns the hold into a withdrawal; the stock already left what is available when it was held. */
+    @Transactional
+    public InventoryTransaction confirm(String holdNo) {
+        StockHold hold = activeHold(holdNo);
+        if (!hold.getExpiresAt().isAfter(Instant.now())) {
+            throw new InvalidRequest("invalid request", "hold has expired");
+        }
+        hold.setState(HoldState.CONFIRMED);
+        purchaseMetrics.time("stockHold.save", () -> stockHoldRepository.save(hold));
+        purchaseMetrics.time("inventory.changeReserved", () -> inventoryRepository.changeReserved(hold.getItemId(), -hold.getQty()));
+        InventoryTransaction withdrawal = new InventoryTransaction(hold.getItemId(), hold.getQty(), Type.WITHDRAWAL.getDisplayName());
+        InventoryTransaction savedWithdrawal = purchaseMetrics.time("inventoryTransaction.save", () -> inventoryTransactionRepository.save(withdrawal));
+        afterCommit(() -> cancel(hold.getId()));
+        return savedWithdrawal;
+    }
+
+    @Transactional
+    public StockHold release(String holdNo) {
+        StockHold hold = activeHold(holdNo);
+        hold.setState(HoldState.RELEASED);
+        purchaseMetrics.time("stockHold.save", () -> stockHoldRepository.save(hold));
+        giveBack(hold.getItemId(), hold.getQty());
+        afterCommit(() -> cancel(hold.getId()));
+        return hold;
+    }
+
+    public StockHold findByHoldNo(String holdNo) {
+        StockHold hold = purchaseMetrics.time("stockHold.findByHoldNo", () -> stockHoldRepository.findByHoldNo(holdNo));
+        if (hold == null) {
+            throw new NotFoundExceptions("not found error", "hold is not found");
+        }
+        return hold;
+    }
+
+    @Scheduled(fixedDelayString = "${purchase.stock.hold.tick-ms:1000}")
+    public void expire() {
+        expire(System.currentTimeMillis());
+    }
+
+    int expire(long nowMillis) {
+        List<Long> due = wheel().advance(nowMillis);
+        int expired = 0;
+        for (int start = 0; start < due.size(); start += expiryBatchSize) {
+            List<Long> batch = due.subList(start, Math.min(start + expiryBatchSize, due.size()));
+            batch.forEach(timeouts::remove);
+            try {
+                Integer count = new TransactionTemplate(transactionManager).execute(status -> expireBatch(batch));
+                expired += count == null ? 0 : count;
+            } catch (RuntimeException e) {
+                log.warn("stock hold expiry failed, will retry {} holds", batch.size(), e);
+                for (Long id : batch) {
+                    schedule(id, Instant.ofEpochMilli(nowMillis + tickMillis));
+                }
+            }
+        }
+        if (expired > 0) {
+            log.debug("{} stock holds expired", expired);
+        }
+        return expired;
+    }
+
+    // holds confirmed or released since they were scheduled are skipped by the state filter
+    private int expireBatch(List<Long> ids) {
+        List<StockHold> holds = purchaseMetrics.time("stockHold.lockByIdInAndState", () -> stockHoldRepository.lockByIdInAndState(ids, HoldState.HELD));
+        Map<Long, Integer> released = new TreeMap<>();
+        for (StockHold hold : holds) {
+            hold.setState(HoldState.EXPIRED);
+            released.merge(hold.getItemId(), hold.getQty(), Integer::sum);
+        }
+        purchaseMetrics.time("stockHold.saveAll", () -> stockHoldRepository.saveAll(holds));
+        released.forEach(this::giveBack);
+        return holds.size();
+    }
+
+    private StockHold activeHold(String holdNo) {
+        StockHold hold = purchaseMetrics.time("stockHold.lockByHoldNo", () -> stockHoldRepository.lockByHoldNo(holdNo));
+        if (hold == null) {
+            throw new NotFoundExceptions("not found error", "hold is not found");
+        }
+        if (hold.getState() != HoldState.HELD) {
+            throw new InvalidRequest("invalid request", "hold is already " + hold.getState().name().toLowerCase());
+        }
+        return hold;
+    }
+
+    private void takeStock(long itemId, int qty) {
+        if (stockLedger.isEnabled()) {
+            if (!stockLedger.reserve(itemId, qty)) {
+                rejectHold(stockLedger.contains(itemId));
+            }
+            stockLedger.compensateOnRollback(itemId, -qty);
+            purchaseMetrics.time("inventory.changeReserved", () -> inventoryRepository.changeReserved(itemId, qty));
+        } else if (purchaseMetrics.time("inventory.holdStock", () -> inventoryRepository.holdStock(itemId, qty)) == 0) {
+            rejectHold(purchaseMetrics.time("inventory.existsByItemId", () -> inventoryRepository.existsByItemId(itemId)));
+        }
+    }
+
+    private void rejectHold(boolean stocked) {
+        if (!stocked) {
+            purchaseMetrics.stockRejected(OUT_OF_STOCK);
+            throw new InvalidRequest("out of stock", "stock is out cannot place hold");
+        }
+        purchaseMetrics.stockRejected(LIMITED_STOCK);
+        throw new InvalidRequest("limited stock", "insufficient amount of stock");
+    }
+
+    private void giveBack(long itemId, int qty) {
+        if (stockLedger.isEnabled()) {
+            stockLedger.releaseOnCommit(itemId, qty);
+            purchaseMetrics.time("inventory.changeReserved", () -> inventoryRepository.changeReserved(itemId, -qty));
+        } else {
+            purchaseMetrics.time("inventory.releaseHeldStock", () -> inventoryRepository.releaseHeldStock(itemId, qty));
+        }
+        stockAlertService.onStockChange(itemId, qty);
+    }
+
+    private void schedule(long holdId, Instant expiresAt) {
+        TimingWheel.Timeout<Long> previous = timeouts.put(holdId, wheel().schedule(holdId, expiresAt.toEpochMilli()));
+        if (previous != null) {
+            wheel().cancel(previous);
+        }
+    }
+
+    private void cancel(long holdId) {
+        TimingWheel.Timeout<Long> timeout = timeouts.remove(holdId);
+        if (timeout != null) {
+            wheel().cancel(timeout);
+        }
+    }
+
+    private synchronized TimingWheel<Long> wheel() {
+        if (wheel == null) {
+            wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        }
+        return wheel;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
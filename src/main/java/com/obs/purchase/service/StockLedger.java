@@ -0,0 +1,312 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.Inventory;
+import com.obs.purchase.repository.InventoryRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Authoritative in-memory stock counters, one per itemId.
+ * Reservations are applied with CAS so stock never goes below zero, and changed
+ * counters are written back to the inventory table in batches by {@link #flush()}.
+ * Items listed in purchase.stock.sharding.items get a {@link ShardedStock} with several
+ * counters, for SKUs hot enough that a single counter becomes the bottleneck.
+ * In event-sourced mode the counters are seeded from the transaction log through
+ * {@link InventorySnapshotService}, and the inventory table is only a projection of them.
+ * Stock reserved for orders still queued in the order write-ahead log is flushed as if it
+ * were not taken yet: the drain takes it off the table in the same transaction that writes
+ * the orders, so those withdrawals are exactly as durable as the log that holds them.
+ */
+@Service
+public class StockLedger {
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private InventorySnapshotService inventorySnapshotService;
+
+    @Value("${purchase.stock.ledger.enabled:false}")
+    private boolean enabled;
+
+    @Value("${purchase.stock.event-sourced.enabled:false}")
+    private boolean eventSourced;
+
+    @Value("${purchase.stock.ledger.flush-batch-size:500}")
+    private int flushBatchSize = 500;
+
+    @Value("${purchase.stock.sharding.items:}")
+    private Set<Long> shardedItemIds = Set.of();
+
+    @Value("${purchase.stock.sharding.shards:0}")
+    private int shardsPerItem;
+
+    private final Map<Long, ShardedStock> stocks = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirtyItemIds = ConcurrentHashMap.newKeySet();
+
+    private final Map<Long, AtomicInteger> queued = new ConcurrentHashMap<>();
+
+    private volatile boolean seeded;
+
+    public boolean isEnabled() {
+        return enabled && seeded;
+    }
+
+    public boolean isEventSourced() {
+        return isEnabled() && eventSourced;
+    }
+
+    // runs after AsyncOrderService.recover(), which is ordered first
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        if (!enabled) {
+            return;
+        }
+        if (eventSourced) {
+            seedFromTransactionLog();
+        } else {
+            for (Inventory inventory : inventoryRepository.findExistingRecord()) {
+                int stock = inventory.getStock() == null ? 0 : inventory.getStock();
+                stocks.put(inventory.getItemId(), newStock(inventory.getItemId(), stock));
+            }
+        }
+        seeded = true;
+        log.info("stock ledger seeded with {} items", stocks.size());
+    }
+
+    public boolean contains(long itemId) {
+        return stocks.containsKey(itemId);
+    }
+
+    public boolean isSharded(long itemId) {
+        ShardedStock stock = stocks.get(itemId);
+        return stock != null && stock.getShardCount() > 1;
+    }
+
+    public Integer getStock(long itemId) {
+        ShardedStock stock = stocks.get(itemId);
+        return stock == null ? null : stock.get();
+    }
+
+    public boolean reserve(long itemId, int qty) {
+        ShardedStock stock = stocks.get(itemId);
+        if (stock == null || !stock.reserve(qty)) {
+            return false;
+        }
+        dirtyItemIds.add(itemId);
+        return true;
+    }
+
+    public void release(long itemId, int qty) {
+        stockFor(itemId).add(qty);
+        dirtyItemIds.add(itemId);
+    }
+
+    /**
+     * Gives qty to the counter once the surrounding transaction commits. Until then the
+     * stock is not there to reserve: if it were, a rollback would have to take back units
+     * another order may already hold.
+     */
+    public void releaseOnCommit(long itemId, int qty) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(itemId, qty);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(itemId, qty);
+            }
+        });
+    }
+
+    /**
+     * Reserves stock for an order that is only in the write-ahead log so far. The counter
+     * is taken first, so a flush in between writes too little stock, never too much.
+     */
+    public boolean reserveQueued(long itemId, int qty) {
+        if (!reserve(itemId, qty)) {
+            return false;
+        }
+        queue(itemId, qty);
+        return true;
+    }
+
+    /**
+     * Gives back a {@link #reserveQueued} whose order never made it into the log. Whichever
+     * side goes first, a flush could see the queue before and the counter after, so this
+     * waits for any flush to finish.
+     */
+    public synchronized void releaseQueued(long itemId, int qty) {
+        unqueue(itemId, qty);
+        release(itemId, qty);
+    }
+
+    /** Counts qty as reserved by an order in the log that the table does not reflect yet. */
+    public void queue(long itemId, int qty) {
+        queued.computeIfAbsent(itemId, id -> new AtomicInteger()).addAndGet(qty);
+        dirtyItemIds.add(itemId);
+    }
+
+    /**
+     * Stops counting qty as queued, just before the drain takes it off the table. Until the
+     * drain commits a flush writes too little stock, so the drain marks the item dirty again
+     * with {@link #drained} once it has.
+     */
+    public void unqueue(long itemId, int qty) {
+        queued.computeIfAbsent(itemId, id -> new AtomicInteger()).addAndGet(-qty);
+    }
+
+    public void drained(long itemId) {
+        dirtyItemIds.add(itemId);
+    }
+
+    /**
+     * Sets the item's stock after an inventory edit and returns the stock it replaced.
+     * Reservations land either in the returned stock or against the new one, and since this
+     * waits for a running flush and marks the item dirty, the next flush writes the new
+     * stock whatever an earlier one wrote.
+     */
+    public synchronized int put(long itemId, int stock) {
+        int previous = stockFor(itemId).getAndSet(stock);
+        dirtyItemIds.add(itemId);
+        return previous;
+    }
+
+    public void remove(long itemId) {
+        stocks.remove(itemId);
+        dirtyItemIds.remove(itemId);
+    }
+
+    /**
+     * Undoes a reservation, passed as a negative delta, if the surrounding transaction rolls
+     * back. Stock given back goes through {@link #releaseOnCommit} instead, never eagerly.
+     */
+    public void compensateOnRollback(long itemId, int delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    stockFor(itemId).add(-delta);
+                    dirtyItemIds.add(itemId);
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${purchase.stock.ledger.flush-interval-ms:500}")
+    public synchronized void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+        while (!dirtyItemIds.isEmpty()) {
+            List<Long> batch = new ArrayList<>(flushBatchSize);
+            Iterator<Long> iterator = dirtyItemIds.iterator();
+            while (iterator.hasNext() && batch.size() < flushBatchSize) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            try {
+                optimisticRetry.run("stockLedger.flush", () -> writeBatch(batch));
+            } catch (RuntimeException e) {
+                dirtyItemIds.addAll(batch);
+                log.warn("stock ledger flush failed, will retry {} items", batch.size(), e);
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${purchase.stock.sharding.rebalance-interval-ms:100}")
+    public void rebalance() {
+        for (Long itemId : shardedItemIds) {
+            ShardedStock stock = stocks.get(itemId);
+            if (stock != null) {
+                stock.rebalance();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // rows flushed before a crash may lag the log, so only the log decides the stock;
+    // held units are not in the log until confirmed and come off what is available
+    private void seedFromTransactionLog() {
+        Map<Long, Integer> derived = inventorySnapshotService.currentStocks();
+        for (Inventory inventory : inventoryRepository.findExistingRecord()) {
+            int stock = derived.getOrDefault(inventory.getItemId(), 0) - inventory.getReserved();
+            stocks.put(inventory.getItemId(), newStock(inventory.getItemId(), stock));
+        }
+        Set<Long> deletedItemIds = new HashSet<>(inventoryRepository.findDeletedItemIds());
+        derived.forEach((itemId, stock) -> {
+            if (!deletedItemIds.contains(itemId)) {
+                stocks.putIfAbsent(itemId, newStock(itemId, stock));
+            }
+        });
+    }
+
+    private void writeBatch(List<Long> itemIds) {
+        Map<Long, Inventory> inventories = inventoryRepository.findByItemIdIn(itemIds).stream()
+                .collect(Collectors.toMap(Inventory::getItemId, Function.identity(), (first, second) -> first));
+        List<Inventory> changed = new ArrayList<>(itemIds.size());
+        for (Long itemId : itemIds) {
+            ShardedStock stock = stocks.get(itemId);
+            if (stock == null) {
+                continue;
+            }
+            // queued before the counter: reserveQueued changes them the other way round
+            AtomicInteger inLog = queued.get(itemId);
+            int inLogQty = inLog == null ? 0 : inLog.get();
+            int flushed = stock.get() + inLogQty;
+            Inventory inventory = inventories.get(itemId);
+            if (inventory == null) {
+                inventory = new Inventory(itemId, flushed);
+            } else {
+                inventory.setStock(flushed);
+            }
+            changed.add(inventory);
+        }
+        inventoryRepository.saveAll(changed);
+    }
+
+    private ShardedStock stockFor(long itemId) {
+        return stocks.computeIfAbsent(itemId, id -> newStock(id, 0));
+    }
+
+    private ShardedStock newStock(long itemId, int stock) {
+        if (!shardedItemIds.contains(itemId)) {
+            return new ShardedStock(1, stock);
+        }
+        return new ShardedStock(shardsPerItem > 0 ? shardsPerItem : Runtime.getRuntime().availableProcessors(), stock);
+    }
+}
@@ -0,0 +1,167 @@
+package com.obs.purchase.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Level 0 has wheelSize buckets of one tick each, and every
+ * level above covers wheelSize times the span of the one below, with enough levels for any
+ * deadline. Scheduling and cancelling are O(1). Each tick expires one level 0 bucket, and
+ * when a higher level's current bucket comes due its timeouts are cascaded down. So the
+ * cost of advancing does not grow with the number of outstanding timeouts.
+ * A timeout never fires before its deadline and at most one tick after it.
+ */
+public class TimingWheel<T> {
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final Bucket<T>[][] wheels;
+    private final Bucket<T> overdue = new Bucket<>();
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tick must be positive");
+        }
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheel size must be a power of two of at least 2");
+        }
+        this.tickMillis = tickMillis;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.wheels = new Bucket[(63 + bits - 1) / bits][wheelSize];
+        for (Bucket<T>[] wheel : wheels) {
+            for (int i = 0; i < wheelSize; i++) {
+                wheel[i] = new Bucket<>();
+            }
+        }
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /** Schedules the value to come out of {@link #advance} once the clock passes deadlineMillis. */
+    public synchronized Timeout<T> schedule(T value, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(value, deadlineMillis, -Math.floorDiv(-deadlineMillis, tickMillis));
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /** Returns false when the timeout has already fired or been cancelled. */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        size--;
+        return true;
+    }
+
+    /** Moves the wheel up to nowMillis and returns the values whose deadline has passed. */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        expire(overdue, expired);
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        if (size == 0 && currentTick < target) {
+            currentTick = target;
+        }
+        while (currentTick < target) {
+            currentTick++;
+            int level = 0;
+            while (level + 1 < wheels.length && (currentTick & ((1L << (bits * (level + 1))) - 1)) == 0) {
+                level++;
+            }
+            // highest level first: what comes down from one level may belong to the bucket below
+            for (; level > 0; level--) {
+                Bucket<T> bucket = wheels[level][(int) (currentTick >>> (bits * level)) & mask];
+                for (Timeout<T> timeout = bucket.poll(); timeout != null; timeout = bucket.poll()) {
+                    place(timeout);
+                }
+            }
+            expire(wheels[0][(int) currentTick & mask], expired);
+            expire(overdue, expired);
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void place(Timeout<T> timeout) {
+        long ticks = timeout.deadlineTick - currentTick;
+        if (ticks <= 0) {
+            overdue.add(timeout);
+            return;
+        }
+        int level = (63 - Long.numberOfLeadingZeros(ticks)) / bits;
+        wheels[level][(int) (timeout.deadlineTick >>> (bits * level)) & mask].add(timeout);
+    }
+
+    private void expire(Bucket<T> bucket, List<T> expired) {
+        for (Timeout<T> timeout = bucket.poll(); timeout != null; timeout = bucket.poll()) {
+            expired.add(timeout.value);
+            size--;
+        }
+    }
+
+    public static final class Timeout<T> {
+        private final T value;
+        private final long deadline;
+        private final long deadlineTick;
+        private Bucket<T> bucket;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(T value, long deadline, long deadlineTick) {
+            this.value = value;
+            this.deadline = deadline;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+
+        private void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null) {
+                head.previous = timeout;
+            }
+            head = timeout;
+        }
+
+        private void remove(Timeout<T> timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        private Timeout<T> poll() {
+            Timeout<T> timeout = head;
+            if (timeout != null) {
+                remove(timeout);
+            }
+            return timeout;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.Order;
+import com.obs.purchase.entity.dto.TopItem;
+import com.obs.purchase.exceptions.InvalidRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Best sellers by units over a sliding window, from committed orders. Time is cut into
+ * slots of purchase.report.top-items.slot, each with its own {@link SpaceSaving} summary of
+ * purchase.report.top-items.capacity counters, kept in a ring of
+ * purchase.report.top-items.slots; memory is slots * capacity counters whatever the size
+ * of the catalogue. A window is answered by merging the summaries of the slots it covers,
+ * the current partial slot included.
+ */
+@Service
+public class TopItemsService {
+
+    @Value("${purchase.report.top-items.capacity:1000}")
+    private int capacity = 1000;
+
+    @Value("${purchase.report.top-items.slot:1m}")
+    private Duration slot = Duration.ofMinutes(1);
+
+    @Value("${purchase.report.top-items.slots:60}")
+    private int slots = 60;
+
+    private Slot[] ring;
+
+    /** Counts the orders' units once the surrounding transaction commits. */
+    public void record(Collection<Order> orders) {
+        List<Order> committed = List.copyOf(orders);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(committed, Instant.now());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(committed, Instant.now());
+            }
+        });
+    }
+
+    public List<TopItem> topItems(int limit, Duration window) {
+        return topItems(limit, window, Instant.now());
+    }
+
+    void add(Collection<Order> orders, Instant at) {
+        SpaceSaving summary = slotAt(at);
+        for (Order order : orders) {
+            summary.add(order.getItemId(), order.getQty());
+        }
+    }
+
+    List<TopItem> topItems(int limit, Duration window, Instant now) {
+        if (limit <= 0 || limit > capacity) {
+            throw new InvalidRequest("invalid request", "limit must be between 1 and " + capacity);
+        }
+        long windowSlots = (window.toMillis() + slot.toMillis() - 1) / slot.toMillis();
+        if (windowSlots <= 0 || windowSlots > slots) {
+            throw new InvalidRequest("invalid request", "window must be positive and at most " + slot.multipliedBy(slots));
+        }
+        List<SpaceSaving> summaries = summariesSince(slotNumber(now) - windowSlots + 1);
+
+        Map<Long, long[]> merged = new HashMap<>();
+        List<List<SpaceSaving.Counter>> countersPerSlot = new ArrayList<>(summaries.size());
+        for (SpaceSaving summary : summaries) {
+            List<SpaceSaving.Counter> counters = summary.counters();
+            countersPerSlot.add(counters);
+            for (SpaceSaving.Counter counter : counters) {
+                long[] estimate = merged.computeIfAbsent(counter.getItemId(), itemId -> new long[2]);
+                estimate[0] += counter.getCount();
+                estimate[1] += counter.getError();
+            }
+        }
+        // an item missing from a full summary may still have sold up to its smallest count there
+        for (int i = 0; i < summaries.size(); i++) {
+            List<SpaceSaving.Counter> counters = countersPerSlot.get(i);
+            if (counters.size() < summaries.get(i).getCapacity()) {
+                continue;
+            }
+            long smallest = counters.get(counters.size() - 1).getCount();
+            Set<Long> present = new HashSet<>(counters.size() * 2);
+            for (SpaceSaving.Counter counter : counters) {
+                present.add(counter.getItemId());
+            }
+            merged.forEach((itemId, estimate) -> {
+                if (!present.contains(itemId)) {
+                    estimate[0] += smallest;
+                    estimate[1] += smallest;
+                }
+            });
+        }
+
+        List<TopItem> top = new ArrayList<>(merged.size());
+        merged.forEach((itemId, estimate) -> top.add(new TopItem(itemId, estimate[0], estimate[1])));
+        top.sort(Comparator.comparingLong(TopItem::getUnits).reversed().thenComparingLong(TopItem::getItemId));
+        return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+    }
+
+    private synchronized SpaceSaving slotAt(Instant at) {
+        if (ring == null) {
+            ring = new Slot[slots];
+        }
+        long number = slotNumber(at);
+        int index = (int) Math.floorMod(number, (long) slots);
+        Slot current = ring[index];
+        if (current == null || current.number < number) {
+            current = new Slot(number, new SpaceSaving(capacity));
+            ring[index] = current;
+        }
+        return current.summary;
+    }
+
+    private synchronized List<SpaceSaving> summariesSince(long firstNumber) {
+        List<SpaceSaving> summaries = new ArrayList<>();
+        if (ring == null) {
+            return summaries;
+        }
+        for (Slot current : ring) {
+            if (current != null && current.number >= firstNumber) {
+                summaries.add(current.summary);
+            }
+        }
+        return summaries;
+    }
+
+    private long slotNumber(Instant at) {
+        return Math.floorDiv(at.toEpochMilli(), slot.toMillis());
+    }
+
+    private static final class Slot {
+        private final long number;
+        private final SpaceSaving summary;
+
+        private Slot(long number, SpaceSaving summary) {
+            this.number = number;
+            this.summary = summary;
+        }
+    }
+}
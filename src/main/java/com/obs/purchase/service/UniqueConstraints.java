@@ -0,0 +1,29 @@
+package com.obs.purchase.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+/**
+ * The unique constraints from V2__add_lookup_indexes, and a check for which one a
+ * failed insert ran into. Any other integrity violation (a NOT NULL column, a foreign key)
+ * is a bug, not a duplicate, and callers rethrow it.
+ */
+final class UniqueConstraints {
+    static final String ITEM_NAME = "uk_item_name";
+    static final String INVENTORY_ITEM_ID = "uk_inventory_item_id";
+
+    private UniqueConstraints() {
+    }
+
+    static boolean isViolated(DataIntegrityViolationException e, String constraint) {
+        if (!(e.getCause() instanceof ConstraintViolationException violation) || violation.getConstraintName() == null) {
+            return false;
+        }
+        // H2 reports the backing index, e.g. PUBLIC.UK_ITEM_NAME_INDEX_2
+        String name = violation.getConstraintName().toLowerCase(Locale.ROOT);
+        name = name.substring(name.lastIndexOf('.') + 1);
+        return name.equals(constraint) || name.startsWith(constraint + "_index_");
+    }
+}
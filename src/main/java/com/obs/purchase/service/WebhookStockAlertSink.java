@@ -0,0 +1,61 @@
+package com.obs.purchase.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obs.purchase.entity.dto.StockAlert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Posts each alert as JSON to purchase.stock.alert.webhook.url without waiting for the
+ * response; a failed delivery is logged and not retried.
+ */
+@Service
+@ConditionalOnProperty(name = "purchase.stock.alert.webhook.url")
+public class WebhookStockAlertSink implements StockAlertSink {
+    private static final Logger log = LoggerFactory.getLogger(WebhookStockAlertSink.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${purchase.stock.alert.webhook.url}")
+    private URI url;
+
+    @Value("${purchase.stock.alert.webhook.timeout:5s}")
+    private Duration timeout = Duration.ofSeconds(5);
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Override
+    public void send(StockAlert alert) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(alert);
+        } catch (JsonProcessingException e) {
+            log.warn("stock alert for item {} could not be serialized", alert.getItemId(), e);
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error != null) {
+                log.warn("stock alert webhook failed for item {}", alert.getItemId(), error);
+            } else if (response.statusCode() >= 300) {
+                log.warn("stock alert webhook answered {} for item {}", response.statusCode(), alert.getItemId());
+            }
+        });
+    }
+}
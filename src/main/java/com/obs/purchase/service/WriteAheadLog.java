@@ -0,0 +1,194 @@
+package com.obs.purchase.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log on memory-mapped segment files of a fixed size. Each record is
+ * [length][crc32][payload]; a zero length marks the end of written data and a negative
+ * one means the rest of the segment was skipped. Positions are global: segment number
+ * times segment size plus the offset in the segment. A separate checkpoint file keeps
+ * the position up to which records have been consumed, and fully consumed segments are
+ * deleted.
+ */
+public class WriteAheadLog implements Closeable {
+    private static final int HEADER_SIZE = 8;
+    private static final int SKIP = -1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final Map<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private final MappedByteBuffer checkpoint;
+    private long writePosition;
+
+    public WriteAheadLog(Path directory, int segmentSize, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        this.checkpoint = map(directory.resolve("checkpoint"), Long.BYTES);
+        this.writePosition = scanEnd(getCommittedPosition());
+    }
+
+    public synchronized long getCommittedPosition() {
+        return checkpoint.getLong(0);
+    }
+
+    public synchronized long getWritePosition() {
+        return writePosition;
+    }
+
+    /** Appends one record and returns the position just after it. */
+    public synchronized long append(byte[] payload) {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (recordSize + HEADER_SIZE > segmentSize) {
+            throw new IllegalArgumentException("record of " + payload.length + " bytes does not fit in a segment");
+        }
+        int offset = offset(writePosition);
+        if (offset + recordSize + HEADER_SIZE > segmentSize) {
+            segment(writePosition).putInt(offset, SKIP);
+            writePosition = (segmentNumber(writePosition) + 1) * segmentSize;
+            offset = 0;
+        }
+        MappedByteBuffer segment = segment(writePosition);
+        segment.put(offset + HEADER_SIZE, payload);
+        segment.putInt(offset + Integer.BYTES, checksum(payload));
+        // the length goes last: a reader never sees a record whose body isn't written yet
+        segment.putInt(offset, payload.length);
+        if (fsync) {
+            segment.force(offset, recordSize);
+        }
+        writePosition += recordSize;
+        return writePosition;
+    }
+
+    /** Reads up to max records after the committed position, without consuming them. */
+    public synchronized List<Entry> read(int max) {
+        List<Entry> entries = new ArrayList<>();
+        long position = getCommittedPosition();
+        while (entries.size() < max && position < writePosition) {
+            MappedByteBuffer segment = segment(position);
+            int offset = offset(position);
+            int length = segment.getInt(offset);
+            if (length == SKIP) {
+                position = (segmentNumber(position) + 1) * segmentSize;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            segment.get(offset + HEADER_SIZE, payload);
+            position += HEADER_SIZE + length;
+            entries.add(new Entry(position, payload));
+        }
+        return entries;
+    }
+
+    /** Marks everything before position as consumed and drops segments left behind. */
+    public synchronized void commit(long position) {
+        checkpoint.putLong(0, position);
+        checkpoint.force();
+        long firstLiveSegment = segmentNumber(position);
+        for (Long number : new ArrayList<>(segments.keySet())) {
+            if (number < firstLiveSegment) {
+                segments.remove(number);
+                try {
+                    Files.deleteIfExists(segmentPath(number));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        segments.values().forEach(MappedByteBuffer::force);
+        checkpoint.force();
+        segments.clear();
+    }
+
+    private long scanEnd(long position) {
+        while (true) {
+            if (!Files.exists(segmentPath(segmentNumber(position)))) {
+                return position;
+            }
+            MappedByteBuffer segment = segment(position);
+            int offset = offset(position);
+            int length = segment.getInt(offset);
+            if (length == SKIP) {
+                position = (segmentNumber(position) + 1) * segmentSize;
+                continue;
+            }
+            if (length <= 0 || offset + HEADER_SIZE + length > segmentSize) {
+                return position;
+            }
+            byte[] payload = new byte[length];
+            segment.get(offset + HEADER_SIZE, payload);
+            if (segment.getInt(offset + Integer.BYTES) != checksum(payload)) {
+                // torn write from a crash: everything from here on was never acknowledged
+                segment.putInt(offset, 0);
+                return position;
+            }
+            position += HEADER_SIZE + length;
+        }
+    }
+
+    private MappedByteBuffer segment(long position) {
+        return segments.computeIfAbsent(segmentNumber(position), number -> map(segmentPath(number), segmentSize));
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%020d.wal", number));
+    }
+
+    private long segmentNumber(long position) {
+        return position / segmentSize;
+    }
+
+    private int offset(long position) {
+        return (int) (position % segmentSize);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static MappedByteBuffer map(Path path, int size) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static class Entry {
+        private final long endPosition;
+        private final byte[] payload;
+
+        public Entry(long endPosition, byte[] payload) {
+            this.endPosition = endPosition;
+            this.payload = payload;
+        }
+
+        public long getEndPosition() {
+            return endPosition;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+CREATE SEQUENCE idempotency_record_seq START WITH 1 INCREMENT BY 50;
+
+-- response of a POST made with an Idempotency-Key, replayed to retries of the same request
+CREATE TABLE idempotency_record (
+    id BIGINT NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    status INTEGER NOT NULL,
+    response CHARACTER LARGE OBJECT NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    deleted_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_idempotency_record_key UNIQUE (idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_record_expires_at ON idempotency_record (expires_at);
@@ -0,0 +1,8 @@
+-- the fold round that took the transaction into the snapshots; NULL until one has
+ALTER TABLE inventory_transaction ADD COLUMN snapshot_round BIGINT;
+CREATE INDEX idx_inventory_transaction_round_item ON inventory_transaction (snapshot_round, item_id);
+CREATE SEQUENCE inventory_snapshot_round_seq START WITH 1 INCREMENT BY 1;
+
+-- the time-cutoff rounds could miss rows that committed late, so which rows the existing
+-- snapshots hold is not known; they are derived data, the next round folds the whole log
+DELETE FROM inventory_snapshot;
@@ -0,0 +1,59 @@
+CREATE SEQUENCE item_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE inventory_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE inventory_transaction_seq START WITH 1 INCREMENT BY 200;
+CREATE SEQUENCE orders_seq START WITH 1 INCREMENT BY 200;
+CREATE SEQUENCE sequence_allocation_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE item (
+    id BIGINT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    price INTEGER NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    deleted_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE inventory (
+    id BIGINT NOT NULL,
+    item_id BIGINT NOT NULL,
+    stock INTEGER,
+    created_at TIMESTAMP(6) WITH TIME ZONE,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    deleted_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE inventory_transaction (
+    id BIGINT NOT NULL,
+    item_id BIGINT NOT NULL,
+    qty INTEGER NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    deleted_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE orders (
+    id BIGINT NOT NULL,
+    order_no VARCHAR(255),
+    item_id BIGINT NOT NULL,
+    qty INTEGER,
+    price INTEGER,
+    created_at TIMESTAMP(6) WITH TIME ZONE,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    deleted_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE sequence_allocation (
+    id BIGINT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    next_value BIGINT NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    deleted_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_sequence_allocation_name UNIQUE (name)
+);
@@ -0,0 +1,13 @@
+-- findByName / findByItemId also see soft-deleted rows, so uniqueness covers them too
+ALTER TABLE item ADD CONSTRAINT uk_item_name UNIQUE (name);
+ALTER TABLE inventory ADD CONSTRAINT uk_inventory_item_id UNIQUE (item_id);
+
+CREATE INDEX idx_orders_order_no ON orders (order_no);
+CREATE INDEX idx_inventory_transaction_item_created ON inventory_transaction (item_id, created_at);
+
+-- H2 has no partial indexes; leading with deleted_at lets "deleted_at IS NULL" filters
+-- seek straight to the live rows, still in id order
+CREATE INDEX idx_item_deleted_id ON item (deleted_at, id);
+CREATE INDEX idx_inventory_deleted_id ON inventory (deleted_at, id);
+CREATE INDEX idx_inventory_transaction_deleted_id ON inventory_transaction (deleted_at, id);
+CREATE INDEX idx_orders_deleted_id ON orders (deleted_at, id);
@@ -0,0 +1 @@
+ALTER TABLE inventory ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
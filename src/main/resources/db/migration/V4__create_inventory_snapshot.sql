@@ -0,0 +1,17 @@
+CREATE SEQUENCE inventory_snapshot_seq START WITH 1 INCREMENT BY 50;
+
+-- stock of an item folded from every inventory_transaction created before as_of
+CREATE TABLE inventory_snapshot (
+    id BIGINT NOT NULL,
+    item_id BIGINT NOT NULL,
+    stock INTEGER NOT NULL,
+    as_of TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    deleted_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_inventory_snapshot_item_as_of ON inventory_snapshot (item_id, as_of);
+CREATE INDEX idx_inventory_snapshot_as_of ON inventory_snapshot (as_of);
+CREATE INDEX idx_inventory_transaction_created ON inventory_transaction (created_at);
@@ -0,0 +1,2 @@
+-- transactions folded since the item's previous snapshot, which bounds the range an as-of query scans
+ALTER TABLE inventory_snapshot ADD COLUMN transaction_count INTEGER DEFAULT 0 NOT NULL;
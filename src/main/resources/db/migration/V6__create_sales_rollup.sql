@@ -0,0 +1,39 @@
+CREATE SEQUENCE sales_rollup_seq START WITH 1 INCREMENT BY 50;
+
+-- orders, units and revenue of an item per UTC minute, hour or day bucket
+CREATE TABLE sales_rollup (
+    id BIGINT NOT NULL,
+    granularity VARCHAR(16) NOT NULL,
+    item_id BIGINT NOT NULL,
+    bucket_start TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    order_count BIGINT NOT NULL,
+    units BIGINT NOT NULL,
+    revenue BIGINT NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    deleted_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX idx_sales_rollup_item_bucket ON sales_rollup (granularity, item_id, bucket_start);
+CREATE INDEX idx_sales_rollup_bucket ON sales_rollup (granularity, bucket_start);
+
+-- backfill from the orders taken before the rollups existed
+INSERT INTO sales_rollup (id, granularity, item_id, bucket_start, order_count, units, revenue, created_at, updated_at)
+SELECT NEXT VALUE FOR sales_rollup_seq, b.granularity, b.item_id, b.bucket_start, b.order_count, b.units, b.revenue, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+FROM (
+    SELECT 'MINUTE' AS granularity, item_id, DATE_TRUNC('MINUTE', created_at AT TIME ZONE 'UTC') AS bucket_start,
+           COUNT(*) AS order_count, SUM(qty) AS units, SUM(CAST(price AS BIGINT) * qty) AS revenue
+    FROM orders WHERE deleted_at IS NULL AND created_at IS NOT NULL
+    GROUP BY item_id, DATE_TRUNC('MINUTE', created_at AT TIME ZONE 'UTC')
+    UNION ALL
+    SELECT 'HOUR', item_id, DATE_TRUNC('HOUR', created_at AT TIME ZONE 'UTC'),
+           COUNT(*), SUM(qty), SUM(CAST(price AS BIGINT) * qty)
+    FROM orders WHERE deleted_at IS NULL AND created_at IS NOT NULL
+    GROUP BY item_id, DATE_TRUNC('HOUR', created_at AT TIME ZONE 'UTC')
+    UNION ALL
+    SELECT 'DAY', item_id, DATE_TRUNC('DAY', created_at AT TIME ZONE 'UTC'),
+           COUNT(*), SUM(qty), SUM(CAST(price AS BIGINT) * qty)
+    FROM orders WHERE deleted_at IS NULL AND created_at IS NOT NULL
+    GROUP BY item_id, DATE_TRUNC('DAY', created_at AT TIME ZONE 'UTC')
+) b;
@@ -0,0 +1,2 @@
+-- stock at or below which the item is reported as running low; NULL disables alerts
+ALTER TABLE inventory ADD COLUMN reorder_level INTEGER;
@@ -0,0 +1,4 @@
+-- orders placed together through a cart checkout share its cart number
+ALTER TABLE orders ADD COLUMN cart_no VARCHAR(255);
+
+CREATE INDEX idx_orders_cart_no ON orders (cart_no);
@@ -0,0 +1,21 @@
+CREATE SEQUENCE stock_hold_seq START WITH 1 INCREMENT BY 50;
+
+-- stock set aside for a checkout until it is confirmed, released or expires
+CREATE TABLE stock_hold (
+    id BIGINT NOT NULL,
+    hold_no VARCHAR(255) NOT NULL,
+    item_id BIGINT NOT NULL,
+    qty INTEGER NOT NULL,
+    state VARCHAR(16) NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    deleted_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_stock_hold_hold_no UNIQUE (hold_no)
+);
+
+CREATE INDEX idx_stock_hold_state ON stock_hold (state, id);
+
+-- units under an active hold; stock is what is still available to sell
+ALTER TABLE inventory ADD COLUMN reserved INTEGER DEFAULT 0 NOT NULL;
@@ -0,0 +1,32 @@
+package com.obs.purchase.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class DatabaseConcurrencyConfigTest {
+
+    private final BeanPostProcessor postProcessor = DatabaseConcurrencyConfig.concurrencyLimitedDataSourcePostProcessor(new MockEnvironment());
+
+    @Test
+    void testPostProcess_ShouldWrapApplicationDataSource() {
+        DataSource dataSource = mock(DataSource.class);
+
+        Object wrapped = postProcessor.postProcessAfterInitialization(dataSource, "dataSource");
+
+        assertInstanceOf(ConcurrencyLimitedDataSource.class, wrapped);
+        assertSame(wrapped, postProcessor.postProcessAfterInitialization(wrapped, "dataSource"));
+    }
+
+    @Test
+    void testPostProcess_ShouldLeaveOtherDataSourcesAlone() {
+        DataSource replica = mock(DataSource.class);
+
+        assertSame(replica, postProcessor.postProcessAfterInitialization(replica, "replicaDataSource"));
+    }
+}
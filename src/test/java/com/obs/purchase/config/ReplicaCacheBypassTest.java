@@ -0,0 +1,67 @@
+package com.obs.purchase.config;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.mockito.Mockito.*;
+
+class ReplicaCacheBypassTest {
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TransactionExecution transaction;
+
+    private ReplicaCacheBypass replicaCacheBypass;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        replicaCacheBypass = new ReplicaCacheBypass(entityManagerFactory, "com.obs.purchase.service.");
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+    }
+
+    @Test
+    void testAfterBegin_ShouldBypassCacheStores_ForReplicaTransaction() {
+        begin("com.obs.purchase.service.ItemService.findById", true);
+
+        verify(entityManager).setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+    }
+
+    @Test
+    void testAfterBegin_ShouldKeepCacheStores_ForPrimaryTransactions() {
+        begin("com.obs.purchase.service.ItemService.save", false);
+        begin("org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById", true);
+        ReplicaRoutingDataSource.onPrimary(() -> {
+            begin("com.obs.purchase.service.OrderService.findById", true);
+            return null;
+        });
+
+        verify(entityManager, never()).setProperty(anyString(), any());
+    }
+
+    private void begin(String name, boolean readOnly) {
+        when(transaction.getTransactionName()).thenReturn(name);
+        when(transaction.isReadOnly()).thenReturn(readOnly);
+        replicaCacheBypass.afterBegin(transaction, null);
+    }
+}
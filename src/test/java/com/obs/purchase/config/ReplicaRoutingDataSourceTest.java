@@ -0,0 +1,117 @@
+package com.obs.purchase.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection;
+
+    private ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        dataSource = new ReplicaRoutingDataSource(primary, replica, "com.obs.purchase.service.");
+        // known defaults, so the proxy does not open a connection to look them up
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setCurrentTransactionName(null);
+    }
+
+    @Test
+    void testGetConnection_ShouldUsePrimary_OutsideReadOnlyTransaction() throws SQLException {
+        inTransaction("com.obs.purchase.service.OrderService.save", false);
+
+        useConnection();
+
+        verify(primary).getConnection();
+        verify(replica, never()).getConnection();
+    }
+
+    @Test
+    void testGetConnection_ShouldUseReplica_ForReadOnlyServiceTransaction() throws SQLException {
+        inTransaction("com.obs.purchase.service.OrderService.findAll", true);
+
+        useConnection();
+
+        verify(replica).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void testGetConnection_ShouldUsePrimary_ForReadOnlyRepositoryTransaction() throws SQLException {
+        inTransaction("org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById", true);
+
+        useConnection();
+
+        verify(primary).getConnection();
+        verify(replica, never()).getConnection();
+    }
+
+    @Test
+    void testGetConnection_ShouldUsePrimary_WhenPinned() throws SQLException {
+        inTransaction("com.obs.purchase.service.OrderService.findById", true);
+
+        ReplicaRoutingDataSource.onPrimary(() -> {
+            useConnection();
+            return null;
+        });
+
+        verify(primary).getConnection();
+        verify(replica, never()).getConnection();
+        assertFalse(ReplicaRoutingDataSource.isPinnedToPrimary());
+    }
+
+    @Test
+    void testGetConnection_ShouldPickTargetAtFirstStatement() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        inTransaction("com.obs.purchase.service.ItemService.findAll", true);
+
+        connection.createStatement();
+
+        verify(replica).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    private void inTransaction(String name, boolean readOnly) {
+        TransactionSynchronizationManager.setCurrentTransactionName(name);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    private void useConnection() {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
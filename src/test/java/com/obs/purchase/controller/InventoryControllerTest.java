@@ -3,9 +3,16 @@ package com.obs.purchase.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.obs.purchase.config.JpaAuditingConfig;
 import com.obs.purchase.entity.Inventory;
+import com.obs.purchase.entity.dto.CacheStatistics;
 import com.obs.purchase.entity.dto.GenericResponse;
+import com.obs.purchase.entity.dto.StockAlert;
+import com.obs.purchase.entity.dto.StockAsOf;
+import com.obs.purchase.enums.StockAlertKind;
 import com.obs.purchase.exceptions.NotFoundExceptions;
+import com.obs.purchase.service.EntityCacheStatistics;
 import com.obs.purchase.service.InventoryService;
+import com.obs.purchase.service.InventorySnapshotService;
+import com.obs.purchase.service.QueueStockAlertSink;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -18,16 +25,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -42,6 +53,15 @@ class InventoryControllerTest {
     @MockBean
     private InventoryService inventoryService;
 
+    @MockBean
+    private InventorySnapshotService inventorySnapshotService;
+
+    @MockBean
+    private QueueStockAlertSink queueStockAlertSink;
+
+    @MockBean
+    private EntityCacheStatistics entityCacheStatistics;
+
     @InjectMocks
     private InventoryController inventoryController;
 
@@ -61,6 +81,21 @@ class InventoryControllerTest {
         inventory.setStock(50);
     }
 
+    @Test
+    void testGetCacheStatistics_ShouldReturnRegionStatistics() throws Exception {
+        CacheStatistics statistics = new CacheStatistics();
+        statistics.setSize(2);
+        statistics.setHitCount(5);
+        when(entityCacheStatistics.region("inventory")).thenReturn(statistics);
+
+        mockMvc.perform(get("/inventories/cache-stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Inventory cache statistics retrieved successfully"))
+                .andExpect(jsonPath("$.data.entity.size").value(2))
+                .andExpect(jsonPath("$.data.entity.hitCount").value(5))
+                .andExpect(jsonPath("$.data.byItemIdQuery").doesNotExist());
+    }
+
     @Test
     void testCreateInventory_ShouldReturnCreated() throws Exception {
         when(inventoryService.save(any(Inventory.class))).thenReturn(inventory);
@@ -158,4 +193,75 @@ class InventoryControllerTest {
 
         verify(inventoryService, times(1)).delete(1L);
     }
+
+    @Test
+    void testGetAll_ShouldUseKeysetPagination_WhenAfterIdGiven() throws Exception {
+        Slice<Inventory> slice = new SliceImpl<>(List.of(inventory), PageRequest.of(0, 10), false);
+        when(inventoryService.findAllAfter(5L, 10)).thenReturn(slice);
+
+        mockMvc.perform(get("/inventories")
+                        .param("afterId", "5")
+                        .param("pageSize", "10")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("All inventories retrieved successfully"))
+                .andExpect(jsonPath("$.data.content.length()").value(1))
+                .andExpect(jsonPath("$.data.last").value(true))
+                .andExpect(jsonPath("$.data.totalElements").doesNotExist());
+
+        verify(inventoryService, times(1)).findAllAfter(5L, 10);
+        verify(inventoryService, never()).findAll(anyInt(), anyInt());
+    }
+
+    @Test
+    void testRebuildSnapshots_ShouldReturnRebuiltItemCount() throws Exception {
+        when(inventorySnapshotService.rebuild()).thenReturn(42);
+
+        mockMvc.perform(post("/inventories/snapshots/rebuild")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Inventory snapshots rebuilt"))
+                .andExpect(jsonPath("$.data").value(42));
+
+        verify(inventorySnapshotService, times(1)).rebuild();
+    }
+
+    @Test
+    void testGetStockAsOf_ShouldReturnStockAtTimestamp() throws Exception {
+        Instant asOf = Instant.parse("2024-01-03T12:00:00Z");
+        when(inventorySnapshotService.stockAsOf(100L, asOf)).thenReturn(new StockAsOf(100L, asOf, 4, Instant.parse("2024-01-03T00:00:00Z")));
+
+        mockMvc.perform(get("/inventories/100/as-of")
+                        .param("ts", "2024-01-03T12:00:00Z")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Stock retrieved successfully"))
+                .andExpect(jsonPath("$.data.itemId").value(100))
+                .andExpect(jsonPath("$.data.stock").value(4));
+
+        verify(inventorySnapshotService, times(1)).stockAsOf(100L, asOf);
+    }
+
+    @Test
+    void testGetStockAsOf_ShouldReturnBadRequest_WhenItemDoesNotExist() throws Exception {
+        when(inventorySnapshotService.stockAsOf(eq(9L), any(Instant.class))).thenThrow(new NotFoundExceptions("not found error", "item is not found"));
+
+        mockMvc.perform(get("/inventories/9/as-of")
+                        .param("ts", "2024-01-03T12:00:00Z")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors['not found error']").value("item is not found"));
+    }
+
+    @Test
+    void testDrainAlerts_ShouldReturnQueuedAlerts() throws Exception {
+        when(queueStockAlertSink.drain(100)).thenReturn(List.of(new StockAlert(100L, StockAlertKind.LOW_STOCK, 3, 5, Instant.parse("2024-01-03T12:00:00Z"))));
+
+        mockMvc.perform(get("/inventories/alerts")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Stock alerts retrieved successfully"))
+                .andExpect(jsonPath("$.data[0].itemId").value(100))
+                .andExpect(jsonPath("$.data[0].kind").value("LOW_STOCK"));
+    }
 }
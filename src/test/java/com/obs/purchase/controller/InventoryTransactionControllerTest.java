@@ -1,9 +1,14 @@
 package com.obs.purchase.controller;
 import com.obs.purchase.config.JpaAuditingConfig;
 import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.entity.StockHold;
+import com.obs.purchase.enums.ExportFormat;
+import com.obs.purchase.exceptions.InvalidRequest;
 import com.obs.purchase.exceptions.NotFoundExceptions;
 import com.obs.purchase.repository.ItemRepository;
+import com.obs.purchase.service.IdempotencyService;
 import com.obs.purchase.service.InventoryTransactionService;
+import com.obs.purchase.service.StockHoldService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.bytebuddy.implementation.bind.annotation.Empty;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,14 +21,24 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -41,6 +56,12 @@ class InventoryTransactionControllerTest {
     @MockBean
     private InventoryTransactionService inventoryTransactionService;
 
+    @MockBean
+    private StockHoldService stockHoldService;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -53,6 +74,8 @@ class InventoryTransactionControllerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(idempotencyService.execute(anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(3).get());
         mockMvc = MockMvcBuilders.standaloneSetup(inventoryTransactionController)
                 .setControllerAdvice(new GlobalExceptionHandler())  // Set up GlobalExceptionHandler
                 .build();
@@ -126,6 +149,39 @@ class InventoryTransactionControllerTest {
                 .andExpect(jsonPath("$.errors.qty").exists());
     }
 
+    @Test
+    void testCreateHold_ShouldReturnCreated() throws Exception {
+        StockHold hold = new StockHold("H1", 100L, 5, Instant.parse("2024-01-01T00:05:00Z"));
+        when(stockHoldService.hold(100L, 5, Duration.ofMinutes(10))).thenReturn(hold);
+
+        mockMvc.perform(post("/inventory-transaction/holds")
+                        .param("ttl", "PT10M")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"itemId\":100,\"qty\":5}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.message").value("Stock held successfully"))
+                .andExpect(jsonPath("$.data.holdNo").value("H1"))
+                .andExpect(jsonPath("$.data.state").value("HELD"));
+    }
+
+    @Test
+    void testConfirmHold_ShouldReturnWithdrawal() throws Exception {
+        when(stockHoldService.confirm("H1")).thenReturn(inventoryTransaction);
+
+        mockMvc.perform(post("/inventory-transaction/holds/H1/confirm"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.message").value("Hold confirmed successfully"))
+                .andExpect(jsonPath("$.data.type").value("W"));
+    }
+
+    @Test
+    void testReleaseHold_ShouldReturnBadRequest_WhenHoldIsNotActive() throws Exception {
+        when(stockHoldService.release("H1")).thenThrow(new InvalidRequest("invalid request", "hold is already expired"));
+
+        mockMvc.perform(delete("/inventory-transaction/holds/H1"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testGetItemById_NotFound_ShouldReturnNotFound() throws Exception {
         long nonExistentId = 999L;
@@ -220,4 +276,67 @@ class InventoryTransactionControllerTest {
 
         verify(inventoryTransactionService, times(1)).delete(1L);
     }
+
+    @Test
+    void testGetAll_ShouldUseKeysetPagination_WhenAfterIdGiven() throws Exception {
+        Slice<InventoryTransaction> slice = new SliceImpl<>(List.of(inventoryTransaction), PageRequest.of(0, 10), false);
+        when(inventoryTransactionService.findAllAfter(5L, 10)).thenReturn(slice);
+
+        mockMvc.perform(get("/inventory-transaction")
+                        .param("afterId", "5")
+                        .param("pageSize", "10")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("All transaction retrieved successfully"))
+                .andExpect(jsonPath("$.data.content.length()").value(1))
+                .andExpect(jsonPath("$.data.last").value(true))
+                .andExpect(jsonPath("$.data.totalElements").doesNotExist());
+
+        verify(inventoryTransactionService, times(1)).findAllAfter(5L, 10);
+        verify(inventoryTransactionService, never()).findAll(anyInt(), anyInt());
+    }
+
+    @Test
+    void testExportTransactions_ShouldStreamCsv() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(4);
+            outputStream.write("id,itemId,qty,type,createdAt,deletedAt\n1,100,5,W,,\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(inventoryTransactionService).export(eq(100L), isNull(), isNull(), eq(ExportFormat.CSV), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/inventory-transaction/export")
+                        .param("format", "csv")
+                        .param("itemId", "100"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string(containsString("1,100,5,W,,")));
+    }
+
+    @Test
+    void testExportTransactions_ShouldPassDateRangeFilter() throws Exception {
+        MvcResult result = mockMvc.perform(get("/inventory-transaction/export")
+                        .param("from", "2024-01-01T00:00:00Z")
+                        .param("to", "2024-02-01T00:00:00Z"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON));
+
+        verify(inventoryTransactionService, times(1)).export(isNull(), eq(Instant.parse("2024-01-01T00:00:00Z")),
+                eq(Instant.parse("2024-02-01T00:00:00Z")), eq(ExportFormat.NDJSON), any(OutputStream.class));
+    }
+
+    @Test
+    void testExportTransactions_ShouldReturnBadRequest_WhenFormatIsUnknown() throws Exception {
+        mockMvc.perform(get("/inventory-transaction/export")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors['invalid request']").value("format must be either 'ndjson' or 'csv'"));
+    }
 }
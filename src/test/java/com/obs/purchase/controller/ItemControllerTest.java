@@ -4,8 +4,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.obs.purchase.config.JpaAuditingConfig;
 import com.obs.purchase.controller.ItemController;
 import com.obs.purchase.entity.Item;
+import com.obs.purchase.entity.dto.CacheStatistics;
 import com.obs.purchase.exceptions.DuplicateObjectExceptions;
 import com.obs.purchase.exceptions.NotFoundExceptions;
+import com.obs.purchase.service.EntityCacheStatistics;
+import com.obs.purchase.service.ItemCatalogCache;
 import com.obs.purchase.service.ItemService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +21,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
@@ -42,6 +47,12 @@ class ItemControllerTest {
     @MockBean
     private ItemService itemService;
 
+    @MockBean
+    private ItemCatalogCache itemCatalogCache;
+
+    @MockBean
+    private EntityCacheStatistics entityCacheStatistics;
+
     private Item item;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
@@ -58,6 +69,25 @@ class ItemControllerTest {
         item.setPrice(10);
     }
 
+    @Test
+    void testGetCacheStatistics_ShouldReturnHitsAndMisses() throws Exception {
+        CacheStatistics statistics = new CacheStatistics();
+        statistics.setHitCount(3);
+        statistics.setMissCount(1);
+        when(itemCatalogCache.byIdStatistics()).thenReturn(statistics);
+        CacheStatistics entityStatistics = new CacheStatistics();
+        entityStatistics.setHitCount(7);
+        when(entityCacheStatistics.region("item")).thenReturn(entityStatistics);
+
+        mockMvc.perform(get("/items/cache-stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Item cache statistics retrieved successfully"))
+                .andExpect(jsonPath("$.data.byId.hitCount").value(3))
+                .andExpect(jsonPath("$.data.byId.missCount").value(1))
+                .andExpect(jsonPath("$.data.entity.hitCount").value(7))
+                .andExpect(jsonPath("$.data.byNameQuery").doesNotExist());
+    }
+
     @Test
     void testCreateItem_ShouldReturnCreated() throws Exception {
         when(itemService.save(any(Item.class))).thenReturn(item);
@@ -217,4 +247,23 @@ class ItemControllerTest {
 
         verify(itemService, times(1)).delete(1L);
     }
+
+    @Test
+    void testGetAll_ShouldUseKeysetPagination_WhenAfterIdGiven() throws Exception {
+        Slice<Item> slice = new SliceImpl<>(List.of(item), PageRequest.of(0, 10), false);
+        when(itemService.findAllAfter(5L, 10)).thenReturn(slice);
+
+        mockMvc.perform(get("/items")
+                        .param("afterId", "5")
+                        .param("pageSize", "10")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("All items retrieved successfully"))
+                .andExpect(jsonPath("$.data.content.length()").value(1))
+                .andExpect(jsonPath("$.data.last").value(true))
+                .andExpect(jsonPath("$.data.totalElements").doesNotExist());
+
+        verify(itemService, times(1)).findAllAfter(5L, 10);
+        verify(itemService, never()).findAll(anyInt(), anyInt());
+    }
 }
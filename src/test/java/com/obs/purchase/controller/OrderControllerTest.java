@@ -4,26 +4,36 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.obs.purchase.config.JpaAuditingConfig;
 import com.obs.purchase.entity.InventoryTransaction;
 import com.obs.purchase.entity.Order;
+import com.obs.purchase.entity.dto.BatchOrderResult;
+import com.obs.purchase.entity.dto.CartCheckout;
 import com.obs.purchase.entity.dto.GenericResponse;
+import com.obs.purchase.entity.dto.OrderStatus;
 import com.obs.purchase.exceptions.InvalidRequest;
 import com.obs.purchase.exceptions.NotFoundExceptions;
+import com.obs.purchase.service.AsyncOrderService;
+import com.obs.purchase.service.IdempotencyService;
 import com.obs.purchase.service.OrderService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -37,16 +47,25 @@ class OrderControllerTest {
     @Mock
     private OrderService orderService;
 
+    @Mock
+    private AsyncOrderService asyncOrderService;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
     @InjectMocks
     private OrderController orderController;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
 
     private Order order;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(idempotencyService.execute(anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(3).get());
         mockMvc = MockMvcBuilders.standaloneSetup(orderController)
                 .setControllerAdvice(new GlobalExceptionHandler())  // Set up GlobalExceptionHandler
                 .build();
@@ -76,6 +95,19 @@ class OrderControllerTest {
         verify(orderService, times(1)).save(any(Order.class));
     }
 
+    @Test
+    void testCreateOrder_ShouldRunUnderIdempotencyKey_WhenHeaderIsSent() throws Exception {
+        when(orderService.save(any(Order.class))).thenReturn(order);
+
+        mockMvc.perform(post("/orders")
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(order)))
+                .andExpect(status().isCreated());
+
+        verify(idempotencyService, times(1)).execute(eq("orders"), eq("retry-1"), eq("100:5"), any());
+    }
+
     @Test
     void testGetOrderById_ShouldReturnOrder_WhenOrderExists() throws Exception {
         when(orderService.findById(1L)).thenReturn(order);
@@ -108,6 +140,41 @@ class OrderControllerTest {
         verify(orderService, times(1)).findAll(0, 10);
     }
 
+    @Test
+    void testCreateOrders_ShouldReturnPerLineResults() throws Exception {
+        when(orderService.saveBatch(anyList())).thenReturn(List.of(
+                BatchOrderResult.accepted(0, "O1"),
+                BatchOrderResult.rejected(1, "insufficient amount of stock")));
+
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(order, order))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Batch orders processed"))
+                .andExpect(jsonPath("$.data[0].success").value(true))
+                .andExpect(jsonPath("$.data[0].orderNo").value("O1"))
+                .andExpect(jsonPath("$.data[1].success").value(false))
+                .andExpect(jsonPath("$.data[1].error").value("insufficient amount of stock"));
+
+        verify(orderService, times(1)).saveBatch(argThat(orders -> orders.size() == 2));
+    }
+
+    @Test
+    void testCreateOrdersFromStream_ShouldParseNdjsonLines() throws Exception {
+        when(orderService.saveBatch(anyList())).thenReturn(List.of(
+                BatchOrderResult.accepted(0, "O1"),
+                BatchOrderResult.accepted(1, "O2")));
+
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"itemId\":100,\"qty\":1}\n{\"item_id\":101,\"qty\":2}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[1].orderNo").value("O2"));
+
+        verify(orderService, times(1)).saveBatch(argThat(orders -> orders.size() == 2
+                && orders.get(1).getItemId() == 101L && orders.get(1).getQty() == 2));
+    }
+
     @Test
     void testUpdateOrder_ShouldReturnOk() throws Exception {
         doNothing().when(orderService).update(any(Order.class));
@@ -163,6 +230,56 @@ class OrderControllerTest {
         verify(orderService, times(1)).save(any(Order.class));
     }
 
+    @Test
+    void testCheckoutCart_ShouldReturnCreatedWithCartNumber() throws Exception {
+        order.setCartNo("C1");
+        when(orderService.checkout(anyList())).thenReturn(new CartCheckout("C1", List.of(order), 250));
+
+        mockMvc.perform(post("/orders/cart")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(order))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.message").value("Cart checked out successfully"))
+                .andExpect(jsonPath("$.data.cartNo").value("C1"))
+                .andExpect(jsonPath("$.data.total").value(250))
+                .andExpect(jsonPath("$.data.orders[0].orderNo").value("O1"));
+    }
+
+    @Test
+    void testCheckoutCart_ShouldReturnBadRequest_WhenAnyLineIsShort() throws Exception {
+        when(orderService.checkout(anyList())).thenThrow(new InvalidRequest("limited stock", "insufficient amount of stock for item 100"));
+
+        mockMvc.perform(post("/orders/cart")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(order))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors['limited stock']").value("insufficient amount of stock for item 100"));
+    }
+
+    @Test
+    void testCreateOrdersFromStream_ShouldReturnBadRequest_WhenLineIsMalformed() throws Exception {
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"itemId\":100,\"qty\":1}\n{\"itemId\":\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Application error"));
+
+        verify(orderService, never()).saveBatch(anyList());
+    }
+
+    @Test
+    void testCreateOrdersFromStream_ShouldReturnBadRequest_WhenBatchExceedsMaxSize() throws Exception {
+        ReflectionTestUtils.setField(orderController, "maxBatchSize", 2);
+
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"itemId\":100,\"qty\":1}\n{\"itemId\":100,\"qty\":1}\n{\"itemId\":100,\"qty\":1}\n{\"itemId\":"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors['invalid request']").value("batch exceeds 2 orders"));
+
+        verify(orderService, never()).saveBatch(anyList());
+    }
+
     @Test
     void testGetOrderById_ShouldReturnNotFound_WhenOrderDoesNotExist() throws Exception {
         when(orderService.findById(1L)).thenThrow(new NotFoundExceptions("not found error", "order not found"));
@@ -202,4 +319,62 @@ class OrderControllerTest {
 
         verify(orderService, times(1)).delete(1L);
     }
+
+    @Test
+    void testGetAll_ShouldUseKeysetPagination_WhenAfterIdGiven() throws Exception {
+        Slice<Order> slice = new SliceImpl<>(List.of(order), PageRequest.of(0, 10), false);
+        when(orderService.findAllAfter(5L, 10)).thenReturn(slice);
+
+        mockMvc.perform(get("/orders")
+                        .param("afterId", "5")
+                        .param("pageSize", "10")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("All orders retrieved successfully"))
+                .andExpect(jsonPath("$.data.content.length()").value(1))
+                .andExpect(jsonPath("$.data.last").value(true))
+                .andExpect(jsonPath("$.data.totalElements").doesNotExist());
+
+        verify(orderService, times(1)).findAllAfter(5L, 10);
+        verify(orderService, never()).findAll(anyInt(), anyInt());
+    }
+
+    @Test
+    void testCreateOrder_ShouldReturnAccepted_WhenAsyncEnabled() throws Exception {
+        when(asyncOrderService.isEnabled()).thenReturn(true);
+        when(asyncOrderService.accept(any(Order.class))).thenReturn(OrderStatus.accepted("O7"));
+
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(order)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.message").value("Order accepted"))
+                .andExpect(jsonPath("$.data.orderNo").value("O7"))
+                .andExpect(jsonPath("$.data.state").value("ACCEPTED"));
+
+        verify(orderService, never()).save(any(Order.class));
+    }
+
+    @Test
+    void testGetOrderStatus_ShouldReturnStatus() throws Exception {
+        when(asyncOrderService.status("O7")).thenReturn(OrderStatus.completed("O7", 12L));
+
+        mockMvc.perform(get("/orders/status/O7")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Order status retrieved successfully"))
+                .andExpect(jsonPath("$.data.state").value("COMPLETED"))
+                .andExpect(jsonPath("$.data.orderId").value(12))
+                .andExpect(jsonPath("$.data.error").doesNotExist());
+    }
+
+    @Test
+    void testGetOrderStatus_ShouldReturnNotFound_WhenOrderIsUnknown() throws Exception {
+        when(asyncOrderService.status("O9")).thenThrow(new NotFoundExceptions("not found error", "order not found"));
+
+        mockMvc.perform(get("/orders/status/O9")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors['not found error']").value("order not found"));
+    }
 }
@@ -0,0 +1,110 @@
+package com.obs.purchase.controller;
+
+import com.obs.purchase.config.JpaAuditingConfig;
+import com.obs.purchase.entity.dto.SalesBucket;
+import com.obs.purchase.entity.dto.TopItem;
+import com.obs.purchase.enums.RollupGranularity;
+import com.obs.purchase.exceptions.InvalidRequest;
+import com.obs.purchase.service.SalesRollupService;
+import com.obs.purchase.service.TopItemsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ReportController.class)
+@ContextConfiguration(classes = {JpaAuditingConfig.class}) // Load mock AuditorAware
+class ReportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private SalesRollupService salesRollupService;
+
+    @MockBean
+    private TopItemsService topItemsService;
+
+    @InjectMocks
+    private ReportController reportController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(reportController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void testGetSales_ShouldReturnBuckets() throws Exception {
+        Instant from = Instant.parse("2024-01-01T00:00:00Z");
+        Instant to = Instant.parse("2024-01-02T00:00:00Z");
+        when(salesRollupService.sales(RollupGranularity.DAY, from, to, null))
+                .thenReturn(List.of(new SalesBucket(100L, from, 3, 7, 350)));
+
+        mockMvc.perform(get("/reports/sales")
+                        .param("granularity", "DAY")
+                        .param("from", "2024-01-01T00:00:00Z")
+                        .param("to", "2024-01-02T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Sales retrieved successfully"))
+                .andExpect(jsonPath("$.data[0].itemId").value(100))
+                .andExpect(jsonPath("$.data[0].units").value(7))
+                .andExpect(jsonPath("$.data[0].revenue").value(350));
+    }
+
+    @Test
+    void testGetSales_ShouldReturnBadRequest_WhenRangeIsTooWide() throws Exception {
+        when(salesRollupService.sales(eq(RollupGranularity.HOUR), any(Instant.class), any(Instant.class), isNull()))
+                .thenThrow(new InvalidRequest("invalid request", "range spans more than 1440 buckets, use a coarser granularity"));
+
+        mockMvc.perform(get("/reports/sales")
+                        .param("from", "2024-01-01T00:00:00Z")
+                        .param("to", "2025-01-01T00:00:00Z"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors['invalid request']").value("range spans more than 1440 buckets, use a coarser granularity"));
+    }
+
+    @Test
+    void testGetTopItems_ShouldReturnBestSellersOfTheWindow() throws Exception {
+        when(topItemsService.topItems(10, Duration.ofMinutes(15)))
+                .thenReturn(List.of(new TopItem(100L, 40, 2), new TopItem(200L, 12, 0)));
+
+        mockMvc.perform(get("/reports/top-items")
+                        .param("limit", "10")
+                        .param("window", "PT15M"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Top items retrieved successfully"))
+                .andExpect(jsonPath("$.data[0].itemId").value(100))
+                .andExpect(jsonPath("$.data[0].units").value(40))
+                .andExpect(jsonPath("$.data[1].itemId").value(200));
+    }
+
+    @Test
+    void testGetTopItems_ShouldDefaultToTopHundredOfTheLastHour() throws Exception {
+        when(topItemsService.topItems(100, Duration.ofHours(1))).thenReturn(List.of());
+
+        mockMvc.perform(get("/reports/top-items"))
+                .andExpect(status().isOk());
+
+        verify(topItemsService, times(1)).topItems(100, Duration.ofHours(1));
+    }
+}
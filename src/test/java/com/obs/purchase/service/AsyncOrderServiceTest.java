@@ -0,0 +1,251 @@
+package com.obs.purchase.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.entity.Item;
+import com.obs.purchase.entity.Order;
+import com.obs.purchase.entity.dto.OrderStatus;
+import com.obs.purchase.enums.OrderState;
+import com.obs.purchase.exceptions.InvalidRequest;
+import com.obs.purchase.exceptions.NotFoundExceptions;
+import com.obs.purchase.repository.InventoryRepository;
+import com.obs.purchase.repository.InventoryTransactionRepository;
+import com.obs.purchase.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AsyncOrderServiceTest {
+
+    @TempDir
+    Path walDirectory;
+
+    @Spy
+    private PurchaseMetrics purchaseMetrics = new PurchaseMetrics(new SimpleMeterRegistry());
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private ItemCatalogCache itemCatalogCache;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private InventoryTransactionRepository inventoryTransactionRepository;
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @Mock
+    private TopItemsService topItemsService;
+
+    @Mock
+    private ReplicaLagGuard replicaLagGuard;
+
+    @Mock
+    private StockAlertService stockAlertService;
+
+    @InjectMocks
+    private AsyncOrderService asyncOrderService;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(asyncOrderService, "enabled", true);
+        ReflectionTestUtils.setField(asyncOrderService, "walDirectory", walDirectory.toString());
+        ReflectionTestUtils.setField(asyncOrderService, "segmentSize", 4096);
+        ReflectionTestUtils.setField(asyncOrderService, "fsync", false);
+        asyncOrderService.open();
+
+        order = new Order();
+        order.setItemId(100L);
+        order.setQty(5);
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(itemCatalogCache.findById(100L)).thenReturn(new Item(100L, "Pen", 50));
+        when(orderService.generateOrderNo()).thenReturn("O1", "O2", "O3");
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            long id = 1;
+            for (Order saved : orders) {
+                saved.setId(id++);
+            }
+            return orders;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncOrderService.close();
+    }
+
+    @Test
+    void testAccept_ShouldReserveStockAndReturnAccepted() {
+        when(stockLedger.reserveQueued(100L, 5)).thenReturn(true);
+
+        OrderStatus status = asyncOrderService.accept(order);
+
+        assertTrue(asyncOrderService.isEnabled());
+        assertEquals("O1", status.getOrderNo());
+        assertEquals(OrderState.ACCEPTED, status.getState());
+        assertEquals(OrderState.ACCEPTED, asyncOrderService.status("O1").getState());
+        verify(orderRepository, never()).saveAll(anyList());
+        verify(stockAlertService, times(1)).onStockChange(100L, -5);
+    }
+
+    @Test
+    void testAccept_ShouldReject_WhenStockIsInsufficient() {
+        when(stockLedger.reserveQueued(100L, 5)).thenReturn(false);
+        when(stockLedger.contains(100L)).thenReturn(true);
+
+        InvalidRequest exception = assertThrows(InvalidRequest.class, () -> asyncOrderService.accept(order));
+
+        assertEquals("limited stock", exception.getMessage());
+        assertEquals("insufficient amount of stock", exception.getSpecificCause());
+        verify(orderService, never()).generateOrderNo();
+    }
+
+    @Test
+    void testAccept_ShouldReject_WhenItemDoesNotExist() {
+        when(itemCatalogCache.findById(100L)).thenReturn(null);
+
+        assertThrows(NotFoundExceptions.class, () -> asyncOrderService.accept(order));
+        verify(stockLedger, never()).reserveQueued(anyLong(), anyInt());
+    }
+
+    @Test
+    void testAccept_ShouldReleaseStock_WhenOrderNumberCannotBeGenerated() {
+        when(stockLedger.reserveQueued(100L, 5)).thenReturn(true);
+        when(orderService.generateOrderNo()).thenThrow(new IllegalStateException("sequence unavailable"));
+
+        assertThrows(IllegalStateException.class, () -> asyncOrderService.accept(order));
+        verify(stockLedger, times(1)).releaseQueued(100L, 5);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDrain_ShouldSaveAcceptedOrdersInOneBatch() {
+        when(stockLedger.reserveQueued(100L, 5)).thenReturn(true);
+        asyncOrderService.accept(order);
+        asyncOrderService.accept(order);
+
+        asyncOrderService.drain();
+
+        ArgumentCaptor<List<Order>> orders = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<InventoryTransaction>> withdrawals = ArgumentCaptor.forClass(List.class);
+        verify(orderRepository, times(1)).saveAll(orders.capture());
+        verify(inventoryTransactionRepository, times(1)).saveAll(withdrawals.capture());
+        assertEquals(2, orders.getValue().size());
+        assertEquals(50L, orders.getValue().get(0).getPrice());
+        assertEquals(2, withdrawals.getValue().size());
+        verify(inventoryRepository, times(1)).takeStock(100L, 10);
+        verify(stockLedger, times(2)).unqueue(100L, 5);
+        verify(stockLedger, times(2)).drained(100L);
+        OrderStatus status = asyncOrderService.status("O2");
+        assertEquals(OrderState.COMPLETED, status.getState());
+        assertEquals(2L, status.getOrderId());
+
+        asyncOrderService.drain();
+        verify(orderRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDrain_ShouldSkipOrdersAlreadySaved_WhenReplayedAfterRestart() throws IOException {
+        when(stockLedger.reserveQueued(100L, 5)).thenReturn(true);
+        asyncOrderService.accept(order);
+        asyncOrderService.accept(order);
+        ReflectionTestUtils.setField(asyncOrderService, "writeAheadLog", null);
+
+        AsyncOrderService restarted = restart();
+        verify(stockLedger, times(2)).queue(100L, 5);
+        assertEquals(OrderState.ACCEPTED, restarted.status("O1").getState());
+
+        Order alreadySaved = new Order("O1", 100L, 5, 50);
+        alreadySaved.setId(9L);
+        when(orderRepository.findByOrderNoIn(anyCollection())).thenReturn(List.of(alreadySaved));
+        restarted.recover();
+        restarted.close();
+
+        ArgumentCaptor<List<Order>> orders = ArgumentCaptor.forClass(List.class);
+        verify(orderRepository, times(1)).saveAll(orders.capture());
+        assertEquals(1, orders.getValue().size());
+        assertEquals("O2", orders.getValue().get(0).getOrderNo());
+        assertEquals(9L, restarted.status("O1").getOrderId());
+        // O1 came off the table with its own drain before the restart
+        verify(inventoryRepository, times(1)).takeStock(100L, 5);
+        verify(stockLedger, times(2)).unqueue(100L, 5);
+    }
+
+    @Test
+    void testRecover_ShouldFailStartup_WhenLogCannotBeDrained() throws IOException {
+        when(stockLedger.reserveQueued(100L, 5)).thenReturn(true);
+        asyncOrderService.accept(order);
+        ReflectionTestUtils.setField(asyncOrderService, "writeAheadLog", null);
+        AsyncOrderService restarted = restart();
+        when(orderRepository.findByOrderNoIn(anyCollection())).thenThrow(new IllegalStateException("database unavailable"));
+
+        assertThrows(IllegalStateException.class, restarted::recover);
+
+        // still counted as queued, so a later flush does not write its stock as gone
+        verify(stockLedger, times(2)).queue(100L, 5);
+        verify(stockLedger, times(1)).unqueue(100L, 5);
+        ReflectionTestUtils.setField(restarted, "writeAheadLog", null);
+    }
+
+    private AsyncOrderService restart() throws IOException {
+        AsyncOrderService restarted = new AsyncOrderService();
+        ReflectionTestUtils.setField(restarted, "enabled", true);
+        ReflectionTestUtils.setField(restarted, "walDirectory", walDirectory.toString());
+        ReflectionTestUtils.setField(restarted, "segmentSize", 4096);
+        ReflectionTestUtils.setField(restarted, "fsync", false);
+        ReflectionTestUtils.setField(restarted, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(restarted, "purchaseMetrics", purchaseMetrics);
+        ReflectionTestUtils.setField(restarted, "stockLedger", stockLedger);
+        ReflectionTestUtils.setField(restarted, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(restarted, "inventoryTransactionRepository", inventoryTransactionRepository);
+        ReflectionTestUtils.setField(restarted, "inventoryRepository", inventoryRepository);
+        ReflectionTestUtils.setField(restarted, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(restarted, "salesRollupService", salesRollupService);
+        ReflectionTestUtils.setField(restarted, "topItemsService", topItemsService);
+        ReflectionTestUtils.setField(restarted, "replicaLagGuard", replicaLagGuard);
+        restarted.open();
+        return restarted;
+    }
+
+    @Test
+    void testStatus_ShouldThrowNotFound_WhenOrderIsUnknown() {
+        assertThrows(NotFoundExceptions.class, () -> asyncOrderService.status("O404"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.config.EntityCacheConfig;
+import com.obs.purchase.entity.dto.CacheStatistics;
+import com.obs.purchase.exceptions.NotFoundExceptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityCacheStatisticsTest {
+
+    private CacheManager cacheManager;
+
+    private EntityCacheStatistics entityCacheStatistics;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("purchase.entity-cache.maximum-size", "100")
+                .withProperty("purchase.entity-cache.item.maximum-size", "2");
+        cacheManager = new EntityCacheConfig().entityCacheManager(environment);
+        entityCacheStatistics = new EntityCacheStatistics();
+        ReflectionTestUtils.setField(entityCacheStatistics, "entityCacheManager", cacheManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.close();
+    }
+
+    @Test
+    void testRegion_ShouldCountHitsAndMisses() {
+        Cache<Object, Object> inventory = cacheManager.getCache("inventory");
+        inventory.put(1L, "first");
+        inventory.get(1L);
+        inventory.get(1L);
+        inventory.get(2L);
+
+        CacheStatistics statistics = entityCacheStatistics.region("inventory");
+
+        assertEquals(1, statistics.getSize());
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+    }
+
+    @Test
+    void testRegion_ShouldStayWithinItsMaximumSize() {
+        Cache<Object, Object> item = cacheManager.getCache("item");
+        for (long id = 1; id <= 50; id++) {
+            item.put(id, "item " + id);
+        }
+        item.unwrap(com.github.benmanes.caffeine.cache.Cache.class).cleanUp();
+
+        CacheStatistics statistics = entityCacheStatistics.region("item");
+
+        assertTrue(statistics.getSize() <= 2);
+        assertTrue(statistics.getEvictionCount() >= 48);
+    }
+
+    @Test
+    void testRegion_ShouldThrowNotFoundException_WhenRegionIsUnknown() {
+        NotFoundExceptions exception = assertThrows(NotFoundExceptions.class, () -> entityCacheStatistics.region("orders"));
+        assertEquals("cache region orders is not found", exception.getSpecificCause());
+    }
+}
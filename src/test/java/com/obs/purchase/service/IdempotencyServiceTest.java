@@ -0,0 +1,219 @@
+package com.obs.purchase.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.obs.purchase.entity.IdempotencyRecord;
+import com.obs.purchase.entity.Order;
+import com.obs.purchase.entity.dto.GenericResponse;
+import com.obs.purchase.exceptions.ConcurrentUpdateException;
+import com.obs.purchase.exceptions.InvalidRequest;
+import com.obs.purchase.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Spy
+    private PurchaseMetrics purchaseMetrics = new PurchaseMetrics(new SimpleMeterRegistry());
+
+    @InjectMocks
+    private IdempotencyService idempotencyService;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        idempotencyService.init();
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(idempotencyRecordRepository.complete(anyLong(), anyInt(), anyString(), any(Instant.class))).thenReturn(1);
+        order = new Order();
+        order.setItemId(100L);
+        order.setQty(5);
+        order.setPrice(50);
+    }
+
+    @Test
+    void testExecute_ShouldRunAction_WhenNoKeyIsGiven() {
+        idempotencyService.execute("orders", null, fingerprint(), createOrder());
+        idempotencyService.execute("orders", null, fingerprint(), createOrder());
+
+        assertEquals(2, executions.get());
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void testExecute_ShouldReplayStoredResponse_WhenKeyIsRetried() {
+        ResponseEntity<GenericResponse<?>> first = idempotencyService.execute("orders", "k1", fingerprint(), createOrder());
+        ResponseEntity<GenericResponse<?>> retry = idempotencyService.execute("orders", "k1", fingerprint(), createOrder());
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(first.getBody().getMessage(), retry.getBody().getMessage());
+        assertEquals("O1", objectMapper.valueToTree(retry.getBody().getData()).get("orderNo").asText());
+        verify(idempotencyRecordRepository, times(1)).saveAndFlush(any(IdempotencyRecord.class));
+        verify(idempotencyRecordRepository, times(1)).findByIdempotencyKey("orders:k1");
+    }
+
+    @Test
+    void testExecute_ShouldReject_WhenKeyIsReusedForDifferentRequest() {
+        idempotencyService.execute("orders", "k1", fingerprint(), createOrder());
+        order.setQty(6);
+
+        InvalidRequest exception = assertThrows(InvalidRequest.class, () -> idempotencyService.execute("orders", "k1", fingerprint(), createOrder()));
+
+        assertEquals("Idempotency-Key was already used for a different request", exception.getSpecificCause());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testExecute_ShouldReplayFromTable_WhenResponseIsNotInMemory() throws Exception {
+        idempotencyService.execute("orders", "k0", fingerprint(), createOrder());
+        ArgumentCaptor<IdempotencyRecord> saved = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).saveAndFlush(saved.capture());
+        String body = objectMapper.writeValueAsString(new GenericResponse<>("Order created successfully", order));
+        when(idempotencyRecordRepository.findByIdempotencyKey("orders:k1"))
+                .thenReturn(new IdempotencyRecord("orders:k1", saved.getValue().getRequestHash(), 201, body, Instant.now().plusSeconds(60)));
+
+        ResponseEntity<GenericResponse<?>> replayed = idempotencyService.execute("orders", "k1", fingerprint(), createOrder());
+
+        assertEquals(HttpStatus.CREATED, replayed.getStatusCode());
+        assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testExecute_ShouldRunDuplicateOnce_WhenRequestsAreConcurrent() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<ResponseEntity<GenericResponse<?>>> slowOrder = () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return createOrder().get();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<GenericResponse<?>>> leader = executor.submit(() -> idempotencyService.execute("orders", "k1", fingerprint(), slowOrder));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<ResponseEntity<GenericResponse<?>>> duplicate = executor.submit(() -> idempotencyService.execute("orders", "k1", fingerprint(), slowOrder));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals(HttpStatus.CREATED, leader.get(5, TimeUnit.SECONDS).getStatusCode());
+            assertEquals(HttpStatus.CREATED, duplicate.get(5, TimeUnit.SECONDS).getStatusCode());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testExecute_ShouldRunAgain_WhenFirstAttemptFailed() {
+        assertThrows(InvalidRequest.class, () -> idempotencyService.execute("orders", "k1", fingerprint(), () -> {
+            throw new InvalidRequest("limited stock", "insufficient amount of stock");
+        }));
+
+        idempotencyService.execute("orders", "k1", fingerprint(), createOrder());
+
+        assertEquals(1, executions.get());
+        verify(idempotencyRecordRepository, times(2)).saveAndFlush(any(IdempotencyRecord.class));
+        verify(idempotencyRecordRepository, times(1)).deleteClaim(anyLong());
+        verify(idempotencyRecordRepository, times(1)).complete(anyLong(), eq(201), anyString(), any(Instant.class));
+    }
+
+    @Test
+    void testExecute_ShouldReplayWinner_WhenAnotherNodeStoredTheKeyFirst() throws Exception {
+        String body = objectMapper.writeValueAsString(new GenericResponse<>("Order created successfully", order));
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord mine = invocation.getArgument(0);
+            when(idempotencyRecordRepository.findByIdempotencyKey("orders:k1"))
+                    .thenReturn(new IdempotencyRecord("orders:k1", mine.getRequestHash(), 201, body, Instant.now().plusSeconds(60)));
+            throw new DataIntegrityViolationException("uk_idempotency_record_key");
+        });
+
+        ResponseEntity<GenericResponse<?>> response = idempotencyService.execute("orders", "k1", fingerprint(), createOrder());
+
+        assertEquals("true", response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    }
+
+    @Test
+    void testExecute_ShouldNotRunAction_WhenAnotherNodeClaimedTheKeyFirst() {
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord mine = invocation.getArgument(0);
+            when(idempotencyRecordRepository.findByIdempotencyKey("orders:k1"))
+                    .thenReturn(new IdempotencyRecord("orders:k1", mine.getRequestHash(), IdempotencyRecord.CLAIMED, "", Instant.now().plusSeconds(30)));
+            throw new DataIntegrityViolationException("uk_idempotency_record_key");
+        });
+
+        assertThrows(ConcurrentUpdateException.class, () -> idempotencyService.execute("orders", "k1", fingerprint(), createOrder()));
+
+        assertEquals(0, executions.get());
+        verify(idempotencyRecordRepository, never()).complete(anyLong(), anyInt(), anyString(), any(Instant.class));
+    }
+
+    @Test
+    void testExecute_ShouldRejectRetry_WhileKeyIsClaimed() {
+        idempotencyService.execute("orders", "k0", fingerprint(), createOrder());
+        ArgumentCaptor<IdempotencyRecord> claimed = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).saveAndFlush(claimed.capture());
+        assertTrue(claimed.getValue().isClaimed());
+        when(idempotencyRecordRepository.findByIdempotencyKey("orders:k1"))
+                .thenReturn(new IdempotencyRecord("orders:k1", claimed.getValue().getRequestHash(), IdempotencyRecord.CLAIMED, "", Instant.now().plusSeconds(30)));
+
+        ConcurrentUpdateException exception = assertThrows(ConcurrentUpdateException.class, () -> idempotencyService.execute("orders", "k1", fingerprint(), createOrder()));
+
+        assertEquals("a request with this Idempotency-Key is still running, please retry", exception.getSpecificCause());
+        assertEquals(1, executions.get());
+    }
+
+    private String fingerprint() {
+        return order.getItemId() + ":" + order.getQty();
+    }
+
+    private Supplier<ResponseEntity<GenericResponse<?>>> createOrder() {
+        return () -> {
+            executions.incrementAndGet();
+            Order saved = new Order("O1", order.getItemId(), order.getQty(), 50);
+            return new ResponseEntity<>(new GenericResponse<>("Order created successfully", saved), HttpStatus.CREATED);
+        };
+    }
+}
@@ -1,20 +1,31 @@
 package com.obs.purchase.service;
 
 import com.obs.purchase.entity.Inventory;
+import com.obs.purchase.entity.InventoryTransaction;
 import com.obs.purchase.exceptions.DuplicateObjectExceptions;
 import com.obs.purchase.exceptions.NotFoundExceptions;
 import com.obs.purchase.repository.InventoryRepository;
+import com.obs.purchase.repository.InventoryTransactionRepository;
 import com.obs.purchase.repository.ItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.sql.SQLException;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
@@ -30,6 +41,23 @@ class InventoryServiceTest {
     @Mock
     private ItemRepository itemRepository;
 
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private InventoryTransactionRepository inventoryTransactionRepository;
+
+    @Mock
+    private StockAlertService stockAlertService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private PurchaseMetrics purchaseMetrics = new PurchaseMetrics(meterRegistry);
+
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(purchaseMetrics);
+
     @InjectMocks
     private InventoryService inventoryService;
 
@@ -46,26 +74,32 @@ class InventoryServiceTest {
 
     @Test
     void testSave_ShouldReturnSavedInventory() {
-        when(inventoryRepository.findByItemId(inventory.getItemId())).thenReturn(null);
-        when(inventoryRepository.save(inventory)).thenReturn(inventory);
+        when(inventoryRepository.saveAndFlush(inventory)).thenReturn(inventory);
 
         Inventory result = inventoryService.save(inventory);
 
         assertNotNull(result);
         assertEquals(inventory.getItemId(), result.getItemId());
         assertEquals(inventory.getStock(), result.getStock());
-        verify(inventoryRepository, times(1)).findByItemId(inventory.getItemId());
-        verify(inventoryRepository, times(1)).save(inventory);
+        verify(inventoryRepository, times(1)).saveAndFlush(inventory);
+        verify(stockAlertService, times(1)).watch(100L, null, 50);
     }
 
     @Test
     void testSave_ShouldThrowDuplicateObjectExceptions_WhenInventoryExists() {
-        when(inventoryRepository.findByItemId(inventory.getItemId())).thenReturn(inventory);
+        when(inventoryRepository.saveAndFlush(inventory)).thenThrow(violation("PUBLIC.UK_INVENTORY_ITEM_ID_INDEX_3"));
 
         assertThrows(DuplicateObjectExceptions.class, () -> inventoryService.save(inventory));
 
-        verify(inventoryRepository, times(1)).findByItemId(inventory.getItemId());
-        verify(inventoryRepository, never()).save(any());
+        verify(stockLedger, never()).put(anyLong(), anyInt());
+    }
+
+    @Test
+    void testSave_ShouldRethrow_WhenOtherConstraintIsViolated() {
+        DataIntegrityViolationException violation = violation("PUBLIC.CONSTRAINT_8");
+        when(inventoryRepository.saveAndFlush(inventory)).thenThrow(violation);
+
+        assertSame(violation, assertThrows(DataIntegrityViolationException.class, () -> inventoryService.save(inventory)));
     }
 
     @Test
@@ -77,6 +111,7 @@ class InventoryServiceTest {
         assertNotNull(inventory.getDeletedAt());
         verify(inventoryRepository, times(1)).findById(inventory.getId());
         verify(inventoryRepository, times(1)).save(inventory);
+        verify(stockAlertService, times(1)).unwatch(100L);
     }
 
     @Test
@@ -95,6 +130,7 @@ class InventoryServiceTest {
         updatedInventory.setId(1L);
         updatedInventory.setItemId(100L);
         updatedInventory.setStock(60);
+        updatedInventory.setReorderLevel(10);
 
         when(inventoryRepository.findById(inventory.getId())).thenReturn(Optional.of(inventory));
 
@@ -103,6 +139,26 @@ class InventoryServiceTest {
         assertEquals(updatedInventory.getStock(), inventory.getStock());
         verify(inventoryRepository, times(1)).findById(inventory.getId());
         verify(inventoryRepository, times(1)).save(inventory);
+        verify(stockAlertService, times(1)).watch(100L, 10, 60);
+    }
+
+    @Test
+    void testUpdate_ShouldRereadAndRetry_WhenVersionConflicts() {
+        Inventory updatedInventory = new Inventory(100L, 60);
+        updatedInventory.setId(1L);
+        updatedInventory.setVersion(0L);
+        inventory.setVersion(3L);
+        when(inventoryRepository.findById(inventory.getId())).thenReturn(Optional.of(inventory));
+        when(inventoryRepository.save(inventory))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Inventory.class, 1L))
+                .thenReturn(inventory);
+
+        inventoryService.update(updatedInventory);
+
+        assertEquals(60, inventory.getStock());
+        assertEquals(3L, inventory.getVersion());
+        verify(inventoryRepository, times(2)).findById(inventory.getId());
+        assertEquals(1.0, meterRegistry.get(PurchaseMetrics.OPTIMISTIC_RETRIES).tag("operation", "inventory.update").counter().count());
     }
 
     @Test
@@ -120,6 +176,18 @@ class InventoryServiceTest {
         verify(inventoryRepository, never()).save(any());
     }
 
+    @Test
+    void testFindById_ShouldReportLedgerTotal_WhenItemIsSharded() {
+        when(inventoryRepository.findById(inventory.getId())).thenReturn(Optional.of(inventory));
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.isSharded(inventory.getItemId())).thenReturn(true);
+        when(stockLedger.getStock(inventory.getItemId())).thenReturn(7);
+
+        Inventory result = inventoryService.findById(inventory.getId());
+
+        assertEquals(7, result.getStock());
+    }
+
     @Test
     void testFindById_ShouldReturnInventory_WhenInventoryExists() {
         when(inventoryRepository.findById(inventory.getId())).thenReturn(Optional.of(inventory));
@@ -154,4 +222,56 @@ class InventoryServiceTest {
         assertEquals(inventory, result.getContent().get(0));
         verify(inventoryRepository, times(1)).findAll(pageable);
     }
+
+    @Test
+    void testFindAllAfter_ShouldReturnSliceAfterCursor() {
+        Pageable pageable = PageRequest.of(0, 10);
+        Slice<Inventory> slice = new SliceImpl<>(List.of(inventory), pageable, true);
+        when(inventoryRepository.findByIdGreaterThanOrderByIdAsc(5L, pageable)).thenReturn(slice);
+
+        Slice<Inventory> result = inventoryService.findAllAfter(5L, 10);
+
+        assertEquals(inventory, result.getContent().get(0));
+        assertTrue(result.hasNext());
+        verify(inventoryRepository, times(1)).findByIdGreaterThanOrderByIdAsc(5L, pageable);
+        verify(inventoryRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void testUpdate_ShouldLogStockDifference_WhenEventSourced() {
+        Inventory updatedInventory = new Inventory(100L, 35);
+        updatedInventory.setId(1L);
+        when(inventoryRepository.findById(1L)).thenReturn(Optional.of(inventory));
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.isEventSourced()).thenReturn(true);
+        when(stockLedger.put(100L, 35)).thenReturn(50);
+
+        inventoryService.update(updatedInventory);
+
+        ArgumentCaptor<InventoryTransaction> captor = ArgumentCaptor.forClass(InventoryTransaction.class);
+        verify(inventoryTransactionRepository, times(1)).save(captor.capture());
+        assertEquals(15, captor.getValue().getQty());
+        assertEquals("W", captor.getValue().getType());
+        verify(stockLedger, times(1)).put(100L, 35);
+    }
+
+    @Test
+    void testUpdate_ShouldNotLogStock_WhenNotEventSourced() {
+        when(inventoryRepository.findById(1L)).thenReturn(Optional.of(inventory));
+        when(stockLedger.isEnabled()).thenReturn(true);
+        Inventory updatedInventory = new Inventory(100L, 35);
+        updatedInventory.setId(1L);
+
+        inventoryService.update(updatedInventory);
+
+        verify(inventoryTransactionRepository, never()).save(any(InventoryTransaction.class));
+        verify(stockLedger, times(1)).put(100L, 35);
+        // the counter and its flush own the stock column
+        assertEquals(50, inventory.getStock());
+    }
+
+    private static DataIntegrityViolationException violation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", new SQLException("violation", "23505"), constraintName));
+    }
 }
@@ -0,0 +1,243 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.InventorySnapshot;
+import com.obs.purchase.entity.Item;
+import com.obs.purchase.entity.dto.StockAsOf;
+import com.obs.purchase.entity.dto.StockChange;
+import com.obs.purchase.entity.dto.StockMovement;
+import com.obs.purchase.exceptions.NotFoundExceptions;
+import com.obs.purchase.repository.InventorySnapshotRepository;
+import com.obs.purchase.repository.InventoryTransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InventorySnapshotServiceTest {
+
+    @Mock
+    private InventorySnapshotRepository inventorySnapshotRepository;
+
+    @Mock
+    private InventoryTransactionRepository inventoryTransactionRepository;
+
+    @Mock
+    private ItemCatalogCache itemCatalogCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private PurchaseMetrics purchaseMetrics = new PurchaseMetrics(new SimpleMeterRegistry());
+
+    @InjectMocks
+    private InventorySnapshotService inventorySnapshotService;
+
+    private final Instant lastAsOf = Instant.parse("2024-01-01T00:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testCurrentStocks_ShouldAddUnfoldedChangesToLatestSnapshots() {
+        when(inventorySnapshotRepository.findLatest()).thenReturn(List.of(new InventorySnapshot(1L, 10, lastAsOf, 0)));
+        when(inventoryTransactionRepository.sumUnfoldedStockChanges())
+                .thenReturn(List.of(new StockChange(1L, -3, 1), new StockChange(2L, 5, 1)));
+
+        Map<Long, Integer> stocks = inventorySnapshotService.currentStocks();
+
+        assertEquals(Map.of(1L, 7, 2L, 5), stocks);
+    }
+
+    @Test
+    void testCurrentStocks_ShouldFoldWholeLog_WhenNoSnapshotYet() {
+        when(inventoryTransactionRepository.sumUnfoldedStockChanges()).thenReturn(List.of(new StockChange(1L, 4, 1)));
+
+        assertEquals(Map.of(1L, 4), inventorySnapshotService.currentStocks());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSnapshot_ShouldWriteChangedItemsOnTopOfPreviousSnapshot() {
+        Instant t1 = lastAsOf.plusSeconds(60);
+        Instant t2 = lastAsOf.plusSeconds(120);
+        when(inventorySnapshotRepository.nextRound()).thenReturn(4L);
+        when(inventoryTransactionRepository.markSnapshotRound(4L)).thenReturn(2);
+        when(inventoryTransactionRepository.sumStockChangesInRound(4L))
+                .thenReturn(List.of(new StockChange(1L, -3, 1, t1, t1), new StockChange(2L, 5, 1, t2, t2)));
+        when(inventorySnapshotRepository.findLatestByItemIdIn(anyCollection()))
+                .thenReturn(List.of(new InventorySnapshot(1L, 10, lastAsOf, 0)));
+
+        int written = inventorySnapshotService.snapshot();
+
+        ArgumentCaptor<List<InventorySnapshot>> captor = ArgumentCaptor.forClass(List.class);
+        verify(inventorySnapshotRepository, times(1)).saveAll(captor.capture());
+        verify(inventorySnapshotRepository, never()).addToCheckpoints(anyLong(), any(), any(), anyInt());
+        assertEquals(2, written);
+        assertEquals(7, captor.getValue().get(0).getStock());
+        assertEquals(t1, captor.getValue().get(0).getAsOf());
+        assertEquals(5, captor.getValue().get(1).getStock());
+        assertEquals(t2, captor.getValue().get(1).getAsOf());
+    }
+
+    @Test
+    void testSnapshot_ShouldWriteNothing_WhenNoTransactionIsUnfolded() {
+        when(inventorySnapshotRepository.nextRound()).thenReturn(4L);
+
+        assertEquals(0, inventorySnapshotService.snapshot());
+        verify(inventoryTransactionRepository, never()).sumStockChangesInRound(anyLong());
+        verify(inventorySnapshotRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void testScheduledSnapshot_ShouldFoldOnlyForEventSourcedLedger() {
+        inventorySnapshotService.scheduledSnapshot();
+        ReflectionTestUtils.setField(inventorySnapshotService, "ledgerEnabled", true);
+        inventorySnapshotService.scheduledSnapshot();
+        verify(inventorySnapshotRepository, never()).nextRound();
+
+        ReflectionTestUtils.setField(inventorySnapshotService, "eventSourced", true);
+        inventorySnapshotService.scheduledSnapshot();
+        verify(inventorySnapshotRepository, times(1)).nextRound();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSnapshot_ShouldMoveLatestSnapshotForward_WhileBelowCheckpointSize() {
+        Instant t1 = lastAsOf.plusSeconds(60);
+        InventorySnapshot latest = new InventorySnapshot(1L, 10, lastAsOf, 150);
+        InventorySnapshot full = new InventorySnapshot(2L, 10, lastAsOf, 199);
+        when(inventoryTransactionRepository.markSnapshotRound(anyLong())).thenReturn(52);
+        when(inventoryTransactionRepository.sumStockChangesInRound(anyLong()))
+                .thenReturn(List.of(new StockChange(1L, 2, 50, t1, t1), new StockChange(2L, 2, 2, t1, t1)));
+        when(inventorySnapshotRepository.findLatestByItemIdIn(anyCollection())).thenReturn(List.of(latest, full));
+
+        inventorySnapshotService.snapshot();
+
+        ArgumentCaptor<List<InventorySnapshot>> captor = ArgumentCaptor.forClass(List.class);
+        verify(inventorySnapshotRepository, times(1)).saveAll(captor.capture());
+        assertSame(latest, captor.getValue().get(0));
+        assertEquals(12, latest.getStock());
+        assertEquals(200, latest.getTransactionCount());
+        assertEquals(t1, latest.getAsOf());
+        assertSame(full, captor.getValue().get(1));
+        assertEquals(lastAsOf, full.getAsOf());
+        assertEquals(12, captor.getValue().get(2).getStock());
+        assertEquals(2, captor.getValue().get(2).getTransactionCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSnapshot_ShouldFoldLateTransactionIntoEarlierSnapshots() {
+        Instant late = lastAsOf.minusSeconds(60);
+        Instant t1 = lastAsOf.plusSeconds(60);
+        InventorySnapshot latest = new InventorySnapshot(1L, 10, lastAsOf, 150);
+        when(inventorySnapshotRepository.nextRound()).thenReturn(5L);
+        when(inventoryTransactionRepository.markSnapshotRound(5L)).thenReturn(2);
+        when(inventoryTransactionRepository.sumStockChangesInRound(5L)).thenReturn(List.of(new StockChange(1L, 1, 2, late, t1)));
+        when(inventorySnapshotRepository.findLatestByItemIdIn(anyCollection())).thenReturn(List.of(latest));
+        when(inventoryTransactionRepository.findStockMovementsInRound(1L, 5L, lastAsOf)).thenReturn(List.of(new StockMovement(1L, late, -3)));
+
+        inventorySnapshotService.snapshot();
+
+        ArgumentCaptor<List<InventorySnapshot>> captor = ArgumentCaptor.forClass(List.class);
+        verify(inventorySnapshotRepository).addToCheckpoints(1L, late, lastAsOf, -3);
+        verify(inventorySnapshotRepository, times(1)).saveAll(captor.capture());
+        assertEquals(List.of(latest), captor.getValue());
+        assertEquals(11, latest.getStock());
+        assertEquals(151, latest.getTransactionCount());
+        assertEquals(t1, latest.getAsOf());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRebuild_ShouldReplayLogIntoCheckpointsEveryFewTransactions() {
+        ReflectionTestUtils.setField(inventorySnapshotService, "chunkSize", 2);
+        ReflectionTestUtils.setField(inventorySnapshotService, "rebuildThreads", 2);
+        ReflectionTestUtils.setField(inventorySnapshotService, "checkpointTransactions", 2);
+        Instant t1 = Instant.parse("2024-01-01T10:00:00Z");
+        Instant t2 = Instant.parse("2024-01-02T10:00:00Z");
+        Instant t3 = Instant.parse("2024-01-03T10:00:00Z");
+        when(inventoryTransactionRepository.findFoldedItemIds()).thenReturn(List.of(1L, 2L, 3L));
+        when(inventoryTransactionRepository.streamFoldedStockMovements(List.of(1L, 2L))).thenReturn(Stream.of(
+                new StockMovement(1L, t1, 10),
+                new StockMovement(1L, t2, -4),
+                // same timestamp as the one before: a checkpoint can't fall between them
+                new StockMovement(1L, t2, -1),
+                new StockMovement(1L, t3, -2),
+                new StockMovement(2L, t3, 7)));
+        when(inventoryTransactionRepository.streamFoldedStockMovements(List.of(3L)))
+                .thenReturn(Stream.of(new StockMovement(3L, t1, 5)));
+
+        int rebuilt = inventorySnapshotService.rebuild();
+
+        ArgumentCaptor<List<InventorySnapshot>> captor = ArgumentCaptor.forClass(List.class);
+        verify(inventorySnapshotRepository, times(1)).deleteAllInBatch();
+        verify(inventorySnapshotRepository, times(1)).saveAll(captor.capture());
+        assertEquals(3, rebuilt);
+        List<InventorySnapshot> snapshots = captor.getValue();
+        assertEquals(4, snapshots.size());
+        assertEquals(1L, snapshots.get(0).getItemId());
+        assertEquals(5, snapshots.get(0).getStock());
+        assertEquals(t2, snapshots.get(0).getAsOf());
+        assertEquals(3, snapshots.get(0).getTransactionCount());
+        assertEquals(3, snapshots.get(1).getStock());
+        assertEquals(t3, snapshots.get(1).getAsOf());
+        assertEquals(1, snapshots.get(1).getTransactionCount());
+        assertEquals(7, snapshots.get(2).getStock());
+        assertEquals(5, snapshots.get(3).getStock());
+        assertEquals(t1, snapshots.get(3).getAsOf());
+    }
+
+    @Test
+    void testStockAsOf_ShouldAddRangeAfterNearestCheckpoint() {
+        Instant checkpointAsOf = Instant.parse("2024-01-03T00:00:00Z");
+        Instant asOf = Instant.parse("2024-01-03T12:00:00Z");
+        when(itemCatalogCache.findById(1L)).thenReturn(new Item(1L, "Pen", 5));
+        when(inventorySnapshotRepository.findTopByItemIdAndAsOfLessThanEqualOrderByAsOfDesc(1L, asOf))
+                .thenReturn(new InventorySnapshot(1L, 6, checkpointAsOf, 0));
+        when(inventoryTransactionRepository.sumStockChange(1L, checkpointAsOf, asOf)).thenReturn(-2L);
+        // committed after the round that wrote the checkpoint, though created before it
+        when(inventoryTransactionRepository.sumUnfoldedStockChange(1L, checkpointAsOf)).thenReturn(-1L);
+
+        StockAsOf stock = inventorySnapshotService.stockAsOf(1L, asOf);
+
+        assertEquals(3, stock.getStock());
+        assertEquals(asOf, stock.getAsOf());
+        assertEquals(checkpointAsOf, stock.getCheckpointAsOf());
+    }
+
+    @Test
+    void testStockAsOf_ShouldScanFromStart_WhenNoCheckpointBefore() {
+        Instant asOf = Instant.parse("2024-01-03T12:00:00Z");
+        when(itemCatalogCache.findById(1L)).thenReturn(new Item(1L, "Pen", 5));
+        when(inventoryTransactionRepository.sumStockChange(1L, Instant.EPOCH, asOf)).thenReturn(3L);
+
+        StockAsOf stock = inventorySnapshotService.stockAsOf(1L, asOf);
+
+        assertEquals(3, stock.getStock());
+        assertNull(stock.getCheckpointAsOf());
+    }
+
+    @Test
+    void testStockAsOf_ShouldThrowNotFound_WhenItemDoesNotExist() {
+        assertThrows(NotFoundExceptions.class, () -> inventorySnapshotService.stockAsOf(9L, Instant.now()));
+        verify(inventoryTransactionRepository, never()).sumStockChange(anyLong(), any(), any());
+    }
+}
@@ -1,27 +1,39 @@
 package com.obs.purchase.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.obs.purchase.entity.Inventory;
 import com.obs.purchase.entity.InventoryTransaction;
 import com.obs.purchase.entity.Item;
+import com.obs.purchase.enums.ExportFormat;
 import com.obs.purchase.enums.Type;
 import com.obs.purchase.exceptions.InvalidRequest;
 import com.obs.purchase.exceptions.NotFoundExceptions;
 import com.obs.purchase.repository.InventoryRepository;
 import com.obs.purchase.repository.InventoryTransactionRepository;
-import com.obs.purchase.repository.ItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -35,7 +47,24 @@ class InventoryTransactionServiceTest {
     private InventoryRepository inventoryRepository;
 
     @Mock
-    private ItemRepository itemRepository;
+    private ItemCatalogCache itemCatalogCache;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private StockAlertService stockAlertService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private PurchaseMetrics purchaseMetrics = new PurchaseMetrics(meterRegistry);
 
     @InjectMocks
     private InventoryTransactionService inventoryTransactionService;
@@ -58,17 +87,33 @@ class InventoryTransactionServiceTest {
     }
 
     @Test
-    void testSave_ShouldAddToStock_WhenTopUp() {
-        when(itemRepository.findById(inventoryTransaction.getItemId())).thenReturn(Optional.of(new Item()));
-        when(inventoryRepository.findByItemId(inventoryTransaction.getItemId())).thenReturn(inventory);
+    void testSave_ShouldUpsertStock_WhenTopUp() {
+        when(itemCatalogCache.findById(inventoryTransaction.getItemId())).thenReturn(new Item());
+        when(inventoryRepository.topUpStock(1L, 10)).thenReturn(1);
+        when(inventoryTransactionRepository.save(inventoryTransaction)).thenReturn(inventoryTransaction);
+
+        InventoryTransaction savedTransaction = inventoryTransactionService.save(inventoryTransaction);
+
+        assertEquals(inventoryTransaction, savedTransaction);
+        verify(inventoryRepository, times(1)).topUpStock(1L, 10);
+        verify(inventoryRepository, never()).findByItemId(anyLong());
+        verify(inventoryTransactionRepository, times(1)).save(inventoryTransaction);
+        verify(stockAlertService, times(1)).onStockChange(1L, 10);
+    }
+
+    @Test
+    void testSave_ShouldDecrementStockConditionally_WhenWithdrawal() {
+        inventoryTransaction.setType(Type.WITHDRAWAL.getDisplayName());
+        when(itemCatalogCache.findById(inventoryTransaction.getItemId())).thenReturn(new Item());
+        when(inventoryRepository.withdrawStock(1L, 10)).thenReturn(1);
         when(inventoryTransactionRepository.save(inventoryTransaction)).thenReturn(inventoryTransaction);
 
         InventoryTransaction savedTransaction = inventoryTransactionService.save(inventoryTransaction);
 
         assertEquals(inventoryTransaction, savedTransaction);
-        verify(inventoryRepository, times(1)).save(inventory);
-        verify(inventoryTransactionRepository, times(2)).save(inventoryTransaction);
-        assertEquals(30, inventory.getStock());
+        verify(inventoryRepository, never()).existsByItemId(anyLong());
+        verify(inventoryRepository, never()).save(any(Inventory.class));
+        verify(stockAlertService, times(1)).onStockChange(1L, -10);
     }
 
     @Test
@@ -76,35 +121,133 @@ class InventoryTransactionServiceTest {
         inventoryTransaction.setType(Type.WITHDRAWAL.getDisplayName());
         inventoryTransaction.setQty(50);  // Exceeds available stock
 
-        when(itemRepository.findById(inventoryTransaction.getItemId())).thenReturn(Optional.of(new Item()));
-        when(inventoryRepository.findByItemId(inventoryTransaction.getItemId())).thenReturn(inventory);
+        when(itemCatalogCache.findById(inventoryTransaction.getItemId())).thenReturn(new Item());
+        when(inventoryRepository.withdrawStock(1L, 50)).thenReturn(0);
+        when(inventoryRepository.existsByItemId(1L)).thenReturn(true);
 
         InvalidRequest exception = assertThrows(InvalidRequest.class, () -> inventoryTransactionService.save(inventoryTransaction));
         assertEquals("limited stock", exception.getMessage());
         assertEquals("insufficient amount of stock", exception.getSpecificCause());
+        verify(inventoryTransactionRepository, never()).save(any(InventoryTransaction.class));
+        verify(stockAlertService, never()).onStockChange(anyLong(), anyInt());
     }
 
     @Test
-    void testSave_ShouldInitializeStock_WhenNewItemAndTopUp() {
-        when(itemRepository.findById(inventoryTransaction.getItemId())).thenReturn(Optional.of(new Item()));
-        when(inventoryRepository.findByItemId(inventoryTransaction.getItemId())).thenReturn(null);  // No inventory record exists for the item
-        when(inventoryTransactionRepository.save(inventoryTransaction)).thenReturn(inventoryTransaction);
+    void testSave_ShouldCountRejectionAndTimeUpdate_WhenWithdrawalExceedsStock() {
+        inventoryTransaction.setType(Type.WITHDRAWAL.getDisplayName());
+        inventoryTransaction.setQty(50);
+        when(itemCatalogCache.findById(inventoryTransaction.getItemId())).thenReturn(new Item());
+        when(inventoryRepository.withdrawStock(1L, 50)).thenReturn(0);
+        when(inventoryRepository.existsByItemId(1L)).thenReturn(true);
 
-        InventoryTransaction savedTransaction = inventoryTransactionService.save(inventoryTransaction);
+        assertThrows(InvalidRequest.class, () -> inventoryTransactionService.save(inventoryTransaction));
 
-        verify(inventoryRepository, times(1)).save(any(Inventory.class));
-        assertEquals(inventoryTransaction, savedTransaction);
+        assertEquals(1.0, meterRegistry.get(PurchaseMetrics.STOCK_REJECTIONS).tag("reason", "limited_stock").counter().count());
+        assertEquals(1, meterRegistry.get(PurchaseMetrics.REPOSITORY_CALLS).tag("call", "inventory.withdrawStock").timer().count());
+        assertEquals(1, meterRegistry.get(PurchaseMetrics.STOCK_CONTENTION).tag("itemId", "1").summary().count());
+    }
+
+    @Test
+    void testSave_ShouldThrowOutOfStock_WhenWithdrawalHasNoInventory() {
+        inventoryTransaction.setType(Type.WITHDRAWAL.getDisplayName());
+        when(itemCatalogCache.findById(inventoryTransaction.getItemId())).thenReturn(new Item());
+        when(inventoryRepository.withdrawStock(1L, 10)).thenReturn(0);
+        when(inventoryRepository.existsByItemId(1L)).thenReturn(false);
+
+        InvalidRequest exception = assertThrows(InvalidRequest.class, () -> inventoryTransactionService.save(inventoryTransaction));
+        assertEquals("out of stock", exception.getMessage());
     }
 
     @Test
     void testSave_ShouldThrowNotFound_WhenItemDoesNotExist() {
-        when(itemRepository.findById(inventoryTransaction.getItemId())).thenReturn(Optional.empty());
+        when(itemCatalogCache.findById(inventoryTransaction.getItemId())).thenReturn(null);
 
         NotFoundExceptions exception = assertThrows(NotFoundExceptions.class, () -> inventoryTransactionService.save(inventoryTransaction));
         assertEquals("not found error", exception.getMessage());
         assertEquals("item is not found", exception.getSpecificCause());
     }
 
+    @Test
+    void testSave_ShouldReserveFromLedger_WhenLedgerEnabled() {
+        inventoryTransaction.setType(Type.WITHDRAWAL.getDisplayName());
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.reserve(1L, 10)).thenReturn(true);
+        when(itemCatalogCache.findById(inventoryTransaction.getItemId())).thenReturn(new Item());
+        when(inventoryTransactionRepository.save(inventoryTransaction)).thenReturn(inventoryTransaction);
+
+        InventoryTransaction savedTransaction = inventoryTransactionService.save(inventoryTransaction);
+
+        assertEquals(inventoryTransaction, savedTransaction);
+        verify(stockLedger, times(1)).compensateOnRollback(1L, -10);
+        verify(inventoryTransactionRepository, times(1)).save(inventoryTransaction);
+        verify(inventoryRepository, never()).findByItemId(anyLong());
+        verify(inventoryRepository, never()).save(any(Inventory.class));
+    }
+
+    @Test
+    void testSave_ShouldReleaseToLedger_WhenLedgerEnabledAndTopUp() {
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(itemCatalogCache.findById(inventoryTransaction.getItemId())).thenReturn(new Item());
+        when(inventoryTransactionRepository.save(inventoryTransaction)).thenReturn(inventoryTransaction);
+
+        inventoryTransactionService.save(inventoryTransaction);
+
+        verify(stockLedger, times(1)).releaseOnCommit(1L, 10);
+        verify(stockLedger, never()).release(anyLong(), anyInt());
+        verify(stockLedger, never()).compensateOnRollback(anyLong(), anyInt());
+        verify(inventoryRepository, never()).save(any(Inventory.class));
+    }
+
+    @Test
+    void testSave_ShouldThrowInvalidRequest_WhenLedgerRejectsWithdrawal() {
+        inventoryTransaction.setType(Type.WITHDRAWAL.getDisplayName());
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.reserve(1L, 10)).thenReturn(false);
+        when(stockLedger.contains(1L)).thenReturn(true);
+        when(itemCatalogCache.findById(inventoryTransaction.getItemId())).thenReturn(new Item());
+
+        InvalidRequest exception = assertThrows(InvalidRequest.class, () -> inventoryTransactionService.save(inventoryTransaction));
+        assertEquals("insufficient amount of stock", exception.getSpecificCause());
+        verify(inventoryTransactionRepository, never()).save(any(InventoryTransaction.class));
+    }
+
+    @Test
+    void testSaveWithdrawals_ShouldApplyOneStockChangePerItem() {
+        Inventory otherInventory = new Inventory(2L, 5);
+        InventoryTransaction first = new InventoryTransaction(1L, 8, Type.WITHDRAWAL.getDisplayName());
+        InventoryTransaction tooMuch = new InventoryTransaction(2L, 6, Type.WITHDRAWAL.getDisplayName());
+        InventoryTransaction second = new InventoryTransaction(1L, 12, Type.WITHDRAWAL.getDisplayName());
+        InventoryTransaction noInventory = new InventoryTransaction(3L, 1, Type.WITHDRAWAL.getDisplayName());
+        when(inventoryRepository.findByItemIdIn(anyCollection())).thenReturn(List.of(inventory, otherInventory));
+        when(inventoryRepository.withdrawStock(1L, 20)).thenReturn(1);
+
+        List<String> rejections = inventoryTransactionService.saveWithdrawals(List.of(first, tooMuch, second, noInventory));
+
+        assertEquals(Arrays.asList(null, "insufficient amount of stock", null, "stock is out cannot perform withdrawal"), rejections);
+        verify(inventoryRepository, times(1)).withdrawStock(1L, 20);
+        verify(inventoryRepository, never()).withdrawStock(eq(2L), anyInt());
+        verify(inventoryTransactionRepository, times(1)).saveAll(List.of(first, second));
+        verify(inventoryRepository, never()).save(any(Inventory.class));
+        verify(stockAlertService, times(1)).onStockChange(1L, -20);
+        verify(stockAlertService, never()).onStockChange(eq(2L), anyInt());
+    }
+
+    @Test
+    void testSaveWithdrawals_ShouldReplanItem_WhenStockChangedSinceRead() {
+        InventoryTransaction first = new InventoryTransaction(1L, 8, Type.WITHDRAWAL.getDisplayName());
+        InventoryTransaction second = new InventoryTransaction(1L, 12, Type.WITHDRAWAL.getDisplayName());
+        when(inventoryRepository.findByItemIdIn(anyCollection())).thenReturn(List.of(inventory));
+        when(inventoryRepository.withdrawStock(1L, 20)).thenReturn(0);
+        when(inventoryRepository.findStockByItemId(1L)).thenReturn(15);
+        when(inventoryRepository.withdrawStock(1L, 8)).thenReturn(1);
+
+        List<String> rejections = inventoryTransactionService.saveWithdrawals(List.of(first, second));
+
+        assertEquals(Arrays.asList(null, "insufficient amount of stock"), rejections);
+        verify(inventoryTransactionRepository, times(1)).saveAll(List.of(first));
+        assertEquals(1.0, meterRegistry.get(PurchaseMetrics.OPTIMISTIC_CONFLICTS).tag("operation", "inventory.withdrawStock").counter().count());
+    }
+
     @Test
     void testDelete_ShouldMarkAsDeleted_WhenInventoryTransactionExists() {
         when(inventoryTransactionRepository.findById(1L)).thenReturn(Optional.of(inventoryTransaction));
@@ -124,6 +267,19 @@ class InventoryTransactionServiceTest {
         assertEquals("inventory transaction not found", exception.getSpecificCause());
     }
 
+    @Test
+    void testUpdateAndDelete_ShouldBeRejected_WhenEventSourced() {
+        when(stockLedger.isEventSourced()).thenReturn(true);
+        when(inventoryTransactionRepository.findById(1L)).thenReturn(Optional.of(inventoryTransaction));
+
+        InvalidRequest exception = assertThrows(InvalidRequest.class, () -> inventoryTransactionService.update(inventoryTransaction));
+        assertThrows(InvalidRequest.class, () -> inventoryTransactionService.delete(1L));
+
+        assertEquals("inventory transactions can't be changed while stock is event-sourced, record a correcting transaction instead", exception.getSpecificCause());
+        verify(inventoryTransactionRepository, never()).save(any(InventoryTransaction.class));
+        assertNull(inventoryTransaction.getDeletedAt());
+    }
+
     @Test
     void testUpdate_ShouldUpdateTransaction_WhenExists() {
         InventoryTransaction updatedTransaction = new InventoryTransaction();
@@ -171,4 +327,95 @@ class InventoryTransactionServiceTest {
         assertEquals(inventoryTransaction, result.getContent().get(0));
         verify(inventoryTransactionRepository, times(1)).findAll(pageable);
     }
+
+    @Test
+    void testFindAllAfter_ShouldReturnSliceAfterCursor() {
+        Pageable pageable = PageRequest.of(0, 10);
+        Slice<InventoryTransaction> slice = new SliceImpl<>(List.of(inventoryTransaction), pageable, true);
+        when(inventoryTransactionRepository.findByIdGreaterThanOrderByIdAsc(5L, pageable)).thenReturn(slice);
+
+        Slice<InventoryTransaction> result = inventoryTransactionService.findAllAfter(5L, 10);
+
+        assertEquals(inventoryTransaction, result.getContent().get(0));
+        assertTrue(result.hasNext());
+        verify(inventoryTransactionRepository, times(1)).findByIdGreaterThanOrderByIdAsc(5L, pageable);
+        verify(inventoryTransactionRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void testExport_ShouldWriteOneJsonLinePerTransactionAndDetachIt() throws IOException {
+        InventoryTransaction second = new InventoryTransaction(2L, 3, Type.WITHDRAWAL.getDisplayName());
+        when(inventoryTransactionRepository.streamForExport(null, null, null)).thenReturn(Stream.of(inventoryTransaction, second));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        inventoryTransactionService.export(null, null, null, ExportFormat.NDJSON, outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(1L, objectMapper.readTree(lines[0]).get("itemId").asLong());
+        assertEquals("W", objectMapper.readTree(lines[1]).get("type").asText());
+        verify(entityManager, times(1)).detach(inventoryTransaction);
+        verify(entityManager, times(1)).detach(second);
+    }
+
+    @Test
+    void testExport_ShouldWriteCsvWithHeader() throws IOException {
+        Instant from = Instant.parse("2024-01-01T00:00:00Z");
+        inventoryTransaction.setCreatedAt(from);
+        when(inventoryTransactionRepository.streamForExport(1L, from, null)).thenReturn(Stream.of(inventoryTransaction));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        inventoryTransactionService.export(1L, from, null, ExportFormat.CSV, outputStream);
+
+        assertEquals("id,itemId,qty,type,createdAt,deletedAt\n1,1,10,T,2024-01-01T00:00:00Z,\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testSaveAllOrNothing_ShouldTakeStockInItemIdOrderAndInsertOnce() {
+        InventoryTransaction pen = new InventoryTransaction(7L, 2, Type.WITHDRAWAL.getDisplayName());
+        InventoryTransaction book = new InventoryTransaction(3L, 1, Type.WITHDRAWAL.getDisplayName());
+        InventoryTransaction morePens = new InventoryTransaction(7L, 3, Type.WITHDRAWAL.getDisplayName());
+        when(inventoryRepository.withdrawStock(anyLong(), anyInt())).thenReturn(1);
+
+        inventoryTransactionService.saveAllOrNothing(List.of(pen, book, morePens));
+
+        InOrder inOrder = inOrder(inventoryRepository);
+        inOrder.verify(inventoryRepository).withdrawStock(3L, 1);
+        inOrder.verify(inventoryRepository).withdrawStock(7L, 5);
+        verify(inventoryTransactionRepository, times(1)).saveAll(List.of(pen, book, morePens));
+        verify(stockAlertService, times(1)).onStockChange(7L, -5);
+    }
+
+    @Test
+    void testSaveAllOrNothing_ShouldThrowAndWriteNothing_WhenAnyItemIsShort() {
+        InventoryTransaction book = new InventoryTransaction(3L, 1, Type.WITHDRAWAL.getDisplayName());
+        InventoryTransaction pen = new InventoryTransaction(7L, 9, Type.WITHDRAWAL.getDisplayName());
+        when(inventoryRepository.withdrawStock(3L, 1)).thenReturn(1);
+        when(inventoryRepository.withdrawStock(7L, 9)).thenReturn(0);
+        when(inventoryRepository.existsByItemId(7L)).thenReturn(true);
+
+        InvalidRequest exception = assertThrows(InvalidRequest.class, () -> inventoryTransactionService.saveAllOrNothing(List.of(book, pen)));
+
+        assertEquals("insufficient amount of stock for item 7", exception.getSpecificCause());
+        verify(inventoryTransactionRepository, never()).saveAll(anyList());
+        verify(stockAlertService, never()).onStockChange(anyLong(), anyInt());
+    }
+
+    @Test
+    void testSaveAllOrNothing_ShouldReserveFromLedgerAndCompensateOnRollback_WhenLedgerEnabled() {
+        InventoryTransaction book = new InventoryTransaction(3L, 1, Type.WITHDRAWAL.getDisplayName());
+        InventoryTransaction pen = new InventoryTransaction(7L, 9, Type.WITHDRAWAL.getDisplayName());
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.reserve(3L, 1)).thenReturn(true);
+        when(stockLedger.reserve(7L, 9)).thenReturn(false);
+        when(stockLedger.contains(7L)).thenReturn(false);
+
+        InvalidRequest exception = assertThrows(InvalidRequest.class, () -> inventoryTransactionService.saveAllOrNothing(List.of(pen, book)));
+
+        assertEquals("out of stock", exception.getMessage());
+        verify(stockLedger, times(1)).compensateOnRollback(3L, -1);
+        verify(stockLedger, never()).compensateOnRollback(eq(7L), anyInt());
+        verify(inventoryRepository, never()).withdrawStock(anyLong(), anyInt());
+    }
 }
@@ -0,0 +1,81 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.Item;
+import com.obs.purchase.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ItemCatalogCacheTest {
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @InjectMocks
+    private ItemCatalogCache itemCatalogCache;
+
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        itemCatalogCache.init();
+        item = new Item(1L, "Pen", 10);
+    }
+
+    @Test
+    void testFindById_ShouldHitDatabaseOnce() {
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+
+        assertEquals(item, itemCatalogCache.findById(1L));
+        assertEquals(item, itemCatalogCache.findById(1L));
+
+        verify(itemRepository, times(1)).findById(1L);
+        assertEquals(1, itemCatalogCache.byIdStatistics().getHitCount());
+        assertEquals(1, itemCatalogCache.byIdStatistics().getMissCount());
+    }
+
+    @Test
+    void testFindById_ShouldNotCacheMissingItem() {
+        when(itemRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertNull(itemCatalogCache.findById(2L));
+        assertNull(itemCatalogCache.findById(2L));
+
+        verify(itemRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    void testFindAllById_ShouldLoadOnlyMissingIds() {
+        Item other = new Item(2L, "Book", 20);
+        itemCatalogCache.put(item);
+        when(itemRepository.findAllById(List.of(2L))).thenReturn(List.of(other));
+
+        Map<Long, Item> items = itemCatalogCache.findAllById(Set.of(1L, 2L));
+
+        assertEquals(2, items.size());
+        verify(itemRepository, times(1)).findAllById(List.of(2L));
+    }
+
+    @Test
+    void testInvalidate_ShouldEvictById() {
+        itemCatalogCache.put(item);
+        Item renamed = new Item(1L, "Pencil", 10);
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(renamed));
+
+        itemCatalogCache.invalidate(renamed);
+
+        assertEquals(renamed, itemCatalogCache.findById(1L));
+        verify(itemRepository, times(1)).findById(1L);
+    }
+}
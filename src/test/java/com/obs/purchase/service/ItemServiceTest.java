@@ -5,19 +5,26 @@ import com.obs.purchase.entity.Item;
 import com.obs.purchase.exceptions.DuplicateObjectExceptions;
 import com.obs.purchase.exceptions.NotFoundExceptions;
 import com.obs.purchase.repository.ItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
 
+import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -31,6 +38,14 @@ class ItemServiceTest {
     @Mock
     private ItemRepository itemRepository;
 
+    @Mock
+    private ItemCatalogCache itemCatalogCache;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private PurchaseMetrics purchaseMetrics = new PurchaseMetrics(meterRegistry);
+
     @InjectMocks
     private ItemService itemService;
 
@@ -47,22 +62,31 @@ class ItemServiceTest {
 
     @Test
     void testSave_ShouldSaveItem_WhenItemIsNotDuplicate() {
-        when(itemRepository.findByName(item.getName())).thenReturn(null);
-        when(itemRepository.save(item)).thenReturn(item);
+        when(itemRepository.saveAndFlush(item)).thenReturn(item);
 
         Item savedItem = itemService.save(item);
 
         assertNotNull(savedItem);
         assertEquals("Test Item", savedItem.getName());
-        verify(itemRepository, times(1)).save(item);
+        verify(itemRepository, times(1)).saveAndFlush(item);
+        verify(itemCatalogCache, times(1)).put(item);
     }
 
     @Test
     void testSave_ShouldThrowDuplicateObjectExceptions_WhenItemIsDuplicate() {
-        when(itemRepository.findByName(item.getName())).thenReturn(item);
+        when(itemRepository.saveAndFlush(item)).thenThrow(violation("PUBLIC.UK_ITEM_NAME_INDEX_2"));
 
         assertThrows(DuplicateObjectExceptions.class, () -> itemService.save(item));
-        verify(itemRepository, never()).save(item);
+        verify(itemCatalogCache, never()).put(item);
+        assertEquals(1.0, meterRegistry.get(PurchaseMetrics.DUPLICATES).tag("entity", "item").counter().count());
+    }
+
+    @Test
+    void testSave_ShouldRethrow_WhenOtherConstraintIsViolated() {
+        DataIntegrityViolationException violation = violation("PUBLIC.CONSTRAINT_8");
+        when(itemRepository.saveAndFlush(item)).thenThrow(violation);
+
+        assertSame(violation, assertThrows(DataIntegrityViolationException.class, () -> itemService.save(item)));
     }
 
     @Test
@@ -73,6 +97,7 @@ class ItemServiceTest {
 
         assertNotNull(item.getDeletedAt());
         verify(itemRepository, times(1)).save(item);
+        verify(itemCatalogCache, times(1)).invalidate(item);
     }
 
     @Test
@@ -96,6 +121,7 @@ class ItemServiceTest {
         itemService.update(updatedItem);
 
         verify(itemRepository, times(1)).save(item);
+        verify(itemCatalogCache, times(1)).invalidate(item);
         assertEquals("Updated Name", item.getName());
 
     }
@@ -148,4 +174,23 @@ class ItemServiceTest {
         assertEquals(items, result.getContent());
         verify(itemRepository, times(1)).findAll(pageable);
     }
+
+    @Test
+    void testFindAllAfter_ShouldReturnSliceAfterCursor() {
+        Pageable pageable = PageRequest.of(0, 10);
+        Slice<Item> slice = new SliceImpl<>(List.of(item), pageable, true);
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(5L, pageable)).thenReturn(slice);
+
+        Slice<Item> result = itemService.findAllAfter(5L, 10);
+
+        assertEquals(item, result.getContent().get(0));
+        assertTrue(result.hasNext());
+        verify(itemRepository, times(1)).findByIdGreaterThanOrderByIdAsc(5L, pageable);
+        verify(itemRepository, never()).findAll(any(Pageable.class));
+    }
+
+    private static DataIntegrityViolationException violation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", new SQLException("violation", "23505"), constraintName));
+    }
 }
@@ -0,0 +1,76 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.exceptions.ConcurrentUpdateException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimisticRetryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OptimisticRetry optimisticRetry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        optimisticRetry = new OptimisticRetry(new PurchaseMetrics(meterRegistry));
+        ReflectionTestUtils.setField(optimisticRetry, "maxAttempts", 3);
+        ReflectionTestUtils.setField(optimisticRetry, "baseBackoffMs", 1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void testExecute_ShouldRetryUntilSuccess() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = optimisticRetry.execute("inventory.update", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("stale");
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(2.0, meterRegistry.get(PurchaseMetrics.OPTIMISTIC_CONFLICTS).counter().count());
+        assertEquals(2.0, meterRegistry.get(PurchaseMetrics.OPTIMISTIC_RETRIES).counter().count());
+    }
+
+    @Test
+    void testExecute_ShouldThrowConcurrentUpdate_WhenAttemptsExhausted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ConcurrentUpdateException.class, () -> optimisticRetry.run("inventory.update", () -> {
+            calls.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        }));
+
+        assertEquals(3, calls.get());
+        assertEquals(1.0, meterRegistry.get(PurchaseMetrics.OPTIMISTIC_EXHAUSTED).counter().count());
+    }
+
+    @Test
+    void testExecute_ShouldNotRetry_WhenInsideCallerTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(OptimisticLockingFailureException.class, () -> optimisticRetry.run("inventory.update", () -> {
+            calls.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        }));
+
+        assertEquals(1, calls.get());
+    }
+}
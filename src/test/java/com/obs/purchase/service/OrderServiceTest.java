@@ -1,33 +1,51 @@
 package com.obs.purchase.service;
 
 
+import com.obs.purchase.config.ReplicaRoutingDataSource;
 import com.obs.purchase.entity.InventoryTransaction;
 import com.obs.purchase.entity.Item;
 import com.obs.purchase.entity.Order;
+import com.obs.purchase.entity.dto.BatchOrderResult;
+import com.obs.purchase.entity.dto.CartCheckout;
 
 import com.obs.purchase.exceptions.NotFoundExceptions;
 
 
-import com.obs.purchase.repository.ItemRepository;
 import com.obs.purchase.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.LongSupplier;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class OrderServiceTest {
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private PurchaseMetrics purchaseMetrics = new PurchaseMetrics(meterRegistry);
+
     @InjectMocks
     private OrderService orderService;
 
@@ -35,11 +53,23 @@ class OrderServiceTest {
     private OrderRepository orderRepository;
 
     @Mock
-    private ItemRepository itemRepository;
+    private ItemCatalogCache itemCatalogCache;
 
     @Mock
     private InventoryTransactionService inventoryTransactionService;
 
+    @Mock
+    private SequenceService sequenceService;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @Mock
+    private TopItemsService topItemsService;
+
+    @Spy
+    private ReplicaLagGuard replicaLagGuard = new ReplicaLagGuard();
+
     private Order order;
 
     @BeforeEach
@@ -50,11 +80,14 @@ class OrderServiceTest {
         order.setItemId(100L);
         order.setQty(5);
         order.setPrice(500);
+        // behave like the first allocation of the sequence, which continues from the last order
+        when(sequenceService.next(eq("order_no"), any(LongSupplier.class)))
+                .thenAnswer(invocation -> invocation.getArgument(1, LongSupplier.class).getAsLong());
     }
 
     @Test
     void testSave_ShouldGenerateOrderNoAndSaveOrder() {
-        when(itemRepository.findById(order.getItemId())).thenReturn(Optional.of(new Item())); // Mock item existence
+        when(itemCatalogCache.findById(order.getItemId())).thenReturn(new Item()); // Mock item existence
         when(orderRepository.findTopByOrderByIdDesc()).thenReturn(Optional.empty()); // Mock no existing orders
         when(orderRepository.save(order)).thenReturn(order);
 
@@ -66,6 +99,7 @@ class OrderServiceTest {
         assertEquals("O1", savedOrder.getOrderNo()); // Order number should start from O1
         verify(orderRepository, times(1)).save(order);
         verify(inventoryTransactionService, times(1)).save(any(InventoryTransaction.class));
+        verify(salesRollupService, times(1)).record(List.of(order));
     }
 
     @Test
@@ -73,7 +107,7 @@ class OrderServiceTest {
         // Arrange
         Order lastOrder = new Order();
         lastOrder.setOrderNo("O5");
-        when(itemRepository.findById(order.getItemId())).thenReturn(Optional.of(new Item()));
+        when(itemCatalogCache.findById(order.getItemId())).thenReturn(new Item());
         when(orderRepository.findTopByOrderByIdDesc()).thenReturn(Optional.of(lastOrder)); // Mock last order as O5
         when(orderRepository.save(order)).thenReturn(order);
 
@@ -90,7 +124,7 @@ class OrderServiceTest {
     @Test
     void testSave_ShouldThrowNotFoundException_WhenItemDoesNotExist() {
         // Arrange
-        when(itemRepository.findById(order.getItemId())).thenReturn(Optional.empty());
+        when(itemCatalogCache.findById(order.getItemId())).thenReturn(null);
 
         // Act & Assert
         NotFoundExceptions exception = assertThrows(NotFoundExceptions.class, () -> orderService.save(order));
@@ -99,6 +133,61 @@ class OrderServiceTest {
         verify(inventoryTransactionService, never()).save(any(InventoryTransaction.class));
     }
 
+    @Test
+    void testSaveBatch_ShouldSaveAcceptedLinesAndReportRejectedOnes() {
+        Item item = new Item(100L, "pen", 7);
+        Order second = new Order(null, 100L, 50, null);
+        Order unknownItem = new Order(null, 200L, 1, null);
+        Order invalidQty = new Order(null, 100L, 0, null);
+        when(itemCatalogCache.findAllById(anySet())).thenReturn(Map.of(100L, item));
+        when(inventoryTransactionService.saveWithdrawals(anyList()))
+                .thenReturn(Arrays.asList(null, "insufficient amount of stock"));
+
+        List<BatchOrderResult> results = orderService.saveBatch(List.of(order, second, unknownItem, invalidQty));
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("O1", results.get(0).getOrderNo());
+        assertEquals(7, order.getPrice());
+        assertEquals("insufficient amount of stock", results.get(1).getError());
+        assertEquals("item is not found", results.get(2).getError());
+        assertEquals("invalid quantity", results.get(3).getError());
+        verify(inventoryTransactionService, times(1)).saveWithdrawals(argThat(withdrawals -> withdrawals.size() == 2));
+        verify(orderRepository, times(1)).saveAll(List.of(order));
+        verify(inventoryTransactionService, never()).save(any(InventoryTransaction.class));
+        verify(salesRollupService, times(1)).record(List.of(order));
+        verify(topItemsService, times(1)).record(List.of(order));
+    }
+
+    @Test
+    void testCheckout_ShouldPlaceEveryLineUnderOneCartNumber() {
+        Order second = new Order(null, 200L, 2, null);
+        when(itemCatalogCache.findAllById(anySet())).thenReturn(Map.of(100L, new Item(100L, "pen", 7), 200L, new Item(200L, "book", 30)));
+        when(sequenceService.next(eq("cart_no"), any(LongSupplier.class))).thenReturn(4L);
+
+        CartCheckout checkout = orderService.checkout(List.of(order, second));
+
+        assertEquals("C4", checkout.getCartNo());
+        assertEquals(5 * 7 + 2 * 30, checkout.getTotal());
+        assertEquals("C4", second.getCartNo());
+        assertNotNull(second.getOrderNo());
+        verify(inventoryTransactionService, times(1)).saveAllOrNothing(argThat(withdrawals -> withdrawals.size() == 2));
+        verify(orderRepository, times(1)).saveAll(List.of(order, second));
+        verify(salesRollupService, times(1)).record(List.of(order, second));
+    }
+
+    @Test
+    void testCheckout_ShouldRejectWholeCart_WhenAnyItemIsUnknown() {
+        Order unknown = new Order(null, 200L, 2, null);
+        when(itemCatalogCache.findAllById(anySet())).thenReturn(Map.of(100L, new Item(100L, "pen", 7)));
+
+        NotFoundExceptions exception = assertThrows(NotFoundExceptions.class, () -> orderService.checkout(List.of(order, unknown)));
+
+        assertEquals("item 200 is not found", exception.getSpecificCause());
+        verify(inventoryTransactionService, never()).saveAllOrNothing(anyList());
+        verify(orderRepository, never()).saveAll(anyList());
+    }
+
     @Test
     void testDelete_ShouldMarkOrderAsDeleted() {
         // Arrange
@@ -111,6 +200,17 @@ class OrderServiceTest {
         // Assert
         assertNotNull(order.getDeletedAt());
         verify(orderRepository, times(1)).save(order);
+        verify(salesRollupService, times(1)).unrecord(List.of(order));
+    }
+
+    @Test
+    void testDelete_ShouldNotTakeSalesBackTwice_WhenOrderIsAlreadyDeleted() {
+        order.setDeletedAt(Instant.now());
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+
+        orderService.delete(1L);
+
+        verify(salesRollupService, never()).unrecord(anyList());
     }
 
     @Test
@@ -163,6 +263,26 @@ class OrderServiceTest {
         verify(orderRepository, times(1)).findById(1L);
     }
 
+    @Test
+    void testFindById_ShouldReadNewOrderFromPrimary_WhenReplicaIsEnabled() {
+        ReflectionTestUtils.setField(replicaLagGuard, "enabled", true);
+        replicaLagGuard.init();
+        when(itemCatalogCache.findById(order.getItemId())).thenReturn(new Item());
+        when(orderRepository.save(order)).thenReturn(order);
+        List<Boolean> pinned = new ArrayList<>();
+        when(orderRepository.findById(anyLong())).thenAnswer(invocation -> {
+            pinned.add(ReplicaRoutingDataSource.isPinnedToPrimary());
+            return Optional.of(order);
+        });
+
+        orderService.findById(1L);
+        orderService.save(order);
+        orderService.findById(1L);
+        orderService.findById(2L);
+
+        assertEquals(List.of(false, true, false), pinned);
+    }
+
     @Test
     void testFindById_ShouldThrowNotFoundException_WhenOrderDoesNotExist() {
         // Arrange
@@ -189,4 +309,18 @@ class OrderServiceTest {
         assertEquals(1, result.getTotalElements());
         verify(orderRepository, times(1)).findAll(pageable);
     }
+
+    @Test
+    void testFindAllAfter_ShouldReturnSliceAfterCursor() {
+        Pageable pageable = PageRequest.of(0, 10);
+        Slice<Order> slice = new SliceImpl<>(List.of(order), pageable, true);
+        when(orderRepository.findByIdGreaterThanOrderByIdAsc(5L, pageable)).thenReturn(slice);
+
+        Slice<Order> result = orderService.findAllAfter(5L, 10);
+
+        assertEquals(order, result.getContent().get(0));
+        assertTrue(result.hasNext());
+        verify(orderRepository, times(1)).findByIdGreaterThanOrderByIdAsc(5L, pageable);
+        verify(orderRepository, never()).findAll(any(Pageable.class));
+    }
 }
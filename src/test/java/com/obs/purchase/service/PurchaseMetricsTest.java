@@ -0,0 +1,62 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.config.MetricsConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PurchaseMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PurchaseMetrics purchaseMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(new MetricsConfig().stockContentionCardinalityLimit(2));
+        purchaseMetrics = new PurchaseMetrics(meterRegistry);
+    }
+
+    @Test
+    void testTrackStockChange_ShouldRecordChangesAlreadyInFlightOnTheSameItem() {
+        int result = purchaseMetrics.trackStockChange(1L,
+                () -> purchaseMetrics.trackStockChange(1L, () -> purchaseMetrics.trackStockChange(2L, () -> 42)));
+        purchaseMetrics.trackStockChange(1L, () -> 0);
+
+        assertEquals(42, result);
+        assertEquals(3, meterRegistry.get(PurchaseMetrics.STOCK_CONTENTION).tag("itemId", "1").summary().count());
+        assertEquals(1.0, meterRegistry.get(PurchaseMetrics.STOCK_CONTENTION).tag("itemId", "1").summary().max());
+        assertEquals(0.0, meterRegistry.get(PurchaseMetrics.STOCK_CONTENTION).tag("itemId", "2").summary().max());
+    }
+
+    @Test
+    void testTrackStockChange_ShouldStopTaggingNewItems_WhenCardinalityLimitReached() {
+        for (long itemId = 1; itemId <= 3; itemId++) {
+            purchaseMetrics.trackStockChange(itemId, () -> null);
+        }
+
+        assertEquals(2, meterRegistry.find(PurchaseMetrics.STOCK_CONTENTION).summaries().size());
+    }
+
+    @Test
+    void testTime_ShouldRecordRepositoryCallAndReturnItsResult() {
+        assertEquals("saved", purchaseMetrics.time("order.save", () -> "saved"));
+
+        assertEquals(1, meterRegistry.get(PurchaseMetrics.REPOSITORY_CALLS).tag("call", "order.save").timer().count());
+    }
+
+    @Test
+    void testCounters_ShouldKeepOneMeterPerTag() {
+        purchaseMetrics.stockRejected("out_of_stock");
+        purchaseMetrics.stockRejected("out_of_stock");
+        purchaseMetrics.stockRejected("limited_stock");
+        purchaseMetrics.optimisticConflict("out_of_stock");
+
+        assertEquals(2.0, meterRegistry.get(PurchaseMetrics.STOCK_REJECTIONS).tag("reason", "out_of_stock").counter().count());
+        assertEquals(1.0, meterRegistry.get(PurchaseMetrics.STOCK_REJECTIONS).tag("reason", "limited_stock").counter().count());
+        assertEquals(1.0, meterRegistry.get(PurchaseMetrics.OPTIMISTIC_CONFLICTS).tag("operation", "out_of_stock").counter().count());
+    }
+}
@@ -0,0 +1,158 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.Order;
+import com.obs.purchase.entity.SalesRollup;
+import com.obs.purchase.entity.dto.SalesBucket;
+import com.obs.purchase.enums.RollupGranularity;
+import com.obs.purchase.exceptions.InvalidRequest;
+import com.obs.purchase.repository.SalesRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SalesRollupServiceTest {
+
+    @Mock
+    private SalesRollupRepository salesRollupRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private PurchaseMetrics purchaseMetrics = new PurchaseMetrics(new SimpleMeterRegistry());
+
+    @InjectMocks
+    private SalesRollupService salesRollupService;
+
+    private final Instant at = Instant.parse("2024-01-01T10:15:30Z");
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testFlush_ShouldAddEachBucketOnceForEveryGranularity() {
+        salesRollupService.record(List.of(order(100L, 2, 50, at), order(100L, 3, 50, at.plusSeconds(10)), order(200L, 1, 7, at)));
+
+        salesRollupService.flush();
+
+        verify(salesRollupRepository, times(1)).addToRollup("MINUTE", 100L, Instant.parse("2024-01-01T10:15:00Z"), 2, 5, 250);
+        verify(salesRollupRepository, times(1)).addToRollup("HOUR", 100L, Instant.parse("2024-01-01T10:00:00Z"), 2, 5, 250);
+        verify(salesRollupRepository, times(1)).addToRollup("DAY", 100L, Instant.parse("2024-01-01T00:00:00Z"), 2, 5, 250);
+        verify(salesRollupRepository, times(3)).addToRollup(anyString(), eq(200L), any(Instant.class), eq(1L), eq(1L), eq(7L));
+
+        salesRollupService.flush();
+        verify(salesRollupRepository, times(6)).addToRollup(anyString(), anyLong(), any(Instant.class), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void testRecord_ShouldWaitForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        salesRollupService.record(List.of(order(100L, 2, 50, at)));
+
+        salesRollupService.flush();
+        verify(salesRollupRepository, never()).addToRollup(anyString(), anyLong(), any(Instant.class), anyLong(), anyLong(), anyLong());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        salesRollupService.flush();
+        verify(salesRollupRepository, times(3)).addToRollup(anyString(), eq(100L), any(Instant.class), eq(1L), eq(2L), eq(100L));
+    }
+
+    @Test
+    void testFlush_ShouldKeepBuckets_WhenWriteFails() {
+        salesRollupService.record(List.of(order(100L, 2, 50, at)));
+        when(salesRollupRepository.addToRollup(anyString(), anyLong(), any(Instant.class), anyLong(), anyLong(), anyLong()))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        salesRollupService.flush();
+
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        List<SalesBucket> sales = salesRollupService.sales(RollupGranularity.DAY, at, at.plusSeconds(60), null);
+        assertEquals(1, sales.size());
+        assertEquals(100, sales.get(0).getRevenue());
+    }
+
+    @Test
+    void testSales_ShouldSeeBucketsBeingFlushed_WithoutWaitingForTheFlush() {
+        salesRollupService.record(List.of(order(100L, 2, 50, at)));
+        when(salesRollupRepository.addToRollup(eq("DAY"), anyLong(), any(Instant.class), anyLong(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            // a report from another thread, while the flush is still writing
+            List<SalesBucket> sales = CompletableFuture.supplyAsync(() -> salesRollupService.sales(RollupGranularity.DAY, at, at.plusSeconds(60), null))
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(1, sales.size());
+            assertEquals(100, sales.get(0).getRevenue());
+            return 1;
+        });
+
+        salesRollupService.flush();
+
+        verify(salesRollupRepository, times(1)).addToRollup(eq("DAY"), anyLong(), any(Instant.class), anyLong(), anyLong(), anyLong());
+        verify(transactionManager, times(1)).commit(any());
+        assertTrue(salesRollupService.sales(RollupGranularity.DAY, at, at.plusSeconds(60), null).isEmpty());
+    }
+
+    @Test
+    void testSales_ShouldAddUnflushedOrdersToStoredRollups() {
+        SalesRollup stored = new SalesRollup();
+        stored.setGranularity(RollupGranularity.HOUR);
+        stored.setItemId(100L);
+        stored.setBucketStart(Instant.parse("2024-01-01T10:00:00Z"));
+        stored.setOrderCount(4);
+        stored.setUnits(10);
+        stored.setRevenue(500);
+        when(salesRollupRepository.findBucketsByItemId(RollupGranularity.HOUR, 100L, Instant.parse("2024-01-01T10:00:00Z"), at.plusSeconds(7200)))
+                .thenReturn(List.of(stored));
+        salesRollupService.record(List.of(order(100L, 2, 50, at), order(200L, 1, 7, at), order(100L, 1, 50, at.plusSeconds(3600))));
+        salesRollupService.unrecord(List.of(order(100L, 1, 50, at.plusSeconds(3600))));
+
+        List<SalesBucket> sales = salesRollupService.sales(RollupGranularity.HOUR, at, at.plusSeconds(7200), 100L);
+
+        assertEquals(2, sales.size());
+        assertEquals(5, sales.get(0).getOrders());
+        assertEquals(12, sales.get(0).getUnits());
+        assertEquals(600, sales.get(0).getRevenue());
+        assertEquals(Instant.parse("2024-01-01T11:00:00Z"), sales.get(1).getBucketStart());
+        assertEquals(0, sales.get(1).getUnits());
+    }
+
+    @Test
+    void testSales_ShouldReject_WhenRangeHasTooManyBuckets() {
+        InvalidRequest exception = assertThrows(InvalidRequest.class,
+                () -> salesRollupService.sales(RollupGranularity.MINUTE, at, at.plusSeconds(2 * 86400), null));
+
+        assertEquals("range spans more than 1440 buckets, use a coarser granularity", exception.getSpecificCause());
+        assertThrows(InvalidRequest.class, () -> salesRollupService.sales(RollupGranularity.DAY, at, at, null));
+        verifyNoInteractions(salesRollupRepository);
+    }
+
+    private static Order order(long itemId, int qty, int price, Instant createdAt) {
+        Order order = new Order(null, itemId, qty, price);
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+}
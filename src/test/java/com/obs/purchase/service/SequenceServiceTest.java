@@ -0,0 +1,117 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.repository.SequenceAllocationStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SequenceServiceTest {
+
+    @Mock
+    private SequenceAllocationStore sequenceAllocationStore;
+
+    @InjectMocks
+    private SequenceService sequenceService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(sequenceService, "blockSize", 10);
+    }
+
+    @Test
+    void testNext_ShouldHandOutBlockWithSingleAllocation() {
+        when(sequenceAllocationStore.reserve("order_no", 10)).thenReturn(1L);
+
+        for (long expected = 1; expected <= 10; expected++) {
+            assertEquals(expected, sequenceService.next("order_no", () -> 1));
+        }
+
+        verify(sequenceAllocationStore, times(1)).reserve("order_no", 10);
+    }
+
+    @Test
+    void testNext_ShouldReserveNextBlock_WhenBlockExhausted() {
+        when(sequenceAllocationStore.reserve("order_no", 10)).thenReturn(1L, 11L);
+
+        for (int i = 0; i < 10; i++) {
+            sequenceService.next("order_no", () -> 1);
+        }
+        assertEquals(11, sequenceService.next("order_no", () -> 1));
+
+        verify(sequenceAllocationStore, times(2)).reserve("order_no", 10);
+    }
+
+    @Test
+    void testNext_ShouldCreateRowFromInitialValue_WhenSequenceIsNew() {
+        when(sequenceAllocationStore.reserve("order_no", 10)).thenReturn(null);
+        when(sequenceAllocationStore.create("order_no", 6, 10)).thenReturn(true);
+
+        assertEquals(6, sequenceService.next("order_no", () -> 6));
+        assertEquals(7, sequenceService.next("order_no", () -> 6));
+
+        verify(sequenceAllocationStore, times(1)).create("order_no", 6, 10);
+    }
+
+    @Test
+    void testNext_ShouldReserveFromRow_WhenAnotherNodeCreatedItFirst() {
+        when(sequenceAllocationStore.reserve("order_no", 10)).thenReturn(null, 21L);
+        when(sequenceAllocationStore.create("order_no", 6, 10)).thenReturn(false);
+
+        assertEquals(21, sequenceService.next("order_no", () -> 6));
+    }
+
+    @Test
+    void testNext_ShouldComputeInitialValueOutsideTheLock() throws InterruptedException {
+        AtomicLong row = new AtomicLong();
+        when(sequenceAllocationStore.reserve("order_no", 10)).thenAnswer(invocation -> row.get() == 0 ? null : row.getAndAdd(10));
+        when(sequenceAllocationStore.create(eq("order_no"), anyLong(), eq(10))).thenAnswer(invocation -> {
+            row.set(invocation.getArgument(1, Long.class) + 10);
+            return true;
+        });
+        Thread other = new Thread(() -> sequenceService.next("order_no", () -> 1));
+
+        // another caller of the same sequence gets through while this one works out the initial value
+        long value = sequenceService.next("order_no", () -> {
+            other.start();
+            try {
+                other.join(5000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return 1;
+        });
+
+        assertFalse(other.isAlive());
+        assertTrue(value >= 1);
+    }
+
+    @Test
+    void testNext_ShouldNeverReturnDuplicates_WhenConcurrent() throws InterruptedException {
+        AtomicLong row = new AtomicLong(1);
+        when(sequenceAllocationStore.reserve("order_no", 10)).thenAnswer(invocation -> row.getAndAdd(10));
+        Set<Long> values = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> values.add(sequenceService.next("order_no", () -> 1)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(1000, values.size());
+        verify(sequenceAllocationStore, times(100)).reserve("order_no", 10);
+    }
+}
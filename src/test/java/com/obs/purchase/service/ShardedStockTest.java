@@ -0,0 +1,118 @@
+package com.obs.purchase.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedStockTest {
+
+    @Test
+    void testSet_ShouldSpreadStockEvenlyAcrossShards() {
+        ShardedStock stock = new ShardedStock(4, 10);
+
+        assertEquals(10, stock.get());
+        assertEquals(3, stock.getShard(0));
+        assertEquals(2, stock.getShard(3));
+    }
+
+    @Test
+    void testReserve_ShouldCollectFromSeveralShards_WhenOneIsNotEnough() {
+        ShardedStock stock = new ShardedStock(4, 10);
+
+        assertTrue(stock.reserve(9));
+        assertEquals(1, stock.get());
+    }
+
+    @Test
+    void testReserve_ShouldRejectAndGiveBackPartialTakes_WhenTotalIsNotEnough() {
+        ShardedStock stock = new ShardedStock(4, 10);
+
+        assertFalse(stock.reserve(11));
+        assertEquals(10, stock.get());
+        for (int shard = 0; shard < 4; shard++) {
+            assertTrue(stock.getShard(shard) >= 2);
+        }
+    }
+
+    @Test
+    void testRebalance_ShouldMoveStockTowardsEmptyShard() {
+        ShardedStock stock = new ShardedStock(2, 0);
+        stock.add(10);
+        int full = stock.getShard(0) == 10 ? 0 : 1;
+
+        stock.rebalance();
+
+        assertEquals(5, stock.getShard(full));
+        assertEquals(5, stock.getShard(1 - full));
+    }
+
+    @Test
+    void testReserve_ShouldNeverOversell_WhenConcurrent() throws InterruptedException {
+        ShardedStock stock = new ShardedStock(8, 1000);
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 2000; i++) {
+            executor.submit(() -> {
+                if (stock.reserve(1)) {
+                    reserved.incrementAndGet();
+                }
+                stock.rebalance();
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(1000, reserved.get());
+        assertEquals(0, stock.get());
+    }
+
+    @Test
+    void testGet_ShouldNeverSeeStockInTransit_WhileShardsAreMoving() throws InterruptedException {
+        ShardedStock stock = new ShardedStock(8, 0);
+        stock.add(1000);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread mover = new Thread(() -> {
+            while (running.get()) {
+                stock.rebalance();
+                stock.reserve(1001); // collects from every shard, then gives it all back
+            }
+        });
+        mover.start();
+        try {
+            for (int i = 0; i < 100_000; i++) {
+                assertEquals(1000, stock.get());
+            }
+        } finally {
+            running.set(false);
+            mover.join();
+        }
+    }
+
+    @Test
+    void testReserve_ShouldNotReject_WhileRebalancing() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            ShardedStock stock = new ShardedStock(8, 0);
+            stock.add(100);
+            AtomicBoolean running = new AtomicBoolean(true);
+            Thread mover = new Thread(() -> {
+                while (running.get()) {
+                    stock.rebalance();
+                }
+            });
+            mover.start();
+            try {
+                assertTrue(stock.reserve(100));
+            } finally {
+                running.set(false);
+                mover.join();
+            }
+            assertEquals(0, stock.get());
+        }
+    }
+}
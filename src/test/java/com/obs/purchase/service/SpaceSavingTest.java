@@ -0,0 +1,64 @@
+package com.obs.purchase.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    @Test
+    void testAdd_ShouldCountExactly_WhileBelowCapacity() {
+        SpaceSaving summary = new SpaceSaving(3);
+        summary.add(1L, 5);
+        summary.add(2L, 2);
+        summary.add(1L, 1);
+
+        List<SpaceSaving.Counter> counters = summary.counters();
+
+        assertEquals(2, counters.size());
+        assertEquals(1L, counters.get(0).getItemId());
+        assertEquals(6, counters.get(0).getCount());
+        assertEquals(0, counters.get(0).getError());
+    }
+
+    @Test
+    void testAdd_ShouldReplaceSmallestCounter_WhenFull() {
+        SpaceSaving summary = new SpaceSaving(2);
+        summary.add(1L, 5);
+        summary.add(2L, 2);
+        summary.add(3L, 1);
+
+        List<SpaceSaving.Counter> counters = summary.counters();
+
+        assertEquals(2, counters.size());
+        assertEquals(3L, counters.get(1).getItemId());
+        assertEquals(3, counters.get(1).getCount());
+        assertEquals(2, counters.get(1).getError());
+    }
+
+    @Test
+    void testAdd_ShouldKeepHeavyHitters_WhenStreamHasLongTail() {
+        SpaceSaving summary = new SpaceSaving(50);
+        Random random = new Random(7);
+        long total = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // item 1 takes 10% and item 2 takes 5%; the rest is spread over 100k items
+            int roll = random.nextInt(100);
+            long itemId = roll < 10 ? 1 : roll < 15 ? 2 : 1000 + random.nextInt(100_000);
+            summary.add(itemId, 1);
+            total++;
+        }
+
+        List<SpaceSaving.Counter> counters = summary.counters();
+
+        assertEquals(50, counters.size());
+        assertEquals(1L, counters.get(0).getItemId());
+        assertEquals(2L, counters.get(1).getItemId());
+        for (SpaceSaving.Counter counter : counters) {
+            assertTrue(counter.getError() <= total / 50);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.Inventory;
+import com.obs.purchase.entity.dto.StockAlert;
+import com.obs.purchase.enums.StockAlertKind;
+import com.obs.purchase.repository.InventoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StockAlertServiceTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @InjectMocks
+    private StockAlertService stockAlertService;
+
+    private QueueStockAlertSink sink;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        sink = new QueueStockAlertSink();
+        ReflectionTestUtils.setField(stockAlertService, "sinks", List.of(sink));
+        ReflectionTestUtils.setField(stockAlertService, "hysteresis", 5);
+        ReflectionTestUtils.setField(stockAlertService, "cooldown", Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testOnStockChange_ShouldAlertOnce_WhenStockFallsToReorderLevel() {
+        stockAlertService.watch(100L, 10, 14);
+
+        stockAlertService.onStockChange(100L, -3);
+        stockAlertService.onStockChange(100L, -1);
+        stockAlertService.onStockChange(100L, -2);
+
+        List<StockAlert> alerts = sink.drain(10);
+        assertEquals(1, alerts.size());
+        assertEquals(StockAlertKind.LOW_STOCK, alerts.get(0).getKind());
+        assertEquals(10, alerts.get(0).getStock());
+    }
+
+    @Test
+    void testOnStockChange_ShouldOnlyRestock_AboveHysteresisBand() {
+        stockAlertService.watch(100L, 10, 9);
+        sink.drain(10);
+
+        stockAlertService.onStockChange(100L, 3);
+        stockAlertService.onStockChange(100L, -2);
+        assertTrue(sink.drain(10).isEmpty());
+
+        stockAlertService.onStockChange(100L, 6);
+        List<StockAlert> alerts = sink.drain(10);
+        assertEquals(1, alerts.size());
+        assertEquals(StockAlertKind.RESTOCKED, alerts.get(0).getKind());
+        assertEquals(16, alerts.get(0).getStock());
+    }
+
+    @Test
+    void testOnStockChange_ShouldSuppressFlapping_DuringCooldownButAlwaysReportOutOfStock() {
+        ReflectionTestUtils.setField(stockAlertService, "cooldown", Duration.ofMinutes(5));
+        stockAlertService.watch(100L, 10, 12);
+
+        stockAlertService.onStockChange(100L, -4);
+        stockAlertService.onStockChange(100L, 20);
+        stockAlertService.onStockChange(100L, -20);
+        stockAlertService.onStockChange(100L, -8);
+        stockAlertService.onStockChange(100L, 1);
+
+        List<StockAlert> alerts = sink.drain(10);
+        assertEquals(2, alerts.size());
+        assertEquals(StockAlertKind.LOW_STOCK, alerts.get(0).getKind());
+        assertEquals(StockAlertKind.OUT_OF_STOCK, alerts.get(1).getKind());
+    }
+
+    @Test
+    void testOnStockChange_ShouldReadLedgerStock_WhenLedgerEnabled() {
+        stockAlertService.watch(100L, 10, 50);
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.getStock(100L)).thenReturn(0);
+
+        stockAlertService.onStockChange(100L, -1);
+
+        assertEquals(StockAlertKind.OUT_OF_STOCK, sink.drain(10).get(0).getKind());
+    }
+
+    @Test
+    void testOnStockChange_ShouldWaitForCommit() {
+        stockAlertService.watch(100L, 10, 11);
+        TransactionSynchronizationManager.initSynchronization();
+
+        stockAlertService.onStockChange(100L, -5);
+        assertTrue(sink.drain(10).isEmpty());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(1, sink.drain(10).size());
+    }
+
+    @Test
+    void testOnStockChange_ShouldIgnoreItemsWithoutReorderLevel() {
+        Inventory watched = new Inventory(100L, 20);
+        watched.setReorderLevel(10);
+        when(inventoryRepository.findExistingRecord()).thenReturn(List.of(watched, new Inventory(200L, 1)));
+        stockAlertService.load();
+
+        stockAlertService.onStockChange(200L, -1);
+        stockAlertService.onStockChange(100L, -15);
+        stockAlertService.unwatch(100L);
+        stockAlertService.onStockChange(100L, -5);
+
+        List<StockAlert> alerts = sink.drain(10);
+        assertEquals(1, alerts.size());
+        assertEquals(100L, alerts.get(0).getItemId());
+        assertEquals(5, alerts.get(0).getStock());
+    }
+}
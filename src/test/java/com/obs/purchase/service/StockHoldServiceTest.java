@@ -0,0 +1,203 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.InventoryTransaction;
+import com.obs.purchase.entity.Item;
+import com.obs.purchase.entity.StockHold;
+import com.obs.purchase.enums.HoldState;
+import com.obs.purchase.enums.Type;
+import com.obs.purchase.exceptions.InvalidRequest;
+import com.obs.purchase.exceptions.NotFoundExceptions;
+import com.obs.purchase.repository.InventoryRepository;
+import com.obs.purchase.repository.InventoryTransactionRepository;
+import com.obs.purchase.repository.StockHoldRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StockHoldServiceTest {
+
+    @Mock
+    private StockHoldRepository stockHoldRepository;
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private InventoryTransactionRepository inventoryTransactionRepository;
+
+    @Mock
+    private ItemCatalogCache itemCatalogCache;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private SequenceService sequenceService;
+
+    @Mock
+    private StockAlertService stockAlertService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private PurchaseMetrics purchaseMetrics = new PurchaseMetrics(new SimpleMeterRegistry());
+
+    @InjectMocks
+    private StockHoldService stockHoldService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(itemCatalogCache.findById(1L)).thenReturn(new Item(1L, "Pen", 5));
+        when(sequenceService.next(eq("hold_no"), any(LongSupplier.class))).thenReturn(1L);
+        when(stockHoldRepository.save(any(StockHold.class))).thenAnswer(invocation -> {
+            StockHold hold = invocation.getArgument(0);
+            hold.setId(7L);
+            return hold;
+        });
+        when(inventoryTransactionRepository.save(any(InventoryTransaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void testHold_ShouldMoveStockToReserved_WhenLedgerIsDisabled() {
+        when(inventoryRepository.holdStock(1L, 3)).thenReturn(1);
+
+        StockHold hold = stockHoldService.hold(1L, 3, Duration.ofMinutes(2));
+
+        assertEquals("H1", hold.getHoldNo());
+        assertEquals(HoldState.HELD, hold.getState());
+        assertTrue(hold.getExpiresAt().isAfter(Instant.now().plusSeconds(100)));
+        verify(inventoryRepository, times(1)).holdStock(1L, 3);
+        verify(stockAlertService, times(1)).onStockChange(1L, -3);
+    }
+
+    @Test
+    void testHold_ShouldReserveInLedgerAndCountReserved_WhenLedgerIsEnabled() {
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.reserve(1L, 3)).thenReturn(true);
+
+        stockHoldService.hold(1L, 3, null);
+
+        verify(stockLedger, times(1)).compensateOnRollback(1L, -3);
+        verify(inventoryRepository, times(1)).changeReserved(1L, 3);
+        verify(inventoryRepository, never()).holdStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void testHold_ShouldReject_WhenStockIsInsufficient() {
+        when(inventoryRepository.existsByItemId(1L)).thenReturn(true);
+
+        InvalidRequest exception = assertThrows(InvalidRequest.class, () -> stockHoldService.hold(1L, 3, null));
+
+        assertEquals("limited stock", exception.getMessage());
+        verify(stockHoldRepository, never()).save(any(StockHold.class));
+    }
+
+    @Test
+    void testHold_ShouldReject_WhenTtlIsAboveMaximum() {
+        assertThrows(InvalidRequest.class, () -> stockHoldService.hold(1L, 3, Duration.ofDays(1)));
+        verify(inventoryRepository, never()).holdStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void testConfirm_ShouldWriteOneWithdrawalAndClearReserved() {
+        StockHold hold = new StockHold("H1", 1L, 3, Instant.now().plusSeconds(60));
+        when(stockHoldRepository.lockByHoldNo("H1")).thenReturn(hold);
+
+        InventoryTransaction withdrawal = stockHoldService.confirm("H1");
+
+        assertEquals(HoldState.CONFIRMED, hold.getState());
+        assertEquals(Type.WITHDRAWAL.getDisplayName(), withdrawal.getType());
+        assertEquals(3, withdrawal.getQty());
+        verify(inventoryRepository, times(1)).changeReserved(1L, -3);
+        verify(inventoryRepository, never()).withdrawStock(anyLong(), anyInt());
+        verify(stockAlertService, never()).onStockChange(anyLong(), anyInt());
+    }
+
+    @Test
+    void testConfirm_ShouldReject_WhenHoldWasReleased() {
+        StockHold hold = new StockHold("H1", 1L, 3, Instant.now().plusSeconds(60));
+        hold.setState(HoldState.RELEASED);
+        when(stockHoldRepository.lockByHoldNo("H1")).thenReturn(hold);
+
+        InvalidRequest exception = assertThrows(InvalidRequest.class, () -> stockHoldService.confirm("H1"));
+
+        assertEquals("hold is already released", exception.getSpecificCause());
+        verify(inventoryTransactionRepository, never()).save(any(InventoryTransaction.class));
+    }
+
+    @Test
+    void testConfirm_ShouldThrowNotFound_WhenHoldDoesNotExist() {
+        assertThrows(NotFoundExceptions.class, () -> stockHoldService.confirm("H404"));
+    }
+
+    @Test
+    void testRelease_ShouldGiveStockBack() {
+        StockHold hold = new StockHold("H1", 1L, 3, Instant.now().plusSeconds(60));
+        when(stockHoldRepository.lockByHoldNo("H1")).thenReturn(hold);
+
+        stockHoldService.release("H1");
+
+        assertEquals(HoldState.RELEASED, hold.getState());
+        verify(inventoryRepository, times(1)).releaseHeldStock(1L, 3);
+        verify(stockAlertService, times(1)).onStockChange(1L, 3);
+    }
+
+    @Test
+    void testRelease_ShouldGiveStockBackToLedgerOnCommit_WhenLedgerIsEnabled() {
+        when(stockLedger.isEnabled()).thenReturn(true);
+        StockHold hold = new StockHold("H1", 1L, 3, Instant.now().plusSeconds(60));
+        when(stockHoldRepository.lockByHoldNo("H1")).thenReturn(hold);
+
+        stockHoldService.release("H1");
+
+        verify(stockLedger, times(1)).releaseOnCommit(1L, 3);
+        verify(stockLedger, never()).release(anyLong(), anyInt());
+        verify(stockLedger, never()).compensateOnRollback(anyLong(), anyInt());
+        verify(inventoryRepository, times(1)).changeReserved(1L, -3);
+        verify(inventoryRepository, never()).releaseHeldStock(anyLong(), anyInt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExpire_ShouldReleaseHoldsOnceTheirDeadlinePasses() {
+        long now = System.currentTimeMillis();
+        StockHold first = new StockHold("H1", 1L, 3, Instant.ofEpochMilli(now + 5000));
+        first.setId(1L);
+        StockHold second = new StockHold("H2", 1L, 2, Instant.ofEpochMilli(now + 5000));
+        second.setId(2L);
+        StockHold later = new StockHold("H3", 2L, 4, Instant.ofEpochMilli(now + 60000));
+        later.setId(3L);
+        when(stockHoldRepository.findByStateAndIdGreaterThanOrderByIdAsc(eq(HoldState.HELD), eq(0L), any()))
+                .thenReturn(new SliceImpl<>(List.of(first, second, later)));
+        when(stockHoldRepository.lockByIdInAndState(anyCollection(), eq(HoldState.HELD))).thenReturn(List.of(first, second));
+        stockHoldService.load();
+
+        assertEquals(0, stockHoldService.expire(now + 1000));
+        int expired = stockHoldService.expire(now + 7000);
+
+        ArgumentCaptor<List<Long>> ids = ArgumentCaptor.forClass(List.class);
+        verify(stockHoldRepository, times(1)).lockByIdInAndState(ids.capture(), eq(HoldState.HELD));
+        assertEquals(2, expired);
+        assertEquals(List.of(1L, 2L), ids.getValue().stream().sorted().toList());
+        assertEquals(HoldState.EXPIRED, first.getState());
+        assertEquals(HoldState.HELD, later.getState());
+        verify(inventoryRepository, times(1)).releaseHeldStock(1L, 5);
+    }
+}
@@ -0,0 +1,208 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.Inventory;
+import com.obs.purchase.repository.InventoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StockLedgerTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private InventorySnapshotService inventorySnapshotService;
+
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(new PurchaseMetrics(new SimpleMeterRegistry()));
+
+    @InjectMocks
+    private StockLedger stockLedger;
+
+    private Inventory inventory;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(stockLedger, "enabled", true);
+        inventory = new Inventory(1L, 20);
+        when(inventoryRepository.findExistingRecord()).thenReturn(List.of(inventory));
+        stockLedger.seed();
+    }
+
+    @Test
+    void testSeed_ShouldLoadStockFromInventoryTable() {
+        assertTrue(stockLedger.isEnabled());
+        assertEquals(20, stockLedger.getStock(1L));
+        assertNull(stockLedger.getStock(2L));
+    }
+
+    @Test
+    void testSeed_ShouldDeriveStockFromTransactionLog_WhenEventSourced() {
+        StockLedger eventSourcedLedger = new StockLedger();
+        ReflectionTestUtils.setField(eventSourcedLedger, "inventoryRepository", inventoryRepository);
+        ReflectionTestUtils.setField(eventSourcedLedger, "inventorySnapshotService", inventorySnapshotService);
+        ReflectionTestUtils.setField(eventSourcedLedger, "enabled", true);
+        ReflectionTestUtils.setField(eventSourcedLedger, "eventSourced", true);
+        when(inventorySnapshotService.currentStocks()).thenReturn(Map.of(1L, 12, 2L, 4, 3L, 9));
+        when(inventoryRepository.findDeletedItemIds()).thenReturn(List.of(3L));
+
+        eventSourcedLedger.seed();
+
+        assertTrue(eventSourcedLedger.isEventSourced());
+        assertEquals(12, eventSourcedLedger.getStock(1L));
+        assertEquals(4, eventSourcedLedger.getStock(2L));
+        assertNull(eventSourcedLedger.getStock(3L));
+        assertFalse(stockLedger.isEventSourced());
+    }
+
+    @Test
+    void testReserve_ShouldDecrementStock_WhenEnoughStock() {
+        assertTrue(stockLedger.reserve(1L, 15));
+        assertEquals(5, stockLedger.getStock(1L));
+    }
+
+    @Test
+    void testReserve_ShouldRejectAndKeepStock_WhenInsufficientStock() {
+        assertFalse(stockLedger.reserve(1L, 21));
+        assertFalse(stockLedger.reserve(2L, 1));
+        assertEquals(20, stockLedger.getStock(1L));
+    }
+
+    @Test
+    void testReserve_ShouldNeverOversell_WhenConcurrent() throws InterruptedException {
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 100; i++) {
+            executor.submit(() -> {
+                if (stockLedger.reserve(1L, 1)) {
+                    reserved.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(20, reserved.get());
+        assertEquals(0, stockLedger.getStock(1L));
+    }
+
+    @Test
+    void testRelease_ShouldCreateCounter_WhenItemIsNew() {
+        stockLedger.release(2L, 7);
+
+        assertEquals(7, stockLedger.getStock(2L));
+    }
+
+    @Test
+    void testReleaseOnCommit_ShouldNotBeReservable_UntilCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            stockLedger.releaseOnCommit(1L, 5);
+
+            assertFalse(stockLedger.reserve(1L, 21));
+            assertEquals(20, stockLedger.getStock(1L));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(25, stockLedger.getStock(1L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPut_ShouldReturnReplacedStockAndFlushNewStock() {
+        stockLedger.reserve(1L, 5);
+        when(inventoryRepository.findByItemIdIn(anyCollection())).thenReturn(List.of(inventory));
+        stockLedger.flush();
+
+        assertEquals(15, stockLedger.put(1L, 40));
+        stockLedger.flush();
+
+        assertEquals(40, inventory.getStock());
+        verify(inventoryRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void testReserve_ShouldUseShardedStock_WhenItemIsConfiguredForSharding() {
+        ReflectionTestUtils.setField(stockLedger, "shardedItemIds", Set.of(3L));
+        ReflectionTestUtils.setField(stockLedger, "shardsPerItem", 4);
+        stockLedger.put(3L, 10);
+
+        assertTrue(stockLedger.isSharded(3L));
+        assertFalse(stockLedger.isSharded(1L));
+        assertTrue(stockLedger.reserve(3L, 9));
+        assertFalse(stockLedger.reserve(3L, 2));
+        assertEquals(1, stockLedger.getStock(3L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_ShouldWriteDirtyItemsInOneBatch() {
+        stockLedger.reserve(1L, 5);
+        stockLedger.release(2L, 3);
+        when(inventoryRepository.findByItemIdIn(anyCollection())).thenReturn(List.of(inventory));
+
+        stockLedger.flush();
+
+        ArgumentCaptor<List<Inventory>> captor = ArgumentCaptor.forClass(List.class);
+        verify(inventoryRepository, times(1)).saveAll(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(15, inventory.getStock());
+    }
+
+    @Test
+    void testFlush_ShouldDoNothing_WhenNothingChanged() {
+        stockLedger.flush();
+
+        verify(inventoryRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testFlush_ShouldWriteQueuedStockAsStillThere_UntilDrained() {
+        assertTrue(stockLedger.reserveQueued(1L, 5));
+        when(inventoryRepository.findByItemIdIn(anyCollection())).thenReturn(List.of(inventory));
+
+        stockLedger.flush();
+        assertEquals(15, stockLedger.getStock(1L));
+        assertEquals(20, inventory.getStock());
+
+        stockLedger.unqueue(1L, 5);
+        stockLedger.drained(1L);
+        stockLedger.flush();
+        assertEquals(15, inventory.getStock());
+    }
+
+    @Test
+    void testReleaseQueued_ShouldRestoreCounterAndQueue() {
+        assertTrue(stockLedger.reserveQueued(1L, 5));
+        stockLedger.releaseQueued(1L, 5);
+        when(inventoryRepository.findByItemIdIn(anyCollection())).thenReturn(List.of(inventory));
+
+        stockLedger.flush();
+
+        assertEquals(20, stockLedger.getStock(1L));
+        assertEquals(20, inventory.getStock());
+    }
+}
@@ -0,0 +1,75 @@
+package com.obs.purchase.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void testAdvance_ShouldExpireAtDeadlineAndNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        wheel.schedule("a", 25);
+
+        assertTrue(wheel.advance(20).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(30));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testAdvance_ShouldCascadeFromHigherLevels_WhenDeadlineIsBeyondFirstWheel() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 4, 0);
+        List<Long> deadlines = List.of(3L, 4L, 5L, 17L, 63L, 64L, 65L, 1000L, 4097L);
+        for (Long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = 1; now <= 5000; now++) {
+            for (Long deadline : wheel.advance(now)) {
+                assertEquals(deadline, now);
+                fired.add(deadline);
+            }
+        }
+
+        assertEquals(deadlines, fired);
+    }
+
+    @Test
+    void testAdvance_ShouldReturnPastDeadlinesRightAway() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 64, 1000);
+        wheel.schedule("late", 500);
+
+        assertEquals(List.of("late"), wheel.advance(1000));
+    }
+
+    @Test
+    void testAdvance_ShouldCatchUp_WhenClockJumpsAhead() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        wheel.schedule("a", 100);
+        wheel.schedule("b", 900);
+        wheel.schedule("c", 5000);
+
+        assertEquals(List.of("a", "b"), wheel.advance(1000));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void testCancel_ShouldRemoveTimeoutFromWheel() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        TimingWheel.Timeout<String> cancelled = wheel.schedule("a", 50);
+        wheel.schedule("b", 50);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(List.of("b"), wheel.advance(50));
+    }
+
+    @Test
+    void testConstructor_ShouldReject_WhenWheelSizeIsNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(10, 60, 0));
+    }
+}
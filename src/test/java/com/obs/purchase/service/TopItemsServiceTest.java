@@ -0,0 +1,82 @@
+package com.obs.purchase.service;
+
+import com.obs.purchase.entity.Order;
+import com.obs.purchase.entity.dto.TopItem;
+import com.obs.purchase.exceptions.InvalidRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopItemsServiceTest {
+
+    private TopItemsService topItemsService;
+
+    private final Instant now = Instant.parse("2024-01-01T10:30:30Z");
+
+    @BeforeEach
+    void setUp() {
+        topItemsService = new TopItemsService();
+        ReflectionTestUtils.setField(topItemsService, "capacity", 2);
+        ReflectionTestUtils.setField(topItemsService, "slot", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(topItemsService, "slots", 60);
+    }
+
+    @Test
+    void testTopItems_ShouldOnlyCountOrdersInsideWindow() {
+        topItemsService.add(List.of(order(1L, 10)), now.minus(Duration.ofMinutes(30)));
+        topItemsService.add(List.of(order(2L, 4), order(1L, 1)), now.minusSeconds(20));
+        topItemsService.add(List.of(order(2L, 3)), now);
+
+        List<TopItem> lastFiveMinutes = topItemsService.topItems(2, Duration.ofMinutes(5), now);
+        List<TopItem> lastHour = topItemsService.topItems(2, Duration.ofHours(1), now);
+
+        assertEquals(2L, lastFiveMinutes.get(0).getItemId());
+        assertEquals(7, lastFiveMinutes.get(0).getUnits());
+        assertEquals(1, lastFiveMinutes.get(1).getUnits());
+        assertEquals(1L, lastHour.get(0).getItemId());
+        assertEquals(11, lastHour.get(0).getUnits());
+    }
+
+    @Test
+    void testTopItems_ShouldForgetSlotsThatLeftTheRing() {
+        topItemsService.add(List.of(order(1L, 10)), now.minus(Duration.ofMinutes(61)));
+        topItemsService.add(List.of(order(2L, 1)), now.minus(Duration.ofMinutes(1)));
+
+        List<TopItem> top = topItemsService.topItems(2, Duration.ofHours(1), now);
+
+        assertEquals(1, top.size());
+        assertEquals(2L, top.get(0).getItemId());
+    }
+
+    @Test
+    void testTopItems_ShouldBoundMissingItemsByTheSmallestCounterOfFullSlots() {
+        topItemsService.add(List.of(order(1L, 5), order(2L, 4), order(3L, 1)), now.minusSeconds(60));
+        topItemsService.add(List.of(order(2L, 6)), now);
+
+        List<TopItem> top = topItemsService.topItems(2, Duration.ofMinutes(2), now);
+
+        // the older slot is full and only tracks 1 and 3 (3 took over 2's counter)
+        assertEquals(2L, top.get(0).getItemId());
+        assertEquals(11, top.get(0).getUnits());
+        assertEquals(5, top.get(0).getError());
+        assertEquals(1L, top.get(1).getItemId());
+        assertEquals(5, top.get(1).getUnits());
+    }
+
+    @Test
+    void testTopItems_ShouldReject_WhenWindowIsLongerThanTheRing() {
+        assertThrows(InvalidRequest.class, () -> topItemsService.topItems(2, Duration.ofHours(2), now));
+        assertThrows(InvalidRequest.class, () -> topItemsService.topItems(3, Duration.ofMinutes(5), now));
+        assertThrows(InvalidRequest.class, () -> topItemsService.topItems(2, Duration.ZERO, now));
+    }
+
+    private static Order order(long itemId, int qty) {
+        return new Order(null, itemId, qty, 10);
+    }
+}
@@ -0,0 +1,103 @@
+package com.obs.purchase.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRead_ShouldReturnAppendedRecordsUntilCommitted() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 1024, false)) {
+            wal.append(bytes("a"));
+            long second = wal.append(bytes("b"));
+            wal.append(bytes("c"));
+
+            assertEquals(List.of("a", "b"), text(wal.read(2)));
+            wal.commit(second);
+            assertEquals(List.of("c"), text(wal.read(10)));
+        }
+    }
+
+    @Test
+    void testOpen_ShouldReplayUncommittedRecords_WhenReopened() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 1024, true)) {
+            wal.commit(wal.append(bytes("done")));
+            wal.append(bytes("pending"));
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 1024, true)) {
+            assertEquals(List.of("pending"), text(wal.read(10)));
+            wal.append(bytes("next"));
+            assertEquals(List.of("pending", "next"), text(wal.read(10)));
+        }
+    }
+
+    @Test
+    void testOpen_ShouldDropTornRecord() throws IOException {
+        long end;
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 1024, true)) {
+            end = wal.append(bytes("intact"));
+            wal.append(bytes("torn"));
+        }
+        Path segment = directory.resolve(String.format("%020d.wal", 0));
+        byte[] content = Files.readAllBytes(segment);
+        content[(int) end + 8] ^= 1;
+        Files.write(segment, content);
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 1024, true)) {
+            assertEquals(end, wal.getWritePosition());
+            assertEquals(List.of("intact"), text(wal.read(10)));
+        }
+    }
+
+    @Test
+    void testCommit_ShouldDeleteConsumedSegments() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 64, false)) {
+            for (int i = 0; i < 10; i++) {
+                wal.append(bytes("record-" + i));
+            }
+            assertTrue(segmentCount() > 1);
+
+            List<WriteAheadLog.Entry> entries = wal.read(10);
+            assertEquals(10, entries.size());
+            assertEquals("record-9", new String(entries.get(9).getPayload(), StandardCharsets.UTF_8));
+            wal.commit(entries.get(9).getEndPosition());
+
+            assertEquals(1, segmentCount());
+            assertTrue(wal.read(10).isEmpty());
+        }
+    }
+
+    @Test
+    void testAppend_ShouldReject_WhenRecordDoesNotFitInSegment() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 64, false)) {
+            assertThrows(IllegalArgumentException.class, () -> wal.append(new byte[60]));
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".wal")).count();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> text(List<WriteAheadLog.Entry> entries) {
+        return entries.stream().map(entry -> new String(entry.getPayload(), StandardCharsets.UTF_8)).toList();
+    }
+}